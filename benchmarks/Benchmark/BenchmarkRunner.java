@@ -0,0 +1,59 @@
+package Benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the gc profiler, which adds the allocation rate
+ * and bytes allocated per operation to each result.
+ * <p>
+ * Usage: BenchmarkRunner [regex [side...]], where regex selects benchmarks
+ * by name and the sides restrict the map sizes, e.g. "Search 10 100" to skip
+ * the largest maps. Results are also written to bench_output.json.
+ * <p>
+ * Each fork's heap is sized for the largest map run, so small runs do not
+ * reserve the heap the largest map needs.
+ */
+public class BenchmarkRunner {
+
+	/** The default map sides, as in MapState. */
+	private static final int[] DEFAULT_SIDES = {10, 100, 1000, 4000};
+	/** Roughly the heap a generated map needs per node, with its edges. */
+	private static final long BYTES_PER_NODE = 768;
+
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.include(args.length > 0 ? args[0] : "Benchmark\\.")
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("bench_output.json");
+		int largest = DEFAULT_SIDES[DEFAULT_SIDES.length - 1];
+		if (args.length > 1) {
+			String[] sides = new String[args.length - 1];
+			System.arraycopy(args, 1, sides, 0, sides.length);
+			options.param("side", sides);
+			largest = 0;
+			for (String side : sides) {
+				largest = Math.max(largest, Integer.parseInt(side));
+			}
+		}
+		String heap = heapFor(largest);
+		options.jvmArgsAppend("-Xms" + heap, "-Xmx" + heap);
+		new Runner(options.build()).run();
+	}
+
+	/**
+	 * Sizes the heap for a generated map, in whole gigabytes and at least one.
+	 * @param side The number of rows and columns of the largest map
+	 * @return The heap size, e.g. "12g" for 4000x4000
+	 */
+	static String heapFor(int side) {
+		long bytes = (long) side * side * BYTES_PER_NODE;
+		long gigabytes = Math.max(1, (bytes + (1L << 30) - 1) >> 30);
+		return gigabytes + "g";
+	}
+}
@@ -0,0 +1,109 @@
+package Benchmark;
+
+import Graph.Edge;
+import Graph.Graph;
+import Graph.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the graph and the edge lookups used to cost a path.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+
+	/**
+	 * Unconnected nodes, disconnected again before every invocation.
+	 * Invocation-level setup adds some overhead of its own, which only
+	 * matters for the smallest map.
+	 */
+	@State(Scope.Thread)
+	public static class Unconnected {
+
+		@Param({"10", "100", "1000", "4000"})
+		public int side;
+
+		public Node[] nodes;
+
+		@Setup(Level.Trial)
+		public void create() throws Exception {
+			nodes = MapState.createNodes(side);
+		}
+
+		@Setup(Level.Invocation)
+		public void disconnect() {
+			for (Node node : nodes) {
+				node.getEdges().clear();
+			}
+		}
+	}
+
+	/**
+	 * Adjacent pairs for getEdge, and a long path for calculateTotalWeight.
+	 */
+	@State(Scope.Thread)
+	public static class Lookups {
+
+		private static final int PAIR_COUNT = 1024;
+
+		public Node[] sources;
+		public Node[] destinations;
+		public Node[] path;
+		private int next;
+
+		@Setup
+		public void setUp(MapState map) {
+			Random random = new Random(11);
+			sources = new Node[PAIR_COUNT];
+			destinations = new Node[PAIR_COUNT];
+			for (int i = 0; i < PAIR_COUNT; i++) {
+				sources[i] = map.nodes[random.nextInt(map.nodes.length)];
+				//any of the node's neighbours, so every edge position is scanned for
+				Edge edge = sources[i].getEdges().get(random.nextInt(sources[i].getEdges().size()));
+				destinations[i] = edge.getToNode();
+			}
+			//the least-cost path across the map
+			path = map.graph.dijkstrasSearch(map.nodes[0], map.nodes[map.nodes.length - 1]);
+		}
+
+		public int next() {
+			int i = next;
+			next = (next + 1) % PAIR_COUNT;
+			return i;
+		}
+	}
+
+	@Benchmark
+	public Node[] connectNodes(Unconnected unconnected) {
+		new Graph().connectNodes(unconnected.nodes, unconnected.side, unconnected.side);
+		return unconnected.nodes;
+	}
+
+	@Benchmark
+	public Edge getEdge(MapState map, Lookups lookups) {
+		int i = lookups.next();
+		return map.graph.getEdge(lookups.sources[i], lookups.destinations[i]);
+	}
+
+	@Benchmark
+	public double calculateTotalWeight(MapState map, Lookups lookups) {
+		return map.graph.calculateTotalWeight(lookups.path);
+	}
+}
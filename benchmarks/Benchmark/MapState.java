@@ -0,0 +1,82 @@
+package Benchmark;
+
+import GUI.GraphLoader;
+import Graph.Graph;
+import Graph.Node;
+import Graph.Position;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A connected map shared by every invocation of a benchmark. The 10x10 size
+ * is the bundled map; larger sizes are generated deterministically with the
+ * bundled map's layout, so each size is the same map on every run.
+ * <p>
+ * Generated maps hold an Edge object per connection, so 4000x4000 needs a
+ * heap of roughly 12GB, which BenchmarkRunner gives its forks.
+ */
+@State(Scope.Benchmark)
+public class MapState {
+
+	/** The distance between adjacent nodes, as in the bundled map. */
+	static final double SPACING = 60.0;
+
+	@Param({"10", "100", "1000", "4000"})
+	public int side;
+
+	public Graph graph;
+	public Node[] nodes;
+
+	@Setup
+	public void setUp() throws Exception {
+		nodes = createNodes(side);
+		graph = new Graph();
+		graph.connectNodes(nodes, side, side);
+	}
+
+	/**
+	 * @param side The number of rows and columns
+	 * @return Unconnected nodes: the bundled map for 10, otherwise a generated one
+	 */
+	static Node[] createNodes(int side) throws Exception {
+		if (side == 10) {
+			return GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		}
+		return generate(side, 42);
+	}
+
+	/**
+	 * Generates rolling terrain with elevations between 0 and 1, from a few
+	 * overlapping waves with a little noise on top.
+	 * @param side The number of rows and columns
+	 * @param seed Seeds the waves and noise
+	 * @return The nodes in row-major order, positioned as in the bundled map
+	 */
+	static Node[] generate(int side, long seed) {
+		Random random = new Random(seed);
+		double[] frequencies = new double[6];
+		double[] phases = new double[6];
+		for (int w = 0; w < frequencies.length; w++) {
+			frequencies[w] = (1 + random.nextInt(8)) * Math.PI / side;
+			phases[w] = random.nextDouble() * 2 * Math.PI;
+		}
+		Node[] nodes = new Node[side * side];
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
+				double height = 0.0;
+				for (int w = 0; w < frequencies.length; w += 2) {
+					height += Math.sin(row * frequencies[w] + phases[w]) * Math.cos(col * frequencies[w + 1] + phases[w + 1]);
+				}
+				//the waves sum to within [-3, 3]
+				double elevation = (height + 3.0) / 6.0 * 0.9 + random.nextDouble() * 0.1;
+				Position position = new Position(SPACING / 2 + col * SPACING, SPACING / 2 + row * SPACING);
+				nodes[row * side + col] = new Node(elevation, position);
+			}
+		}
+		return nodes;
+	}
+}
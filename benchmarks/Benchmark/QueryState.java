@@ -0,0 +1,74 @@
+package Benchmark;
+
+import Graph.Node;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A fixed set of start and target pairs on the current map, handed out in
+ * turn so consecutive invocations do not repeat the same query.
+ */
+@State(Scope.Thread)
+public class QueryState {
+
+	private static final int QUERY_COUNT = 64;
+
+	/**
+	 * How the queries are chosen.
+	 */
+	public enum QuerySet {
+		/** Uniformly random pairs of nodes. */
+		RANDOM,
+		/** Opposite corners, for which BFS and Dijkstra visit the whole map. */
+		WORST_CASE
+	}
+
+	@Param({"RANDOM", "WORST_CASE"})
+	public QuerySet querySet;
+
+	private Node[] starts;
+	private Node[] targets;
+	private int next;
+
+	@Setup
+	public void setUp(MapState map) {
+		Node[] nodes = map.nodes;
+		int side = map.side;
+		starts = new Node[QUERY_COUNT];
+		targets = new Node[QUERY_COUNT];
+		Random random = new Random(7);
+		for (int q = 0; q < QUERY_COUNT; q++) {
+			if (querySet == QuerySet.RANDOM) {
+				starts[q] = nodes[random.nextInt(nodes.length)];
+				targets[q] = nodes[random.nextInt(nodes.length)];
+			}
+			else {
+				//alternate between the two diagonals, in both directions
+				int[] corners = {0, nodes.length - 1, side - 1, nodes.length - side};
+				starts[q] = nodes[corners[q % 4]];
+				targets[q] = nodes[corners[q % 4 ^ 1]];
+			}
+		}
+	}
+
+	/**
+	 * @return The index of the next query
+	 */
+	public int next() {
+		int q = next;
+		next = (next + 1) % QUERY_COUNT;
+		return q;
+	}
+
+	public Node start(int query) {
+		return starts[query];
+	}
+
+	public Node target(int query) {
+		return targets[query];
+	}
+}
@@ -0,0 +1,42 @@
+package Benchmark;
+
+import Graph.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the searches of Graph on each map size and query set, reporting
+ * throughput and the latency distribution of single queries.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Benchmark
+	public Node[] breadthFirstSearch(MapState map, QueryState queries) {
+		int q = queries.next();
+		return map.graph.breadthFirstSearch(queries.start(q), queries.target(q));
+	}
+
+	@Benchmark
+	public Node[] depthFirstSearch(MapState map, QueryState queries) {
+		int q = queries.next();
+		return map.graph.depthFirstSearch(queries.start(q), queries.target(q));
+	}
+
+	@Benchmark
+	public Node[] dijkstrasSearch(MapState map, QueryState queries) {
+		int q = queries.next();
+		return map.graph.dijkstrasSearch(queries.start(q), queries.target(q));
+	}
+}
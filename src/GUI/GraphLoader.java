@@ -1,6 +1,8 @@
 package GUI;
 
 
+import Graph.Graph;
+import Graph.GraphFile;
 import Graph.Node;
 import Graph.Position;
 
@@ -10,17 +12,22 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
 /**
- * Reads in a previously serialised graph. All nodes in the
- * graph are stored into the nodes class variable.
+ * Reads in a previously saved graph. All nodes in the
+ * graph are shared with Graph.setSharedNodes.
  * Created for Data Structures, SP2 2017
  * @author James Baumeister
  * @version 1.0
  */
 public class GraphLoader {
 	
-	private static Node[] nodes = null;
+	/** The graph bundled with the application, in the binary GraphFile format. */
+	public static final String DEFAULT_PATH = "src/Resources/simple_graph.graph";
+	/** The same graph saved with Java serialisation, from which DEFAULT_PATH was converted. */
+	public static final String SERIALISED_PATH = "src/Resources/simple_graph.ser";
 	
 	public GraphLoader() {
 		deserialiseNodes();
@@ -28,17 +35,10 @@ public class GraphLoader {
 	
 	private void deserialiseNodes() {
 		try {
-			FileInputStream fileIn;
-			ObjectInputStream in;
-
-			fileIn = new FileInputStream("src/Resources/simple_graph.ser");
-			in = new ObjectInputStream(fileIn);
-			nodes = (Node[]) in.readObject();
-			in.close();
-			fileIn.close();
+			Graph.setSharedNodes(load(DEFAULT_PATH));
 		}
-		catch (FileNotFoundException e) {
-			System.out.println("Serialised graph file not found");
+		catch (FileNotFoundException | NoSuchFileException e) {
+			System.out.println("Graph file not found");
 			e.printStackTrace();
 		}
 		catch (IOException e) {
@@ -51,7 +51,33 @@ public class GraphLoader {
 		}
 	}
 	
+	/**
+	 * Reads a graph without replacing the nodes returned by getNodes, so each
+	 * caller gets its own copy of the graph. Files ending in .ser are read with
+	 * Java serialisation, and any other file as a GraphFile. Each node's id is
+	 * set to its index in the returned array.
+	 * @param path The file to read
+	 * @return The nodes of the graph
+	 * @throws IOException If the file cannot be read
+	 * @throws ClassNotFoundException If the file holds an unknown class
+	 */
+	public static Node[] load(String path) throws IOException, ClassNotFoundException {
+		if (!path.endsWith(".ser")) {
+			return GraphFile.open(Paths.get(path)).toNodes();
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(path))) {
+			Node[] loaded = (Node[]) in.readObject();
+			for (int i = 0; i < loaded.length; i++) {
+				loaded[i].setId(i);
+			}
+			return loaded;
+		}
+	}
+	
+	/**
+	 * @return The nodes most recently loaded by any GraphLoader, shared by all callers
+	 */
 	public static Node[] getNodes() {
-		return nodes;
+		return Graph.getSharedNodes();
 	}
 }
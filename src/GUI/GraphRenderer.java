@@ -7,6 +7,8 @@ import javafx.scene.paint.Color;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static GUI.GraphGUI.canvas;
 import static GUI.GraphGUI.player_canvas;
@@ -30,9 +32,17 @@ class GraphRenderer {
 	// "breadthFirstSearch", "depthFirstSearch", "dijkstrasSearch"
 	private final String METHOD = "dijkstrasSearch"; 
 
+	//one daemon thread runs every search and animation, so they never overlap
+	private static final ExecutorService ANIMATOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "graph-animator");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	private GraphicsContext gc;
 	private GraphicsContext pgc;
-	private Node[] nodes = new GraphLoader().getNodes();
+	private final Node[] graphNodes = new GraphLoader().getNodes(); //not replaced by later loads
+	private Node[] nodes = graphNodes;
 
 	private Graph graph = new Graph();
 
@@ -40,23 +50,22 @@ class GraphRenderer {
 		gc = canvas.getGraphicsContext2D();
 		pgc = player_canvas.getGraphicsContext2D();
 		drawNodes();
-		drawPlayer(GraphLoader.getNodes()[START_NODE]);
+		drawPlayer(graphNodes[START_NODE]);
 		
 		startAnimation(METHOD);
 	}
 	
 	public void startAnimation(String method) {
-		new Thread(() -> {
+		ANIMATOR.execute(() -> {
 			Method theMethod;
 			try {
 				Thread.sleep(ANIMATION_DELAY);
 
 				try {
 					theMethod = graph.getClass().getMethod(method,
-							GraphLoader.getNodes()[START_NODE].getClass(),
-							GraphLoader.getNodes()[TARGET_NODE].getClass());
-					nodes = (Node[]) theMethod.invoke(graph, GraphLoader.getNodes()[START_NODE], GraphLoader.getNodes()
-							[TARGET_NODE]);
+							graphNodes[START_NODE].getClass(),
+							graphNodes[TARGET_NODE].getClass());
+					nodes = (Node[]) theMethod.invoke(graph, graphNodes[START_NODE], graphNodes[TARGET_NODE]);
 				}
 				catch (NoSuchMethodException e) {
 					System.out.println("Invalid search method");
@@ -78,7 +87,7 @@ class GraphRenderer {
 			catch (InterruptedException e) {
 				e.printStackTrace();
 			}
-		}).start();
+		});
 	}
 
 	private void drawNodes() {
@@ -0,0 +1,185 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A monotone bucket queue (Dial's algorithm) that quantises priorities into
+ * fixed-width buckets held in a circular array. Inserts and decrease-keys
+ * only move an id between buckets; extractMin scans the lowest non-empty
+ * bucket for its exact minimum, so the extraction order is the same as a heap's.
+ * <p>
+ * Every queued priority must lie within bucketWidth * bucketCount of the
+ * current minimum. In Dijkstra's algorithm, where priorities never fall below
+ * the last one extracted, a window wider than the largest edge weight satisfies this.
+ */
+public class BucketQueue implements IndexedPriorityQueue {
+
+	private final double bucketWidth;
+	private final int[][] buckets; //ids in each bucket, unordered
+	private final int[] bucketSizes;
+	private final int[] bucketOf; //bucket of each id, or -1
+	private final int[] slotOf; //index of each id within its bucket
+	private final double[] priorities;
+	private long cursor; //absolute number of the lowest possibly non-empty bucket
+	private long ceiling; //absolute number of the highest possibly non-empty bucket
+	private int size;
+
+	/**
+	 * @param capacity The number of ids the queue can hold
+	 * @param bucketWidth The range of priorities covered by each bucket
+	 * @param bucketCount The number of buckets in the circular window
+	 */
+	public BucketQueue(int capacity, double bucketWidth, int bucketCount) {
+		if (!(bucketWidth > 0) || bucketCount < 1) {
+			throw new IllegalArgumentException("Bucket width and count must be positive");
+		}
+		this.bucketWidth = bucketWidth;
+		buckets = new int[bucketCount][];
+		bucketSizes = new int[bucketCount];
+		bucketOf = new int[capacity];
+		slotOf = new int[capacity];
+		priorities = new double[capacity];
+		Arrays.fill(bucketOf, -1);
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new int[4];
+		}
+	}
+
+	/**
+	 * Creates a queue whose window spans the given maximum edge weight.
+	 * @param capacity The number of ids the queue can hold
+	 * @param maxEdgeWeight The largest weight that will be relaxed
+	 * @param bucketCount The number of buckets the window is divided into
+	 * @return A queue able to drive Dijkstra's algorithm over those weights
+	 */
+	public static BucketQueue forMaxEdgeWeight(int capacity, double maxEdgeWeight, int bucketCount) {
+		//two spare buckets cover the partially used buckets at either end of the window
+		double width = maxEdgeWeight > 0 ? maxEdgeWeight / (bucketCount - 2) : 1.0;
+		return new BucketQueue(capacity, width, bucketCount);
+	}
+
+	@Override
+	public void insert(int id, double priority) {
+		if (bucketOf[id] != -1) {
+			throw new IllegalArgumentException("Id " + id + " is already queued");
+		}
+		long bucket = bucketNumber(priority);
+		if (size == 0) {
+			cursor = bucket;
+			ceiling = bucket;
+		}
+		widenWindow(bucket);
+		priorities[id] = priority;
+		add(id, bucket);
+		size++;
+	}
+
+	@Override
+	public void decreaseKey(int id, double priority) {
+		if (bucketOf[id] == -1) {
+			throw new IllegalArgumentException("Id " + id + " is not queued");
+		}
+		long bucket = bucketNumber(priority);
+		widenWindow(bucket);
+		priorities[id] = priority;
+		if ((int) Math.floorMod(bucket, (long) buckets.length) != bucketOf[id]) {
+			remove(id);
+			add(id, bucket);
+		}
+	}
+
+	@Override
+	public int extractMin() {
+		int min = peekMin();
+		remove(min);
+		size--;
+		return min;
+	}
+
+	@Override
+	public int peekMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("Queue is empty");
+		}
+		int index = (int) Math.floorMod(cursor, (long) buckets.length);
+		while (bucketSizes[index] == 0) {
+			cursor++;
+			index = (int) Math.floorMod(cursor, (long) buckets.length);
+		}
+
+		//every id in the lowest bucket is below any other bucket, so its minimum is global
+		int[] bucket = buckets[index];
+		int min = bucket[0];
+		for (int i = 1; i < bucketSizes[index]; i++) {
+			int id = bucket[i];
+			if (priorities[id] < priorities[min] || (priorities[id] == priorities[min] && id < min)) {
+				min = id;
+			}
+		}
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return bucketOf[id] != -1;
+	}
+
+	@Override
+	public double getPriority(int id) {
+		return priorities[id];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int b = 0; b < buckets.length; b++) {
+			for (int i = 0; i < bucketSizes[b]; i++) {
+				bucketOf[buckets[b][i]] = -1;
+			}
+			bucketSizes[b] = 0;
+		}
+		size = 0;
+	}
+
+	private long bucketNumber(double priority) {
+		return (long) Math.floor(priority / bucketWidth);
+	}
+
+	/**
+	 * Stretches the range of occupied buckets to include the given one,
+	 * failing if the range would no longer fit in the circular array.
+	 */
+	private void widenWindow(long bucket) {
+		long low = Math.min(cursor, bucket);
+		long high = Math.max(ceiling, bucket);
+		if (high - low >= buckets.length) {
+			throw new IllegalArgumentException("Priority " + bucket * bucketWidth + " is outside the bucket window");
+		}
+		cursor = low;
+		ceiling = high;
+	}
+
+	private void add(int id, long bucket) {
+		int index = (int) Math.floorMod(bucket, (long) buckets.length);
+		if (bucketSizes[index] == buckets[index].length) {
+			buckets[index] = Arrays.copyOf(buckets[index], buckets[index].length * 2);
+		}
+		buckets[index][bucketSizes[index]] = id;
+		bucketOf[id] = index;
+		slotOf[id] = bucketSizes[index]++;
+	}
+
+	private void remove(int id) {
+		//swap the last id of the bucket into the vacated slot
+		int index = bucketOf[id];
+		int last = buckets[index][--bucketSizes[index]];
+		buckets[index][slotOf[id]] = last;
+		slotOf[last] = slotOf[id];
+		bucketOf[id] = -1;
+	}
+}
@@ -0,0 +1,603 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy for answering many point-to-point queries on a graph
+ * that rarely changes. Preprocessing contracts the nodes one at a time, least
+ * important first, adding a shortcut edge wherever removing a node would
+ * lengthen a shortest path between two of its neighbours. A query then runs a
+ * bidirectional Dijkstra search that only climbs towards more important nodes,
+ * settling a few hundred nodes instead of most of the map, and expands the
+ * shortcuts on the path back into the original edges.
+ * <p>
+ * The hierarchy is a snapshot; rebuild it after the graph changes. Queries
+ * may be run from several threads at once, each using its own scratch space.
+ */
+public class ContractionHierarchy {
+
+	/** The number of nodes a witness search may settle before giving up. */
+	private static final int WITNESS_SETTLE_LIMIT = 200;
+	/** The lower limit used when only estimating how many shortcuts a node needs. */
+	private static final int ESTIMATE_SETTLE_LIMIT = 20;
+
+	private final int nodeCount;
+	private final int[] rank; //contraction order of each node
+	private final CsrGraph nodeGraph; //maps nodes to ids, when built from nodes
+
+	//edges from each node to more important nodes
+	private final int[] upOffsets;
+	private final int[] upTargets;
+	private final double[] upWeights;
+	private final int[] upMiddles; //contracted node a shortcut bypasses, or -1
+
+	//edges into each node from more important nodes, stored by source
+	private final int[] downOffsets;
+	private final int[] downSources;
+	private final double[] downWeights;
+	private final int[] downMiddles;
+
+	private final int shortcutCount;
+	private final ThreadLocal<Query> queries = ThreadLocal.withInitial(this::newQuery);
+
+	/**
+	 * Builds the hierarchy for nodes connected by Graph.connectNodes.
+	 * @param nodes The connected nodes; node i is given the id i
+	 */
+	public ContractionHierarchy(Node[] nodes) {
+		this(new CsrGraph(nodes));
+	}
+
+	/**
+	 * Builds the hierarchy for an indexed graph.
+	 * @param graph The graph to preprocess
+	 */
+	public ContractionHierarchy(IndexedGraph graph) {
+		nodeCount = graph.nodeCount();
+		nodeGraph = graph instanceof CsrGraph ? (CsrGraph) graph : null;
+		rank = new int[nodeCount];
+
+		Builder builder = new Builder(graph);
+		builder.contractAll();
+		shortcutCount = builder.shortcuts;
+
+		upOffsets = builder.upOffsets;
+		upTargets = builder.upTargets;
+		upWeights = builder.upWeights;
+		upMiddles = builder.upMiddles;
+		downOffsets = builder.downOffsets;
+		downSources = builder.downSources;
+		downWeights = builder.downWeights;
+		downMiddles = builder.downMiddles;
+	}
+
+	/**
+	 * Finds the least-costly path between two nodes.
+	 * @param start The id of the node from which to start
+	 * @param target The id of the node to which a path is built
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public int[] shortestPath(int start, int target) {
+		return queries.get().shortestPath(start, target);
+	}
+
+	/**
+	 * Finds the least-costly path between two nodes of the graph the
+	 * hierarchy was built from.
+	 * @param start The node from which to start
+	 * @param target The node to which a path is built
+	 * @return The nodes on the path from start to target, or null if target is unreachable
+	 */
+	public Node[] shortestPath(Node start, Node target) {
+		if (nodeGraph == null) {
+			throw new IllegalStateException("Hierarchy was not built from nodes");
+		}
+		int startId = nodeGraph.getId(start);
+		int targetId = nodeGraph.getId(target);
+		if (startId == -1 || targetId == -1) {
+			throw new IllegalArgumentException("Start and target must be part of the graph");
+		}
+		return nodeGraph.toNodes(shortestPath(startId, targetId));
+	}
+
+	/**
+	 * @param start The id of the node from which to start
+	 * @param target The id of the destination node
+	 * @return The cost of the least-costly path, or Double.MAX_VALUE if target is unreachable
+	 */
+	public double distance(int start, int target) {
+		Query query = queries.get();
+		query.search(start, target);
+		return query.best;
+	}
+
+	/**
+	 * @return Scratch space for running queries from a single thread
+	 */
+	public Query newQuery() {
+		return new Query();
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getShortcutCount() {
+		return shortcutCount;
+	}
+
+	/**
+	 * @param node The id of a node
+	 * @return The position of the node in the contraction order
+	 */
+	public int getRank(int node) {
+		return rank[node];
+	}
+
+	/**
+	 * Runs queries against the hierarchy, reusing its arrays between queries.
+	 * Not thread-safe; use one per thread.
+	 */
+	public class Query {
+
+		private final double[] forwardDistance = new double[nodeCount];
+		private final double[] backwardDistance = new double[nodeCount];
+		private final int[] forwardParent = new int[nodeCount]; //previous node on the way from start
+		private final int[] backwardParent = new int[nodeCount]; //next node on the way to target
+		private final int[] forwardEdge = new int[nodeCount]; //up edge from the parent, or -1
+		private final int[] backwardEdge = new int[nodeCount]; //down edge to the parent, or -1
+		private final int[] forwardStamp = new int[nodeCount]; //search in which each distance was set
+		private final int[] backwardStamp = new int[nodeCount];
+		private final DaryHeap forward = new DaryHeap(nodeCount);
+		private final DaryHeap backward = new DaryHeap(nodeCount);
+		private int stamp;
+		private double best;
+		private int meet;
+		private int settled;
+
+		private Query() {
+		}
+
+		/**
+		 * @param start The id of the node from which to start
+		 * @param target The id of the node to which a path is built
+		 * @return The ids on the path from start to target, or null if target is unreachable
+		 */
+		public int[] shortestPath(int start, int target) {
+			search(start, target);
+			if (meet == -1) {
+				return null;
+			}
+			//collect the up edges from start to the meeting node, then expand them in order
+			IntList head = new IntList();
+			for (int at = meet; forwardEdge[at] != -1; at = forwardParent[at]) {
+				head.add(forwardEdge[at]);
+			}
+			IntList path = new IntList();
+			path.add(start);
+			int at = start;
+			for (int i = head.size - 1; i >= 0; i--) {
+				int edge = head.values[i];
+				unpack(at, upTargets[edge], upMiddles[edge], path);
+				at = upTargets[edge];
+			}
+			//then follow the down edges from the meeting node to target
+			for (at = meet; backwardEdge[at] != -1; at = backwardParent[at]) {
+				unpack(at, backwardParent[at], downMiddles[backwardEdge[at]], path);
+			}
+			return path.toArray();
+		}
+
+		/**
+		 * @return The number of nodes settled by the last query, in both directions
+		 */
+		public int getSettledCount() {
+			return settled;
+		}
+
+		/**
+		 * Runs the upward searches from both ends, leaving the cost of the
+		 * best path in best and the node where its halves meet in meet.
+		 */
+		private void search(int start, int target) {
+			if (++stamp == 0) {
+				//the stamp wrapped around, so older stamps could collide with it
+				Arrays.fill(forwardStamp, 0);
+				Arrays.fill(backwardStamp, 0);
+				stamp = 1;
+			}
+			forward.clear();
+			backward.clear();
+			best = Double.MAX_VALUE;
+			meet = -1;
+			settled = 0;
+
+			reach(forwardStamp, forwardDistance, forwardParent, forwardEdge, forward, start, 0.0, -1, -1);
+			reach(backwardStamp, backwardDistance, backwardParent, backwardEdge, backward, target, 0.0, -1, -1);
+
+			/*
+			 * Each side may stop once its minimum reaches the best path found,
+			 * since every shortest path climbs to its most important node and
+			 * both searches reach that node.
+			 */
+			while (true) {
+				boolean forwardOpen = !forward.isEmpty() && forward.getPriority(forward.peekMin()) < best;
+				boolean backwardOpen = !backward.isEmpty() && backward.getPriority(backward.peekMin()) < best;
+				if (!forwardOpen && !backwardOpen) {
+					break;
+				}
+				if (forwardOpen && (!backwardOpen
+						|| forward.getPriority(forward.peekMin()) <= backward.getPriority(backward.peekMin()))) {
+					int current = forward.extractMin();
+					settled++;
+					meetAt(current);
+					for (int e = upOffsets[current]; e < upOffsets[current + 1]; e++) {
+						reach(forwardStamp, forwardDistance, forwardParent, forwardEdge, forward, upTargets[e],
+								forwardDistance[current] + upWeights[e], current, e);
+					}
+				}
+				else {
+					int current = backward.extractMin();
+					settled++;
+					meetAt(current);
+					for (int e = downOffsets[current]; e < downOffsets[current + 1]; e++) {
+						reach(backwardStamp, backwardDistance, backwardParent, backwardEdge, backward, downSources[e],
+								backwardDistance[current] + downWeights[e], current, e);
+					}
+				}
+			}
+		}
+
+		private void meetAt(int node) {
+			if (forwardStamp[node] == stamp && backwardStamp[node] == stamp) {
+				double total = forwardDistance[node] + backwardDistance[node];
+				if (total < best) {
+					best = total;
+					meet = node;
+				}
+			}
+		}
+
+		private void reach(int[] stamps, double[] distance, int[] parents, int[] edges, DaryHeap queue, int node,
+				double newDist, int parent, int edge) {
+			if (stamps[node] != stamp || newDist < distance[node]) {
+				stamps[node] = stamp;
+				distance[node] = newDist;
+				parents[node] = parent;
+				edges[node] = edge;
+				queue.insertOrDecrease(node, newDist);
+			}
+		}
+	}
+
+	/**
+	 * Appends the original nodes between from (already on the path) and to,
+	 * recursively expanding the shortcut through middle.
+	 */
+	private void unpack(int from, int to, int middle, IntList path) {
+		if (middle == -1) {
+			path.add(to);
+			return;
+		}
+		//the middle node was contracted before both ends, so both halves are its own edges
+		int down = findDownEdge(middle, from);
+		unpack(from, middle, downMiddles[down], path);
+		int up = findUpEdge(middle, to);
+		unpack(middle, to, upMiddles[up], path);
+	}
+
+	private int findUpEdge(int from, int to) {
+		for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++) {
+			if (upTargets[e] == to) {
+				return e;
+			}
+		}
+		throw new IllegalStateException("Missing hierarchy edge " + from + " -> " + to);
+	}
+
+	private int findDownEdge(int to, int from) {
+		for (int e = downOffsets[to]; e < downOffsets[to + 1]; e++) {
+			if (downSources[e] == from) {
+				return e;
+			}
+		}
+		throw new IllegalStateException("Missing hierarchy edge " + from + " -> " + to);
+	}
+
+	/**
+	 * Contracts the graph, recording each node's rank and the final up and
+	 * down edges in compressed sparse row form.
+	 */
+	private class Builder {
+
+		//edges between uncontracted nodes, including shortcuts
+		private final IntList[] outTargets;
+		private final DoubleList[] outWeights;
+		private final IntList[] outMiddles;
+		private final IntList[] inSources;
+		private final DoubleList[] inWeights;
+		private final IntList[] inMiddles;
+
+		private final int[] contractedNeighbours;
+
+		//witness search scratch space
+		private final double[] witnessDistance;
+		private final int[] witnessStamp;
+		private final int[] targetStamp; //marks the nodes a witness search is looking for
+		private final DaryHeap witnessQueue;
+		private int stamp;
+
+		private int[] upOffsets;
+		private int[] upTargets;
+		private double[] upWeights;
+		private int[] upMiddles;
+		private int[] downOffsets;
+		private int[] downSources;
+		private double[] downWeights;
+		private int[] downMiddles;
+		private int shortcuts;
+
+		Builder(IndexedGraph graph) {
+			outTargets = new IntList[nodeCount];
+			outWeights = new DoubleList[nodeCount];
+			outMiddles = new IntList[nodeCount];
+			inSources = new IntList[nodeCount];
+			inWeights = new DoubleList[nodeCount];
+			inMiddles = new IntList[nodeCount];
+			for (int i = 0; i < nodeCount; i++) {
+				outTargets[i] = new IntList(4);
+				outWeights[i] = new DoubleList();
+				outMiddles[i] = new IntList(4);
+				inSources[i] = new IntList(4);
+				inWeights[i] = new DoubleList();
+				inMiddles[i] = new IntList(4);
+			}
+			contractedNeighbours = new int[nodeCount];
+			witnessDistance = new double[nodeCount];
+			witnessStamp = new int[nodeCount];
+			targetStamp = new int[nodeCount];
+			witnessQueue = new DaryHeap(nodeCount);
+
+			int[] targets = new int[graph.maxDegree()];
+			double[] weights = new double[graph.maxDegree()];
+			for (int from = 0; from < nodeCount; from++) {
+				int count = graph.neighbours(from, targets, weights);
+				for (int i = 0; i < count; i++) {
+					if (targets[i] != from) {
+						addEdge(from, targets[i], weights[i], -1);
+					}
+				}
+			}
+		}
+
+		void contractAll() {
+			//order nodes by importance, re-evaluating lazily as neighbours are contracted
+			DaryHeap order = new DaryHeap(nodeCount);
+			for (int v = 0; v < nodeCount; v++) {
+				order.insert(v, importance(v));
+			}
+			IntList[] up = new IntList[nodeCount];
+			IntList[] down = new IntList[nodeCount];
+			int next = 0;
+			while (!order.isEmpty()) {
+				int v = order.extractMin();
+				double priority = importance(v);
+				if (!order.isEmpty() && priority > order.getPriority(order.peekMin())) {
+					order.insert(v, priority);
+					continue;
+				}
+				rank[v] = next++;
+				contract(v);
+			}
+			buildArrays();
+		}
+
+		/**
+		 * Estimates how much contracting a node would grow the graph, weighted
+		 * double, plus a term that spreads contraction evenly across the map.
+		 */
+		private double importance(int v) {
+			int added = contract(v, false);
+			int removed = outTargets[v].size + inSources[v].size;
+			return 2 * (added - removed) + contractedNeighbours[v];
+		}
+
+		/**
+		 * Adds the shortcuts that bypass v, then detaches v from its neighbours.
+		 * The edges left in v's own lists all lead to or from higher ranked
+		 * nodes and become its up and down edges.
+		 */
+		private void contract(int v) {
+			shortcuts += contract(v, true);
+			for (int i = 0; i < outTargets[v].size; i++) {
+				int w = outTargets[v].values[i];
+				contractedNeighbours[w]++;
+				int index = inSources[w].indexOf(v);
+				inSources[w].removeAt(index);
+				inWeights[w].removeAt(index);
+				inMiddles[w].removeAt(index);
+			}
+			for (int i = 0; i < inSources[v].size; i++) {
+				int u = inSources[v].values[i];
+				contractedNeighbours[u]++;
+				int index = outTargets[u].indexOf(v);
+				outTargets[u].removeAt(index);
+				outWeights[u].removeAt(index);
+				outMiddles[u].removeAt(index);
+			}
+		}
+
+		/**
+		 * Finds the shortcuts needed to bypass v, adding them if asked.
+		 * @return The number of shortcuts needed
+		 */
+		private int contract(int v, boolean add) {
+			int needed = 0;
+			IntList sources = inSources[v];
+			IntList targets = outTargets[v];
+			for (int i = 0; i < sources.size; i++) {
+				int u = sources.values[i];
+				double inWeight = inWeights[v].values[i];
+				double limit = 0.0;
+				for (int j = 0; j < targets.size; j++) {
+					int w = targets.values[j];
+					if (w != u) {
+						limit = Math.max(limit, inWeight + outWeights[v].values[j]);
+					}
+				}
+				witnessSearch(u, v, targets, limit, add ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+				for (int j = 0; j < targets.size; j++) {
+					int w = targets.values[j];
+					if (w == u) {
+						continue;
+					}
+					double via = inWeight + outWeights[v].values[j];
+					if (witnessStamp[w] != stamp || witnessDistance[w] > via) {
+						needed++;
+						if (add) {
+							addEdge(u, w, via, v);
+						}
+					}
+				}
+			}
+			return needed;
+		}
+
+		/**
+		 * Runs Dijkstra's algorithm from u among uncontracted nodes other than
+		 * v, stopping once every target is settled, beyond the limit, or after
+		 * a bounded number of nodes. Unfinished distances are upper bounds,
+		 * which at worst add an unneeded shortcut.
+		 */
+		private void witnessSearch(int u, int v, IntList targets, double limit, int settleLimit) {
+			stamp++;
+			int remaining = 0;
+			for (int j = 0; j < targets.size; j++) {
+				int w = targets.values[j];
+				if (w != u && targetStamp[w] != stamp) {
+					targetStamp[w] = stamp;
+					remaining++;
+				}
+			}
+			witnessQueue.clear();
+			witnessStamp[u] = stamp;
+			witnessDistance[u] = 0.0;
+			witnessQueue.insert(u, 0.0);
+			int settledCount = 0;
+			while (remaining > 0 && !witnessQueue.isEmpty() && settledCount++ < settleLimit) {
+				int current = witnessQueue.extractMin();
+				if (witnessDistance[current] > limit) {
+					break;
+				}
+				if (targetStamp[current] == stamp) {
+					remaining--;
+				}
+				IntList next = outTargets[current];
+				for (int i = 0; i < next.size; i++) {
+					int to = next.values[i];
+					if (to == v) {
+						continue;
+					}
+					double newDist = witnessDistance[current] + outWeights[current].values[i];
+					if (witnessStamp[to] != stamp || newDist < witnessDistance[to]) {
+						witnessStamp[to] = stamp;
+						witnessDistance[to] = newDist;
+						witnessQueue.insertOrDecrease(to, newDist);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds an edge, or lowers the weight of an existing edge between the same nodes.
+		 */
+		private void addEdge(int from, int to, double weight, int middle) {
+			int index = outTargets[from].indexOf(to);
+			if (index != -1) {
+				if (weight >= outWeights[from].values[index]) {
+					return;
+				}
+				outWeights[from].values[index] = weight;
+				outMiddles[from].values[index] = middle;
+				int reverseIndex = inSources[to].indexOf(from);
+				inWeights[to].values[reverseIndex] = weight;
+				inMiddles[to].values[reverseIndex] = middle;
+				return;
+			}
+			outTargets[from].add(to);
+			outWeights[from].add(weight);
+			outMiddles[from].add(middle);
+			inSources[to].add(from);
+			inWeights[to].add(weight);
+			inMiddles[to].add(middle);
+		}
+
+		/**
+		 * Keeps each edge leading to a higher ranked node as an up edge of its
+		 * source, and each edge arriving from one as a down edge of its target.
+		 */
+		private void buildArrays() {
+			upOffsets = new int[nodeCount + 1];
+			downOffsets = new int[nodeCount + 1];
+			for (int v = 0; v < nodeCount; v++) {
+				int ups = 0;
+				for (int i = 0; i < outTargets[v].size; i++) {
+					if (rank[outTargets[v].values[i]] > rank[v]) {
+						ups++;
+					}
+				}
+				int downs = 0;
+				for (int i = 0; i < inSources[v].size; i++) {
+					if (rank[inSources[v].values[i]] > rank[v]) {
+						downs++;
+					}
+				}
+				upOffsets[v + 1] = upOffsets[v] + ups;
+				downOffsets[v + 1] = downOffsets[v] + downs;
+			}
+			upTargets = new int[upOffsets[nodeCount]];
+			upWeights = new double[upOffsets[nodeCount]];
+			upMiddles = new int[upOffsets[nodeCount]];
+			downSources = new int[downOffsets[nodeCount]];
+			downWeights = new double[downOffsets[nodeCount]];
+			downMiddles = new int[downOffsets[nodeCount]];
+			for (int v = 0; v < nodeCount; v++) {
+				int e = upOffsets[v];
+				for (int i = 0; i < outTargets[v].size; i++) {
+					if (rank[outTargets[v].values[i]] > rank[v]) {
+						upTargets[e] = outTargets[v].values[i];
+						upWeights[e] = outWeights[v].values[i];
+						upMiddles[e++] = outMiddles[v].values[i];
+					}
+				}
+				e = downOffsets[v];
+				for (int i = 0; i < inSources[v].size; i++) {
+					if (rank[inSources[v].values[i]] > rank[v]) {
+						downSources[e] = inSources[v].values[i];
+						downWeights[e] = inWeights[v].values[i];
+						downMiddles[e++] = inMiddles[v].values[i];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A growable list of doubles without boxing.
+	 */
+	private static class DoubleList {
+		double[] values = new double[4];
+		int size;
+
+		void add(double value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void removeAt(int index) {
+			values[index] = values[--size];
+		}
+	}
+}
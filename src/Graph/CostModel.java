@@ -0,0 +1,184 @@
+package Graph;
+
+/**
+ * The rule giving the weight of travel along an edge. Edges are weighed with
+ * standard() when built; Graph.applyCostModel and CsrGraph.withCostModel
+ * then recompute every weight of a graph in one pass over primitive arrays,
+ * so switching rules does not mean rebuilding the graph.
+ * <p>
+ * No model weighs an edge below Edge.FLAT_COST times its distance, which
+ * the A* heuristics rely on. An edge weighing Double.POSITIVE_INFINITY cannot
+ * be crossed by the weighted searches; breadth- and depth-first search still
+ * cross it, as they ignore weights.
+ */
+public abstract class CostModel {
+
+	private static final CostModel STANDARD = new Standard();
+	private static final CostModel UPHILL_ONLY = new UphillOnly();
+
+	/**
+	 * The weight of one edge.
+	 * @param from The id of the "from" node
+	 * @param to The id of the "to" node
+	 * @param distance The Euclidean distance between the two nodes
+	 * @param fromElevation The elevation of the "from" node
+	 * @param toElevation The elevation of the "to" node
+	 * @return The weight, at least Edge.FLAT_COST * distance
+	 */
+	public abstract double weight(int from, int to, double distance, double fromElevation, double toElevation);
+
+	/**
+	 * Weighs many edges at once: edge e runs from sources[e] to targets[e] and
+	 * gets weights[e]. Subclasses override this with loops the JIT can
+	 * vectorise; this default weighs one edge at a time.
+	 * @param sources The id of each edge's "from" node
+	 * @param targets The id of each edge's "to" node
+	 * @param distances The length of each edge
+	 * @param elevations The elevation of each node, by id
+	 * @param weights Receives the weight of each edge
+	 */
+	public void weights(int[] sources, int[] targets, double[] distances, double[] elevations, double[] weights) {
+		for (int e = 0; e < weights.length; e++) {
+			weights[e] = weight(sources[e], targets[e], distances[e], elevations[sources[e]], elevations[targets[e]]);
+		}
+	}
+
+	/**
+	 * @return The model edges are built with, w(e) = d(p1, p2) * (0.01+|e2-e1|)
+	 */
+	public static CostModel standard() {
+		return STANDARD;
+	}
+
+	/**
+	 * The standard model, except that edges steeper than a limit cannot be
+	 * crossed, in either direction.
+	 * @param maxSlope The largest change in elevation per unit of distance allowed
+	 * @return The model
+	 */
+	public static CostModel slopeLimited(double maxSlope) {
+		if (!(maxSlope >= 0)) {
+			throw new IllegalArgumentException("Slope limit must be non-negative: " + maxSlope);
+		}
+		return new SlopeLimited(maxSlope);
+	}
+
+	/**
+	 * Charges for climbing but not for descending, w(e) = d * (0.01+max(0, e2-e1)),
+	 * so an edge and its reverse may weigh differently.
+	 * @return The model
+	 */
+	public static CostModel uphillOnly() {
+		return UPHILL_ONLY;
+	}
+
+	/**
+	 * Scales another model's weights by the terrain of the node each edge
+	 * enters, for example to make forest slower for wheeled units or to
+	 * flood lowland in rain.
+	 * @param base The model giving the unscaled weights
+	 * @param terrain The terrain type of each node, by id, as an index into multipliers
+	 * @param multipliers The factor for each terrain type, at least 1 so heuristics stay admissible
+	 * @return The model
+	 */
+	public static CostModel terrainMultiplier(CostModel base, int[] terrain, double[] multipliers) {
+		for (double multiplier : multipliers) {
+			if (!(multiplier >= 1.0)) {
+				throw new IllegalArgumentException("Terrain multipliers must be at least 1: " + multiplier);
+			}
+		}
+		return new TerrainMultiplier(base, terrain, multipliers.clone());
+	}
+
+	/**
+	 * Fills weights with the rise in elevation along each edge, for the
+	 * models to turn into weights in place. The gather is kept apart from the
+	 * arithmetic so that the second loop is a straight pass over arrays.
+	 */
+	static void rises(int[] sources, int[] targets, double[] elevations, double[] weights) {
+		for (int e = 0; e < weights.length; e++) {
+			weights[e] = elevations[targets[e]] - elevations[sources[e]];
+		}
+	}
+
+	private static final class Standard extends CostModel {
+
+		@Override
+		public double weight(int from, int to, double distance, double fromElevation, double toElevation) {
+			return Edge.weight(distance, fromElevation, toElevation);
+		}
+
+		@Override
+		public void weights(int[] sources, int[] targets, double[] distances, double[] elevations, double[] weights) {
+			rises(sources, targets, elevations, weights);
+			for (int e = 0; e < weights.length; e++) {
+				weights[e] = distances[e] * (Edge.FLAT_COST + Math.abs(weights[e]));
+			}
+		}
+	}
+
+	private static final class SlopeLimited extends CostModel {
+		private final double maxSlope;
+
+		SlopeLimited(double maxSlope) {
+			this.maxSlope = maxSlope;
+		}
+
+		@Override
+		public double weight(int from, int to, double distance, double fromElevation, double toElevation) {
+			double rise = Math.abs(toElevation - fromElevation);
+			return rise > maxSlope * distance ? Double.POSITIVE_INFINITY : distance * (Edge.FLAT_COST + rise);
+		}
+
+		@Override
+		public void weights(int[] sources, int[] targets, double[] distances, double[] elevations, double[] weights) {
+			rises(sources, targets, elevations, weights);
+			for (int e = 0; e < weights.length; e++) {
+				double rise = Math.abs(weights[e]);
+				double distance = distances[e];
+				weights[e] = rise > maxSlope * distance ? Double.POSITIVE_INFINITY : distance * (Edge.FLAT_COST + rise);
+			}
+		}
+	}
+
+	private static final class UphillOnly extends CostModel {
+
+		@Override
+		public double weight(int from, int to, double distance, double fromElevation, double toElevation) {
+			return distance * (Edge.FLAT_COST + Math.max(0.0, toElevation - fromElevation));
+		}
+
+		@Override
+		public void weights(int[] sources, int[] targets, double[] distances, double[] elevations, double[] weights) {
+			rises(sources, targets, elevations, weights);
+			for (int e = 0; e < weights.length; e++) {
+				weights[e] = distances[e] * (Edge.FLAT_COST + Math.max(0.0, weights[e]));
+			}
+		}
+	}
+
+	private static final class TerrainMultiplier extends CostModel {
+		private final CostModel base;
+		private final int[] terrain;
+		private final double[] multipliers;
+
+		TerrainMultiplier(CostModel base, int[] terrain, double[] multipliers) {
+			this.base = base;
+			this.terrain = terrain;
+			this.multipliers = multipliers;
+		}
+
+		@Override
+		public double weight(int from, int to, double distance, double fromElevation, double toElevation) {
+			return base.weight(from, to, distance, fromElevation, toElevation) * multipliers[terrain[to]];
+		}
+
+		@Override
+		public void weights(int[] sources, int[] targets, double[] distances, double[] elevations, double[] weights) {
+			base.weights(sources, targets, distances, elevations, weights);
+			for (int e = 0; e < weights.length; e++) {
+				weights[e] *= multipliers[terrain[targets[e]]];
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A compact, read-only copy of a connected Node graph in compressed sparse
+ * row form. Node i's edges occupy targets[offsets[i]..offsets[i+1]) and the
+ * matching entries of weights, in the order of the node's Edge list, so the
+ * searches in IndexedSearch scan them contiguously instead of following
+ * Edge and Node references. The graph never changes once built;
+ * withCostModel gives a copy with other weights.
+ */
+public class CsrGraph implements IndexedGraph {
+
+	private final Node[] nodes;
+	private final Map<Node, Integer> ids;
+	private final int[] offsets;
+	private final int[] targets;
+	private final double[] weights;
+	private final int maxDegree;
+	private final double[] elevations; //copied when built, for withCostModel
+	private final Position[] positions;
+	private CsrGraph reverse; //built on first use
+	private volatile double maxWeight = Double.NaN; //likewise
+
+	/**
+	 * Builds the compact form of the given nodes, which should already have
+	 * been connected by Graph.connectNodes. Edges to nodes outside the array
+	 * are dropped. Later changes to the nodes are not reflected.
+	 * @param nodes The nodes of the graph; node i is given the id i
+	 */
+	public CsrGraph(Node[] nodes) {
+		this.nodes = nodes;
+		ids = new IdentityHashMap<>();
+		elevations = new double[nodes.length];
+		positions = new Position[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			ids.put(nodes[i], i);
+			elevations[i] = nodes[i].getElevation();
+			positions[i] = new Position(nodes[i].getPosition().x, nodes[i].getPosition().y);
+		}
+
+		//first pass counts the edges of each node to lay out the offsets
+		offsets = new int[nodes.length + 1];
+		int degree = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			int count = 0;
+			for (Edge edge : nodes[i].getEdges()) {
+				if (ids.containsKey(edge.getToNode())) {
+					count++;
+				}
+			}
+			offsets[i + 1] = offsets[i] + count;
+			degree = Math.max(degree, count);
+		}
+		maxDegree = degree;
+
+		//second pass fills in each node's slice
+		targets = new int[offsets[nodes.length]];
+		weights = new double[offsets[nodes.length]];
+		for (int i = 0; i < nodes.length; i++) {
+			int e = offsets[i];
+			for (Edge edge : nodes[i].getEdges()) {
+				Integer to = ids.get(edge.getToNode());
+				if (to != null) {
+					targets[e] = to;
+					weights[e] = edge.getWeight();
+					e++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a graph sharing the nodes of another, with the given edges.
+	 */
+	private CsrGraph(CsrGraph other, int[] offsets, int[] targets, double[] weights) {
+		nodes = other.nodes;
+		ids = other.ids;
+		elevations = other.elevations;
+		positions = other.positions;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		int degree = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			degree = Math.max(degree, offsets[i + 1] - offsets[i]);
+		}
+		maxDegree = degree;
+	}
+
+	@Override
+	public int nodeCount() {
+		return nodes.length;
+	}
+
+	@Override
+	public int maxDegree() {
+		return maxDegree;
+	}
+
+	@Override
+	public int neighbours(int node, int[] targets, double[] weights) {
+		int start = offsets[node];
+		int count = offsets[node + 1] - start;
+		System.arraycopy(this.targets, start, targets, 0, count);
+		System.arraycopy(this.weights, start, weights, 0, count);
+		return count;
+	}
+
+	/**
+	 * Scans the weights on first use only, as they never change.
+	 */
+	@Override
+	public double maxEdgeWeight() {
+		double max = maxWeight;
+		if (Double.isNaN(max)) {
+			max = 0.0;
+			for (double weight : weights) {
+				//edges that cannot be crossed are never relaxed
+				if (weight != Double.POSITIVE_INFINITY) {
+					max = Math.max(max, weight);
+				}
+			}
+			maxWeight = max;
+		}
+		return max;
+	}
+
+	/**
+	 * Estimates cost from the straight-line distance between two nodes'
+	 * positions, which no path can beat since no edge costs less than
+	 * Edge.FLAT_COST per unit of distance.
+	 * @return A heuristic for A* over this graph
+	 */
+	public Heuristic euclideanHeuristic() {
+		return (node, target) -> Edge.FLAT_COST * positions[node].distance(positions[target]);
+	}
+
+	/**
+	 * Builds the transpose of this graph on first use. Each node's incoming
+	 * edges are listed in order of their source id.
+	 */
+	@Override
+	public synchronized CsrGraph reverse() {
+		if (reverse == null) {
+			int n = nodes.length;
+			int[] reverseOffsets = new int[n + 1];
+			for (int e = 0; e < targets.length; e++) {
+				reverseOffsets[targets[e] + 1]++;
+			}
+			for (int i = 0; i < n; i++) {
+				reverseOffsets[i + 1] += reverseOffsets[i];
+			}
+			int[] reverseTargets = new int[targets.length];
+			double[] reverseWeights = new double[weights.length];
+			int[] fill = Arrays.copyOf(reverseOffsets, n);
+			for (int from = 0; from < n; from++) {
+				for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+					int slot = fill[targets[e]]++;
+					reverseTargets[slot] = from;
+					reverseWeights[slot] = weights[e];
+				}
+			}
+			reverse = new CsrGraph(this, reverseOffsets, reverseTargets, reverseWeights);
+			reverse.reverse = this;
+		}
+		return reverse;
+	}
+
+	/**
+	 * Weighs the graph's edges under a cost model, from the elevations and
+	 * positions the nodes had when the graph was built, in one pass over
+	 * primitive arrays. The new graph shares this one's nodes and adjacency,
+	 * so nothing but the weights is copied, and this graph is left as it is
+	 * for any searches still running on it.
+	 * @param model The rule to weigh the edges by
+	 * @return A graph with the same edges, weighed by the model
+	 */
+	public CsrGraph withCostModel(CostModel model) {
+		int[] sources = new int[targets.length];
+		double[] distances = new double[targets.length];
+		for (int i = 0; i < nodes.length; i++) {
+			for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+				sources[e] = i;
+				distances[e] = positions[i].distance(positions[targets[e]]);
+			}
+		}
+		double[] reweighed = new double[targets.length];
+		model.weights(sources, targets, distances, elevations, reweighed);
+		return new CsrGraph(this, offsets, targets, reweighed);
+	}
+
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	public int degree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	/**
+	 * @param node A node of the graph
+	 * @return The node's id, or -1 if it is not part of the graph
+	 */
+	public int getId(Node node) {
+		int assigned = node.getId();
+		if (assigned >= 0 && assigned < nodes.length && nodes[assigned] == node) {
+			return assigned;
+		}
+		Integer id = ids.get(node);
+		return id != null ? id : -1;
+	}
+
+	public Node getNode(int id) {
+		return nodes[id];
+	}
+
+	/**
+	 * Converts a path of ids back into the nodes it visits.
+	 * @param path A path of ids, or null
+	 * @return The nodes of the path, or null if path is null
+	 */
+	public Node[] toNodes(int[] path) {
+		if (path == null) {
+			return null;
+		}
+		Node[] result = new Node[path.length];
+		for (int i = 0; i < path.length; i++) {
+			result[i] = nodes[path[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a path of nodes into their ids.
+	 * @param path A path of nodes belonging to this graph
+	 * @return The ids of the path's nodes
+	 */
+	public int[] toIds(Node[] path) {
+		int[] result = new int[path.length];
+		for (int i = 0; i < path.length; i++) {
+			result[i] = getId(path[i]);
+		}
+		return result;
+	}
+
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	public int[] getTargets() {
+		return targets;
+	}
+
+	public double[] getWeights() {
+		return weights;
+	}
+}
@@ -0,0 +1,594 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An incremental planner using D* Lite (Koenig and Likhachev, 2002).
+ * <p>
+ * The search runs backwards from the goal and keeps its distances between
+ * calls to plan. When edge weights change, only the nodes whose distance
+ * to the goal is affected are expanded again, so replanning after a local
+ * change costs a small fraction of a full search. The start may also move
+ * along the path, as a unit does while it travels, without starting over.
+ * <p>
+ * Over an IndexedGraph with live weights, such as a GridGraph whose
+ * elevations are set directly, report each changed node with nodesChanged.
+ * Over connected Node objects the planner listens for setElevation itself,
+ * recalculates the weights of the edges to and from the node, and repairs
+ * its search on the next call to plan; call close when finished with it.
+ */
+public class DStarLite {
+
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+	private IndexedGraph graph;
+	private final Heuristic heuristic;
+	private final int goal;
+	private int start;
+	private double km; //accumulated heuristic change as the start moves
+	private double[] g;
+	private double[] rhs;
+	private KeyHeap queue;
+	private int[] targets;
+	private double[] weights;
+	private int[] sources;
+	private double[] sourceWeights;
+	private int expanded;
+
+	private final Node[] nodes; //null unless planning over Node objects
+	private final Map<Node, Integer> ids;
+	private final NodeListener listener;
+	private final CostModel costModel; //weighs edges touching a node whose elevation changes
+	private final List<Integer> changed = new ArrayList<>(); //changed nodes not yet repaired
+	private boolean rebuild; //set when edges or positions change
+
+	/**
+	 * @param graph The graph to plan over; weights may change between calls to plan
+	 * @param start The id of the node to plan from
+	 * @param goal The id of the node to plan to
+	 * @param heuristic A consistent estimate of the cost between nodes, which must
+	 * stay a lower bound as weights change
+	 */
+	public DStarLite(IndexedGraph graph, int start, int goal, Heuristic heuristic) {
+		this.graph = graph;
+		this.start = start;
+		this.goal = goal;
+		this.heuristic = heuristic;
+		nodes = null;
+		ids = null;
+		listener = null;
+		costModel = null;
+		reset();
+	}
+
+	/**
+	 * Plans over connected nodes using the straight-line heuristic of
+	 * Graph.aStarSearch, listening to the nodes for changes.
+	 * @param nodes The connected nodes of the graph
+	 * @param start The node to plan from
+	 * @param goal The node to plan to
+	 */
+	public DStarLite(Node[] nodes, Node start, Node goal) {
+		this(nodes, start, goal, CostModel.standard());
+	}
+
+	/**
+	 * Plans over connected nodes whose edges were weighed by a cost model,
+	 * as by Graph.applyCostModel, reweighing the edges to and from a node
+	 * with the same model when its elevation changes.
+	 * @param nodes The connected nodes of the graph
+	 * @param start The node to plan from
+	 * @param goal The node to plan to
+	 * @param costModel The model the nodes' edges are weighed by
+	 */
+	public DStarLite(Node[] nodes, Node start, Node goal, CostModel costModel) {
+		this.costModel = costModel;
+		this.nodes = nodes.clone();
+		ids = new IdentityHashMap<>();
+		for (int i = 0; i < this.nodes.length; i++) {
+			ids.put(this.nodes[i], i);
+		}
+		this.start = idOf(start);
+		this.goal = idOf(goal);
+		heuristic = (node, target) -> Edge.FLAT_COST
+				* this.nodes[node].getPosition().distance(this.nodes[target].getPosition());
+		graph = new LiveNodeGraph(this.nodes, ids);
+		listener = this::nodeChanged;
+		for (Node node : this.nodes) {
+			node.addListener(listener);
+		}
+		reset();
+	}
+
+	/**
+	 * Repairs the search after any changes and returns the current path.
+	 * @return The ids on a least-costly path from the start to the goal, or null if there is none
+	 */
+	public int[] plan() {
+		applyChanges();
+		expanded = 0;
+		computeShortestPath();
+		if (g[start] == INFINITY) {
+			return null;
+		}
+		//follow the cheapest successor from the start down to the goal
+		List<Integer> path = new ArrayList<>();
+		int current = start;
+		path.add(current);
+		while (current != goal) {
+			int count = graph.neighbours(current, targets, weights);
+			int best = -1;
+			double bestCost = INFINITY;
+			for (int i = 0; i < count; i++) {
+				double cost = weights[i] + g[targets[i]];
+				if (cost < bestCost) {
+					bestCost = cost;
+					best = targets[i];
+				}
+			}
+			if (best == -1 || path.size() == g.length) {
+				return null;
+			}
+			current = best;
+			path.add(current);
+		}
+		int[] result = new int[path.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = path.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Repairs the search after any changes and returns the current path.
+	 * @return The nodes on a least-costly path from the start to the goal, or null if there is none
+	 */
+	public Node[] planNodes() {
+		if (nodes == null) {
+			throw new IllegalStateException("The graph has no Node objects");
+		}
+		int[] path = plan();
+		if (path == null) {
+			return null;
+		}
+		Node[] result = new Node[path.length];
+		for (int i = 0; i < path.length; i++) {
+			result[i] = nodes[path[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * Moves the start, typically to the next node on the path once a unit
+	 * has stepped onto it. The search is kept rather than restarted.
+	 * @param start The id of the new start
+	 */
+	public void setStart(int start) {
+		km += heuristic.estimate(this.start, start);
+		this.start = start;
+	}
+
+	public void setStart(Node start) {
+		setStart(idOf(start));
+	}
+
+	/**
+	 * Reports nodes whose edge weights, in either direction, have changed.
+	 * Takes effect on the next call to plan.
+	 * @param changedNodes The ids of the changed nodes
+	 */
+	public synchronized void nodesChanged(int... changedNodes) {
+		for (int node : changedNodes) {
+			changed.add(node);
+		}
+	}
+
+	/**
+	 * @return The cost of the path from the start at the last call to plan,
+	 * or Double.MAX_VALUE if the goal is unreachable
+	 */
+	public double getCost() {
+		return g[start] == INFINITY ? Double.MAX_VALUE : g[start];
+	}
+
+	/**
+	 * @return The number of nodes expanded by the last call to plan
+	 */
+	public int getExpandedCount() {
+		return expanded;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getGoal() {
+		return goal;
+	}
+
+	/**
+	 * Discards the search state, so the next call to plan starts from scratch.
+	 */
+	public void reset() {
+		int n = graph.nodeCount();
+		g = new double[n];
+		rhs = new double[n];
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(rhs, INFINITY);
+		queue = new KeyHeap(n);
+		targets = new int[graph.maxDegree()];
+		weights = new double[graph.maxDegree()];
+		int reverseDegree = graph.reverse().maxDegree();
+		sources = new int[reverseDegree];
+		sourceWeights = new double[reverseDegree];
+		km = 0.0;
+		rhs[goal] = 0.0;
+		queue.update(goal, heuristic.estimate(start, goal), 0.0);
+		synchronized (this) {
+			changed.clear();
+		}
+	}
+
+	/**
+	 * Stops listening to the nodes given to the constructor.
+	 */
+	public void close() {
+		if (nodes != null) {
+			for (Node node : nodes) {
+				node.removeListener(listener);
+			}
+		}
+	}
+
+	/**
+	 * Recalculates the weights of the edges touching a node whose elevation
+	 * has changed, under the planner's cost model, or schedules a full replan if the graph's shape changed.
+	 */
+	private void nodeChanged(Node node, NodeListener.Change change) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			return;
+		}
+		if (change == NodeListener.Change.ELEVATION) {
+			for (Edge edge : node.getEdges()) {
+				edge.updateWeight(costModel);
+			}
+			for (Edge edge : ((LiveNodeGraph) graph).incoming(id)) {
+				edge.updateWeight(costModel);
+			}
+			nodesChanged(id);
+		}
+		else {
+			synchronized (this) {
+				rebuild = true;
+			}
+		}
+	}
+
+	private void applyChanges() {
+		int[] pending;
+		synchronized (this) {
+			if (rebuild) {
+				rebuild = false;
+				graph = new LiveNodeGraph(nodes, ids);
+				reset();
+				return;
+			}
+			pending = new int[changed.size()];
+			for (int i = 0; i < pending.length; i++) {
+				pending[i] = changed.get(i);
+			}
+			changed.clear();
+		}
+		//every edge into or out of a changed node may have a new weight
+		for (int node : pending) {
+			repair(node);
+			int count = graph.reverse().neighbours(node, sources, sourceWeights);
+			for (int i = 0; i < count; i++) {
+				repair(sources[i]);
+			}
+		}
+	}
+
+	private void computeShortestPath() {
+		while (!queue.isEmpty()
+				&& (queue.lessThanKey(queue.peek(), key1(start), key2(start)) || rhs[start] != g[start])) {
+			int u = queue.peek();
+			double k1 = key1(u);
+			double k2 = key2(u);
+			expanded++;
+			if (queue.lessThanKey(u, k1, k2)) {
+				//its key rose since it was queued, as the start moved
+				queue.update(u, k1, k2);
+			}
+			else if (g[u] > rhs[u]) {
+				//overconsistent: lower g and tell the predecessors
+				g[u] = rhs[u];
+				queue.remove(u);
+				int count = graph.reverse().neighbours(u, sources, sourceWeights);
+				for (int i = 0; i < count; i++) {
+					int s = sources[i];
+					if (s != goal && sourceWeights[i] + g[u] < rhs[s]) {
+						rhs[s] = sourceWeights[i] + g[u];
+					}
+					updateVertex(s);
+				}
+			}
+			else {
+				//underconsistent: raise g and recompute the predecessors from scratch
+				g[u] = INFINITY;
+				repair(u);
+				int count = graph.reverse().neighbours(u, sources, sourceWeights);
+				for (int i = 0; i < count; i++) {
+					repair(sources[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recomputes rhs from the node's successors and requeues it if needed.
+	 */
+	private void repair(int node) {
+		if (node != goal) {
+			double best = INFINITY;
+			int count = graph.neighbours(node, targets, weights);
+			for (int i = 0; i < count; i++) {
+				best = Math.min(best, weights[i] + g[targets[i]]);
+			}
+			rhs[node] = best;
+		}
+		updateVertex(node);
+	}
+
+	private void updateVertex(int node) {
+		if (g[node] != rhs[node]) {
+			queue.update(node, key1(node), key2(node));
+		}
+		else if (queue.contains(node)) {
+			queue.remove(node);
+		}
+	}
+
+	private double key1(int node) {
+		return Math.min(g[node], rhs[node]) + heuristic.estimate(start, node) + km;
+	}
+
+	private double key2(int node) {
+		return Math.min(g[node], rhs[node]);
+	}
+
+	private int idOf(Node node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			throw new IllegalArgumentException("Node is not part of the graph");
+		}
+		return id;
+	}
+
+	/**
+	 * Adapts connected nodes to an IndexedGraph that reads each Edge's
+	 * current weight, keeping the incoming edges of each node for the reverse.
+	 */
+	private static final class LiveNodeGraph implements IndexedGraph {
+		private final Edge[][] outgoing;
+		private final Edge[][] incoming;
+		private final int[][] outTargets;
+		private final int[][] inSources;
+		private final int maxDegree;
+		private final int maxInDegree;
+		private final IndexedGraph reverse;
+
+		LiveNodeGraph(Node[] nodes, Map<Node, Integer> ids) {
+			int n = nodes.length;
+			outgoing = new Edge[n][];
+			outTargets = new int[n][];
+			int[] inDegree = new int[n];
+			int degree = 0;
+			for (int i = 0; i < n; i++) {
+				List<Edge> edges = new ArrayList<>();
+				for (Edge edge : nodes[i].getEdges()) {
+					Integer to = ids.get(edge.getToNode());
+					if (to != null) {
+						edges.add(edge);
+						inDegree[to]++;
+					}
+				}
+				outgoing[i] = edges.toArray(new Edge[0]);
+				outTargets[i] = new int[outgoing[i].length];
+				for (int e = 0; e < outgoing[i].length; e++) {
+					outTargets[i][e] = ids.get(outgoing[i][e].getToNode());
+				}
+				degree = Math.max(degree, outgoing[i].length);
+			}
+			maxDegree = degree;
+
+			incoming = new Edge[n][];
+			inSources = new int[n][];
+			degree = 0;
+			for (int i = 0; i < n; i++) {
+				incoming[i] = new Edge[inDegree[i]];
+				inSources[i] = new int[inDegree[i]];
+				degree = Math.max(degree, inDegree[i]);
+				inDegree[i] = 0;
+			}
+			maxInDegree = degree;
+			for (int i = 0; i < n; i++) {
+				for (int e = 0; e < outgoing[i].length; e++) {
+					int to = outTargets[i][e];
+					incoming[to][inDegree[to]] = outgoing[i][e];
+					inSources[to][inDegree[to]++] = i;
+				}
+			}
+
+			reverse = new IndexedGraph() {
+				@Override
+				public int nodeCount() {
+					return outgoing.length;
+				}
+
+				@Override
+				public int maxDegree() {
+					return maxInDegree;
+				}
+
+				@Override
+				public int neighbours(int node, int[] targets, double[] weights) {
+					return copy(incoming[node], inSources[node], targets, weights);
+				}
+
+				@Override
+				public IndexedGraph reverse() {
+					return LiveNodeGraph.this;
+				}
+			};
+		}
+
+		Edge[] incoming(int node) {
+			return incoming[node];
+		}
+
+		@Override
+		public int nodeCount() {
+			return outgoing.length;
+		}
+
+		@Override
+		public int maxDegree() {
+			return maxDegree;
+		}
+
+		@Override
+		public int neighbours(int node, int[] targets, double[] weights) {
+			return copy(outgoing[node], outTargets[node], targets, weights);
+		}
+
+		@Override
+		public IndexedGraph reverse() {
+			return reverse;
+		}
+
+		private static int copy(Edge[] edges, int[] ends, int[] targets, double[] weights) {
+			for (int e = 0; e < edges.length; e++) {
+				targets[e] = ends[e];
+				weights[e] = edges[e].getWeight();
+			}
+			return edges.length;
+		}
+	}
+
+	/**
+	 * A binary min-heap over node ids ordered by the two-part D* Lite key,
+	 * compared lexicographically, with smaller ids first on ties.
+	 */
+	private static final class KeyHeap {
+		private final int[] heap;
+		private final int[] positions;
+		private final double[] key1;
+		private final double[] key2;
+		private int size;
+
+		KeyHeap(int capacity) {
+			heap = new int[capacity];
+			positions = new int[capacity];
+			key1 = new double[capacity];
+			key2 = new double[capacity];
+			Arrays.fill(positions, -1);
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		boolean contains(int id) {
+			return positions[id] != -1;
+		}
+
+		int peek() {
+			return heap[0];
+		}
+
+		/**
+		 * @return True if the queued key of id is below (k1, k2)
+		 */
+		boolean lessThanKey(int id, double k1, double k2) {
+			return key1[id] < k1 || (key1[id] == k1 && key2[id] < k2);
+		}
+
+		/**
+		 * Inserts the id, or moves it to its new key in either direction.
+		 */
+		void update(int id, double k1, double k2) {
+			key1[id] = k1;
+			key2[id] = k2;
+			if (positions[id] == -1) {
+				heap[size] = id;
+				positions[id] = size;
+				siftUp(size++);
+			}
+			else {
+				siftUp(positions[id]);
+				siftDown(positions[id]);
+			}
+		}
+
+		void remove(int id) {
+			int index = positions[id];
+			positions[id] = -1;
+			size--;
+			if (index < size) {
+				//fill the hole with the last entry, which may belong above or below it
+				int moved = heap[size];
+				heap[index] = moved;
+				positions[moved] = index;
+				siftUp(index);
+				siftDown(positions[moved]);
+			}
+		}
+
+		private void siftUp(int index) {
+			int id = heap[index];
+			while (index > 0) {
+				int parent = (index - 1) / 2;
+				if (!less(id, heap[parent])) {
+					break;
+				}
+				heap[index] = heap[parent];
+				positions[heap[index]] = index;
+				index = parent;
+			}
+			heap[index] = id;
+			positions[id] = index;
+		}
+
+		private void siftDown(int index) {
+			int id = heap[index];
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && less(heap[child + 1], heap[child])) {
+					child++;
+				}
+				if (!less(heap[child], id)) {
+					break;
+				}
+				heap[index] = heap[child];
+				positions[heap[index]] = index;
+				index = child;
+			}
+			heap[index] = id;
+			positions[id] = index;
+		}
+
+		private boolean less(int a, int b) {
+			return key1[a] < key1[b] || (key1[a] == key1[b]
+					&& (key2[a] < key2[b] || (key2[a] == key2[b] && a < b)));
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An array-backed d-ary min-heap with a position index for decrease-key.
+ * An arity of 2 gives a binary heap; larger arities make the heap shallower,
+ * trading cheaper decrease-keys for more comparisons per extraction.
+ */
+public class DaryHeap implements IndexedPriorityQueue {
+
+	private final int arity;
+	private final int[] heap; //ids in heap order
+	private final int[] positions; //index of each id in heap, or -1
+	private final double[] priorities; //priority of each id
+	private int size;
+
+	/**
+	 * Creates a binary heap.
+	 * @param capacity The number of ids the heap can hold
+	 */
+	public DaryHeap(int capacity) {
+		this(capacity, 2);
+	}
+
+	/**
+	 * @param capacity The number of ids the heap can hold
+	 * @param arity The number of children of each heap entry, at least 2
+	 */
+	public DaryHeap(int capacity, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Heap arity must be at least 2");
+		}
+		this.arity = arity;
+		heap = new int[capacity];
+		positions = new int[capacity];
+		priorities = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	@Override
+	public void insert(int id, double priority) {
+		if (positions[id] != -1) {
+			throw new IllegalArgumentException("Id " + id + " is already queued");
+		}
+		priorities[id] = priority;
+		heap[size] = id;
+		positions[id] = size;
+		siftUp(size++);
+	}
+
+	@Override
+	public void decreaseKey(int id, double priority) {
+		if (positions[id] == -1) {
+			throw new IllegalArgumentException("Id " + id + " is not queued");
+		}
+		priorities[id] = priority;
+		siftUp(positions[id]);
+	}
+
+	@Override
+	public int extractMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		int min = heap[0];
+		positions[min] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	@Override
+	public int peekMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return heap[0];
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return positions[id] != -1;
+	}
+
+	@Override
+	public double getPriority(int id) {
+		return priorities[id];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int index) {
+		int id = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			if (!less(id, heap[parent])) {
+				break;
+			}
+			//move the parent down into the hole
+			heap[index] = heap[parent];
+			positions[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = id;
+		positions[id] = index;
+	}
+
+	private void siftDown(int index) {
+		int id = heap[index];
+		while (true) {
+			int first = index * arity + 1;
+			if (first >= size) {
+				break;
+			}
+			//find the smallest child
+			int best = first;
+			int last = Math.min(first + arity, size);
+			for (int child = first + 1; child < last; child++) {
+				if (less(heap[child], heap[best])) {
+					best = child;
+				}
+			}
+			if (!less(heap[best], id)) {
+				break;
+			}
+			heap[index] = heap[best];
+			positions[heap[index]] = index;
+			index = best;
+		}
+		heap[index] = id;
+		positions[id] = index;
+	}
+
+	private boolean less(int a, int b) {
+		return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && a < b);
+	}
+}
@@ -0,0 +1,507 @@
+package Graph;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel one-to-all shortest paths by Meyer and Sanders' delta-stepping,
+ * for graphs too large for a single-threaded Dijkstra search to cover quickly.
+ * <p>
+ * Nodes are kept in buckets of width delta by tentative distance. The
+ * lowest bucket is emptied in phases: every node in it relaxes its light
+ * edges, those no heavier than delta, in parallel, which may refill the same
+ * bucket. Once it stays empty its distances are final, and the nodes it held
+ * relax their heavy edges once. Distances are updated by compare-and-set, so
+ * they come out exactly as Dijkstra's algorithm computes them; where several
+ * paths tie, the parent chosen is the strictly closer neighbour with the
+ * smallest id. A node reached only through zero-weight edges from neighbours
+ * at its own distance takes its parent from those already in the tree, so
+ * the parents cannot form a loop.
+ * <p>
+ * Edge weights must not be negative.
+ */
+public final class DeltaStepping {
+
+	/** The number of nodes each task of a phase relaxes, below which a phase runs on the calling thread. */
+	private static final int GRAIN = 1024;
+
+	/** The most buckets kept at once; delta is widened if the heaviest edge would need more. */
+	private static final int MAX_BUCKETS = 1 << 16;
+
+	/** The most edge weights sampled to choose delta. */
+	private static final int SAMPLE_SIZE = 1 << 14;
+
+	private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final long UNREACHED = Double.doubleToRawLongBits(Double.MAX_VALUE);
+	private static final int PENDING = -2; //a parent still to be found among equally distant neighbours
+
+	private final IndexedGraph graph;
+	private final double delta;
+	private final ForkJoinPool pool;
+	private final long[] distance; //raw bits of each tentative distance, which order like the values
+	private final long[] expanded; //the distance each node last relaxed its edges at, -1 for none
+	private final IntList[] buckets; //bucket b at b % length, holding no more than one window of distances
+	private Chunk[] chunks = new Chunk[0];
+	private int used; //the chunks written by the last phase
+	private long bucket; //the index of the bucket being emptied
+
+	private DeltaStepping(IndexedGraph graph, double delta, ForkJoinPool pool) {
+		this.graph = graph;
+		this.delta = delta;
+		this.pool = pool;
+		int n = graph.nodeCount();
+		distance = new long[n];
+		expanded = new long[n];
+		Arrays.fill(distance, UNREACHED);
+		Arrays.fill(expanded, -1L);
+		//an edge can only reach maxEdgeWeight / delta buckets past the one being emptied
+		buckets = new IntList[(int) Math.floor(IndexedSearch.maxEdgeWeight(graph) / delta) + 2];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new IntList();
+		}
+	}
+
+	/**
+	 * Computes the shortest paths from source on the common ForkJoinPool,
+	 * choosing delta from the edge weights.
+	 * @see #compute(IndexedGraph, int, double, ForkJoinPool)
+	 */
+	public static ShortestPathTree compute(IndexedGraph graph, int source) {
+		return compute(graph, source, chooseDelta(graph), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Computes the distance from source to every node, and a shortest path tree.
+	 * @param graph The graph to search, which must be safe to read from several threads
+	 * @param source The id of the root of the tree
+	 * @param delta The width of each bucket, and the heaviest edge counted as light; it is
+	 * widened to a 65536th of the heaviest edge if smaller
+	 * @param pool The pool the phases run on
+	 * @return The shortest path tree rooted at source; nodes are numbered parents first,
+	 * but not in the order Dijkstra's algorithm would settle them
+	 */
+	public static ShortestPathTree compute(IndexedGraph graph, int source, double delta, ForkJoinPool pool) {
+		if (source < 0 || source >= graph.nodeCount()) {
+			throw new IllegalArgumentException("No node with id " + source);
+		}
+		if (!(delta > 0) || delta == Double.POSITIVE_INFINITY) {
+			throw new IllegalArgumentException("Delta must be positive and finite: " + delta);
+		}
+		//keep the ring of buckets to a reasonable size when a few edges are very heavy
+		delta = Math.max(delta, IndexedSearch.maxEdgeWeight(graph) / MAX_BUCKETS);
+		DeltaStepping search = new DeltaStepping(graph, delta, pool);
+		search.run(source);
+		return search.tree(source);
+	}
+
+	/**
+	 * Chooses delta from a sample of the finite edge weights so that about
+	 * 1 - 1/d of the edges are light, where d is the average degree. Most
+	 * relaxations then happen within a bucket, where they run in parallel,
+	 * while the few heavy edges are relaxed only once per node.
+	 * @param graph The graph to be searched
+	 * @return A bucket width for compute
+	 */
+	public static double chooseDelta(IndexedGraph graph) {
+		int n = graph.nodeCount();
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		double[] sample = new double[SAMPLE_SIZE];
+		int sampled = 0;
+		long edges = 0;
+		//visit an evenly spaced subset of the nodes, so large graphs are not scanned in full
+		int step = Math.max(1, n / SAMPLE_SIZE);
+		for (int node = 0; node < n; node += step) {
+			int count = graph.neighbours(node, targets, weights);
+			edges += count;
+			for (int i = 0; i < count && sampled < SAMPLE_SIZE; i++) {
+				if (weights[i] != Double.POSITIVE_INFINITY) {
+					sample[sampled++] = weights[i];
+				}
+			}
+		}
+		if (sampled == 0) {
+			return 1.0;
+		}
+		Arrays.sort(sample, 0, sampled);
+		double degree = Math.max(1.0, (double) edges / ((n + step - 1) / step));
+		double chosen = sample[(int) ((sampled - 1) * (1.0 - 1.0 / degree))];
+		return chosen > 0 ? chosen : 1.0;
+	}
+
+	private void run(int source) {
+		distance[source] = 0L;
+		IntList frontier = new IntList();
+		IntList settled = new IntList(); //every node expanded while emptying the bucket
+		frontier.add(source);
+		bucket = 0;
+		do {
+			while (frontier.size > 0) {
+				phase(frontier, true);
+				frontier.clear();
+				collect(frontier, settled);
+				if (frontier.size == 0) {
+					//the bucket is empty, so its nodes' distances are final
+					phase(settled, false);
+					settled.clear();
+					collect(frontier, null);
+				}
+			}
+		} while (nextBucket(frontier));
+	}
+
+	/**
+	 * Relaxes the light or heavy edges of every node in a list, splitting it
+	 * into chunks that each record the nodes they improved.
+	 */
+	private void phase(IntList nodes, boolean light) {
+		int count = (nodes.size + GRAIN - 1) / GRAIN;
+		if (chunks.length < count) {
+			Chunk[] grown = Arrays.copyOf(chunks, Math.max(count, chunks.length * 2));
+			for (int i = chunks.length; i < grown.length; i++) {
+				grown[i] = new Chunk(graph.maxDegree());
+			}
+			chunks = grown;
+		}
+		used = count;
+		if (count == 0) {
+			return;
+		}
+		if (count == 1) {
+			relax(nodes, 0, light);
+		}
+		else {
+			pool.invoke(new Phase(nodes, 0, count, light));
+		}
+	}
+
+	/**
+	 * Moves the nodes the last phase improved into the next frontier, for
+	 * those still in the current bucket, or into the buckets ahead.
+	 * @param settled Receives the nodes the phase expanded, or null after a heavy phase
+	 */
+	private void collect(IntList frontier, IntList settled) {
+		for (int c = 0; c < used; c++) {
+			Chunk chunk = chunks[c];
+			frontier.addAll(chunk.current);
+			if (settled != null) {
+				settled.addAll(chunk.expanded);
+			}
+			for (int i = 0; i < chunk.later.size; i++) {
+				int node = chunk.later.values[i];
+				long b = bucketOf((long) LONGS.getOpaque(distance, node));
+				//a node lowered into this bucket by another chunk is already in the frontier
+				if (b > bucket) {
+					buckets[(int) (b % buckets.length)].add(node);
+				}
+			}
+			chunk.clear();
+		}
+		used = 0;
+	}
+
+	/**
+	 * Advances to the next non-empty bucket, moving its nodes into the frontier.
+	 * @return False if every bucket ahead is empty
+	 */
+	private boolean nextBucket(IntList frontier) {
+		for (int i = 1; i <= buckets.length; i++) {
+			IntList next = buckets[(int) ((bucket + i) % buckets.length)];
+			if (next.size > 0) {
+				bucket += i;
+				frontier.addAll(next);
+				next.clear();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Relaxes the edges of one chunk of nodes.
+	 * @param light True to expand nodes still in the current bucket along their
+	 * light edges, false to relax the heavy edges of nodes the bucket settled
+	 */
+	private void relax(IntList nodes, int chunkIndex, boolean light) {
+		Chunk chunk = chunks[chunkIndex];
+		int from = chunkIndex * GRAIN;
+		int to = Math.min(nodes.size, from + GRAIN);
+		for (int i = from; i < to; i++) {
+			int node = nodes.values[i];
+			long bits = (long) LONGS.getOpaque(distance, node);
+			if (light) {
+				if (bucketOf(bits) != bucket || !claim(node, bits)) {
+					continue;
+				}
+				chunk.expanded.add(node);
+			}
+			else if ((long) LONGS.getOpaque(expanded, node) != bits) {
+				//expanded twice in the bucket; only the last, final distance relaxes heavy edges
+				continue;
+			}
+			double nodeDistance = Double.longBitsToDouble(bits);
+			int count = graph.neighbours(node, chunk.targets, chunk.weights);
+			for (int e = 0; e < count; e++) {
+				double weight = chunk.weights[e];
+				if ((weight <= delta) != light || weight == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				int target = chunk.targets[e];
+				double newDist = nodeDistance + weight;
+				if (lower(target, Double.doubleToRawLongBits(newDist))) {
+					if (bucketOf(newDist) == bucket) {
+						chunk.current.add(target);
+					}
+					else {
+						chunk.later.add(target);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks a node as expanded at a distance, unless some chunk already has.
+	 * @return True if the caller should relax the node's edges
+	 */
+	private boolean claim(int node, long bits) {
+		while (true) {
+			long previous = (long) LONGS.getOpaque(expanded, node);
+			if (previous == bits) {
+				return false;
+			}
+			if (LONGS.compareAndSet(expanded, node, previous, bits)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Lowers a node's tentative distance if the new one is smaller.
+	 * @return True if this call lowered it
+	 */
+	private boolean lower(int node, long bits) {
+		long current = (long) LONGS.getOpaque(distance, node);
+		while (bits < current) {
+			if (LONGS.compareAndSet(distance, node, current, bits)) {
+				return true;
+			}
+			current = (long) LONGS.getOpaque(distance, node);
+		}
+		return false;
+	}
+
+	private long bucketOf(long bits) {
+		return bucketOf(Double.longBitsToDouble(bits));
+	}
+
+	private long bucketOf(double value) {
+		return (long) (value / delta);
+	}
+
+	/**
+	 * Builds the result from the final distances, choosing each node's parent
+	 * from its incoming edges in parallel and numbering the tree parents first.
+	 */
+	private ShortestPathTree tree(int source) {
+		int n = graph.nodeCount();
+		double[] result = new double[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = Double.longBitsToDouble(distance[i]);
+		}
+		int[] parent = new int[n];
+		int tasks = (n + GRAIN * 16 - 1) / (GRAIN * 16);
+		pool.invoke(new Parents(result, parent, source, 0, tasks, GRAIN * 16));
+		attachPending(result, parent, source);
+
+		//count each node's children to lay them out, then walk the tree breadth first
+		int[] childStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			if (parent[i] != -1) {
+				childStart[parent[i] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			childStart[i + 1] += childStart[i];
+		}
+		int[] children = new int[childStart[n]];
+		int[] fill = Arrays.copyOf(childStart, n);
+		for (int i = 0; i < n; i++) {
+			if (parent[i] != -1) {
+				children[fill[parent[i]]++] = i;
+			}
+		}
+		int[] order = new int[n];
+		int settled = 0;
+		order[settled++] = source;
+		for (int head = 0; head < settled; head++) {
+			int node = order[head];
+			for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+				order[settled++] = children[c];
+			}
+		}
+		return new ShortestPathTree(graph, source, result, parent, order, settled);
+	}
+
+	/**
+	 * Gives a parent to every node the parallel pass left pending, all of whose
+	 * shortest paths end in zero-weight edges between nodes at the same
+	 * distance. Nodes are attached only to neighbours already in the tree,
+	 * starting from those the pass placed and spreading along the edges of
+	 * each node attached, so no loop can form.
+	 */
+	private void attachPending(double[] result, int[] parent, int source) {
+		IntList attached = new IntList();
+		IndexedGraph reverse = graph.reverse();
+		int[] targets = new int[Math.max(graph.maxDegree(), reverse.maxDegree())];
+		double[] weights = new double[targets.length];
+		for (int node = 0; node < parent.length; node++) {
+			if (parent[node] != PENDING) {
+				continue;
+			}
+			int best = -1;
+			int count = reverse.neighbours(node, targets, weights);
+			for (int e = 0; e < count; e++) {
+				int previous = targets[e];
+				if ((previous == source || parent[previous] >= 0) && result[previous] + weights[e] == result[node]
+						&& (best == -1 || previous < best)) {
+					best = previous;
+				}
+			}
+			if (best != -1) {
+				parent[node] = best;
+				attached.add(node);
+			}
+		}
+		for (int head = 0; head < attached.size; head++) {
+			int node = attached.values[head];
+			int count = graph.neighbours(node, targets, weights);
+			for (int e = 0; e < count; e++) {
+				int next = targets[e];
+				if (parent[next] == PENDING && result[node] + weights[e] == result[next]) {
+					parent[next] = node;
+					attached.add(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Relaxes the chunks of one phase, splitting the range of chunk indices in half.
+	 */
+	private class Phase extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IntList nodes;
+		private final int from;
+		private final int to;
+		private final boolean light;
+
+		Phase(IntList nodes, int from, int to, boolean light) {
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Phase(nodes, from, middle, light), new Phase(nodes, middle, to, light));
+				return;
+			}
+			relax(nodes, from, light);
+		}
+	}
+
+	/**
+	 * Sets the parent of each node in a range of blocks to its smallest
+	 * strictly closer neighbour on a shortest path, or to PENDING if every
+	 * such neighbour is at the node's own distance.
+	 */
+	private class Parents extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] result;
+		private final int[] parent;
+		private final int source;
+		private final int from;
+		private final int to;
+		private final int block;
+
+		Parents(double[] result, int[] parent, int source, int from, int to, int block) {
+			this.result = result;
+			this.parent = parent;
+			this.source = source;
+			this.from = from;
+			this.to = to;
+			this.block = block;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Parents(result, parent, source, from, middle, block),
+						new Parents(result, parent, source, middle, to, block));
+				return;
+			}
+			IndexedGraph reverse = graph.reverse();
+			int[] sources = new int[reverse.maxDegree()];
+			double[] weights = new double[reverse.maxDegree()];
+			int end = Math.min(parent.length, (from + 1) * block);
+			for (int node = from * block; node < end; node++) {
+				parent[node] = -1;
+				if (node == source || result[node] == Double.MAX_VALUE) {
+					continue;
+				}
+				int best = -1;
+				boolean tied = false;
+				int count = reverse.neighbours(node, sources, weights);
+				for (int e = 0; e < count; e++) {
+					int previous = sources[e];
+					if (previous == node || result[previous] == Double.MAX_VALUE
+							|| result[previous] + weights[e] != result[node]) {
+						continue;
+					}
+					//equally distant neighbours may be reached through this node, so they wait for attachPending
+					if (result[previous] < result[node]) {
+						if (best == -1 || previous < best) {
+							best = previous;
+						}
+					}
+					else {
+						tied = true;
+					}
+				}
+				parent[node] = best != -1 ? best : tied ? PENDING : -1;
+			}
+		}
+	}
+
+	/**
+	 * The nodes one chunk of a phase expanded or improved.
+	 */
+	private static final class Chunk {
+		private final IntList current = new IntList(); //improved, still in the current bucket
+		private final IntList later = new IntList(); //improved into a later bucket
+		private final IntList expanded = new IntList();
+		private final int[] targets;
+		private final double[] weights;
+
+		Chunk(int maxDegree) {
+			targets = new int[maxDegree];
+			weights = new double[maxDegree];
+		}
+
+		void clear() {
+			current.clear();
+			later.clear();
+			expanded.clear();
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package Graph;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Level-synchronous parallel breadth-first search after Beamer, Asanovic and
+ * Patterson, for hop counts and reachability on graphs too large for the
+ * single-threaded search.
+ * <p>
+ * Each level is expanded in parallel in one of two directions. Top-down, the
+ * frontier's nodes claim their unvisited neighbours, which is cheap while the
+ * frontier is small. Bottom-up, every unvisited node looks for any neighbour
+ * in the frontier and stops at the first, which is cheaper once the
+ * frontier holds a large share of the graph. The search switches to
+ * bottom-up when the frontier outgrows the unvisited nodes divided by ALPHA,
+ * and back when it shrinks below the graph divided by BETA; Beamer's rule
+ * compares edge counts, which on grids are proportional to node counts.
+ * <p>
+ * Visited nodes and bottom-up frontiers are bitmaps of one bit per node,
+ * and parents a primitive array. The path found has the fewest edges, but
+ * where several do it may not be the one Graph.breadthFirstSearch returns.
+ * Bottom-up steps read the reverse graph, so that each node finds the nodes
+ * with an edge to it.
+ */
+public final class DirectionOptimizingBfs {
+
+	/** Go bottom-up once the frontier exceeds the unvisited nodes divided by this. */
+	private static final int ALPHA = 14;
+
+	/** Go back to top-down once a shrinking frontier is below the node count divided by this. */
+	private static final int BETA = 24;
+
+	/** The nodes each top-down task expands; bottom-up tasks cover this many 64-node words. */
+	private static final int GRAIN = 1024;
+
+	private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final IndexedGraph graph;
+	private final ForkJoinPool pool;
+	private final int n;
+	private final int[] parent; //-1 for the start and unvisited nodes
+	private final int[] depth; //hops from the start, -1 if unvisited; null unless wanted
+	private final long[] visited;
+	private long[] frontierBits;
+	private long[] nextBits;
+	private IntList[] outputs = new IntList[0];
+	private int level;
+
+	private DirectionOptimizingBfs(IndexedGraph graph, ForkJoinPool pool, boolean keepDepth) {
+		this.graph = graph;
+		this.pool = pool;
+		n = graph.nodeCount();
+		parent = new int[n];
+		Arrays.fill(parent, -1);
+		depth = keepDepth ? new int[n] : null;
+		if (depth != null) {
+			Arrays.fill(depth, -1);
+		}
+		visited = new long[words(n)];
+	}
+
+	/**
+	 * Searches on the common ForkJoinPool.
+	 * @see #search(IndexedGraph, int, int, ForkJoinPool)
+	 */
+	public static int[] search(IndexedGraph graph, int start, int target) {
+		return search(graph, start, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds a path with the fewest edges, stopping after the level that reaches the target.
+	 * @param graph The graph to search, which must be safe to read from several threads
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param pool The pool each level is expanded on
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] search(IndexedGraph graph, int start, int target, ForkJoinPool pool) {
+		checkId(start, graph.nodeCount());
+		checkId(target, graph.nodeCount());
+		DirectionOptimizingBfs search = new DirectionOptimizingBfs(graph, pool, false);
+		search.run(start, target);
+		return search.isVisited(target) ? IndexedSearch.buildPath(search.parent, target) : null;
+	}
+
+	/**
+	 * Counts the hops from a source to every node, which also tells which
+	 * nodes the source can reach.
+	 * @param graph The graph to search, which must be safe to read from several threads
+	 * @param source The id of the node from which to count
+	 * @param pool The pool each level is expanded on
+	 * @return The fewest edges on a path to each node, by id, or -1 where there is none
+	 */
+	public static int[] hops(IndexedGraph graph, int source, ForkJoinPool pool) {
+		checkId(source, graph.nodeCount());
+		DirectionOptimizingBfs search = new DirectionOptimizingBfs(graph, pool, true);
+		search.run(source, -1);
+		return search.depth;
+	}
+
+	/**
+	 * Expands level after level until the target is visited or the frontier empties.
+	 * @param target The id to stop at, or -1 to visit every reachable node
+	 */
+	private void run(int start, int target) {
+		visit(start, -1);
+		IntList frontier = new IntList();
+		frontier.add(start);
+		int frontierSize = 1;
+		int previousSize = 0;
+		int unvisited = n - 1;
+		boolean bottomUp = false;
+		while (frontierSize > 0 && (target == -1 || !isVisited(target))) {
+			level++;
+			if (!bottomUp && frontierSize > unvisited / ALPHA) {
+				bottomUp = true;
+				toBits(frontier);
+			}
+			else if (bottomUp && frontierSize < previousSize && frontierSize < n / BETA) {
+				bottomUp = false;
+				toList(frontier);
+			}
+			previousSize = frontierSize;
+			frontierSize = bottomUp ? bottomUpStep() : topDownStep(frontier);
+			unvisited -= frontierSize;
+		}
+	}
+
+	/**
+	 * Expands the frontier list in parallel chunks, each claiming unvisited
+	 * neighbours with a compare-and-set on their visited bit.
+	 * @param frontier The current level, replaced by the next
+	 * @return The size of the next level
+	 */
+	private int topDownStep(IntList frontier) {
+		int chunks = (frontier.size + GRAIN - 1) / GRAIN;
+		if (outputs.length < chunks) {
+			IntList[] grown = Arrays.copyOf(outputs, Math.max(chunks, outputs.length * 2));
+			for (int i = outputs.length; i < grown.length; i++) {
+				grown[i] = new IntList();
+			}
+			outputs = grown;
+		}
+		if (chunks == 1) {
+			topDown(frontier, 0);
+		}
+		else {
+			pool.invoke(new TopDown(frontier, 0, chunks));
+		}
+		frontier.clear();
+		for (int c = 0; c < chunks; c++) {
+			frontier.addAll(outputs[c]);
+			outputs[c].clear();
+		}
+		return frontier.size;
+	}
+
+	private void topDown(IntList frontier, int chunk) {
+		IntList next = outputs[chunk];
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		int end = Math.min(frontier.size, (chunk + 1) * GRAIN);
+		for (int i = chunk * GRAIN; i < end; i++) {
+			int node = frontier.values[i];
+			int count = graph.neighbours(node, targets, weights);
+			for (int e = 0; e < count; e++) {
+				int neighbour = targets[e];
+				if (claim(neighbour)) {
+					setParent(neighbour, node);
+					next.add(neighbour);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Has every unvisited node look for a parent in the frontier bitmap, in
+	 * parallel ranges of whole words so that no two tasks write the same word.
+	 * @return The size of the next level, which replaces frontierBits
+	 */
+	private int bottomUpStep() {
+		if (nextBits == null) {
+			nextBits = new long[visited.length];
+		}
+		int blocks = (visited.length + GRAIN - 1) / GRAIN;
+		int[] found = new int[blocks];
+		if (blocks == 1) {
+			found[0] = bottomUp(0);
+		}
+		else {
+			pool.invoke(new BottomUp(found, 0, blocks));
+		}
+		long[] swap = frontierBits;
+		frontierBits = nextBits;
+		nextBits = swap;
+		int total = 0;
+		for (int count : found) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return The number of nodes in the block given a parent
+	 */
+	private int bottomUp(int block) {
+		IndexedGraph reverse = graph.reverse();
+		int[] sources = new int[reverse.maxDegree()];
+		double[] weights = new double[reverse.maxDegree()];
+		int found = 0;
+		int endWord = Math.min(visited.length, (block + 1) * GRAIN);
+		for (int word = block * GRAIN; word < endWord; word++) {
+			long seen = visited[word];
+			long next = 0L;
+			int base = word << 6;
+			for (long unseen = ~seen; unseen != 0; unseen &= unseen - 1) {
+				int node = base + Long.numberOfTrailingZeros(unseen);
+				if (node >= n) {
+					break;
+				}
+				int count = reverse.neighbours(node, sources, weights);
+				for (int e = 0; e < count; e++) {
+					int source = sources[e];
+					if ((frontierBits[source >>> 6] & (1L << source)) != 0) {
+						setParent(node, source);
+						next |= 1L << node;
+						found++;
+						break;
+					}
+				}
+			}
+			//only this task writes these words
+			visited[word] = seen | next;
+			nextBits[word] = next;
+		}
+		return found;
+	}
+
+	/**
+	 * Sets the visited bit of a node unless another thread got there first.
+	 * @return True if this call visited the node
+	 */
+	private boolean claim(int node) {
+		int word = node >>> 6;
+		long bit = 1L << node;
+		long current = (long) LONGS.getOpaque(visited, word);
+		while ((current & bit) == 0) {
+			if (LONGS.compareAndSet(visited, word, current, current | bit)) {
+				return true;
+			}
+			current = (long) LONGS.getOpaque(visited, word);
+		}
+		return false;
+	}
+
+	private void visit(int node, int from) {
+		visited[node >>> 6] |= 1L << node;
+		setParent(node, from);
+	}
+
+	private void setParent(int node, int from) {
+		parent[node] = from;
+		if (depth != null) {
+			depth[node] = level;
+		}
+	}
+
+	private boolean isVisited(int node) {
+		return (visited[node >>> 6] & (1L << node)) != 0;
+	}
+
+	/**
+	 * Turns the frontier list into frontierBits for a bottom-up step.
+	 */
+	private void toBits(IntList frontier) {
+		if (frontierBits == null) {
+			frontierBits = new long[visited.length];
+		}
+		else {
+			Arrays.fill(frontierBits, 0L);
+		}
+		for (int i = 0; i < frontier.size; i++) {
+			int node = frontier.values[i];
+			frontierBits[node >>> 6] |= 1L << node;
+		}
+	}
+
+	/**
+	 * Turns frontierBits back into a list for a top-down step.
+	 */
+	private void toList(IntList frontier) {
+		frontier.clear();
+		for (int word = 0; word < frontierBits.length; word++) {
+			for (long bits = frontierBits[word]; bits != 0; bits &= bits - 1) {
+				frontier.add((word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	private static void checkId(int id, int n) {
+		if (id < 0 || id >= n) {
+			throw new IllegalArgumentException("No node with id " + id);
+		}
+	}
+
+	/**
+	 * Expands a range of frontier chunks top-down, splitting it in half.
+	 */
+	private class TopDown extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IntList frontier;
+		private final int from;
+		private final int to;
+
+		TopDown(IntList frontier, int from, int to) {
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TopDown(frontier, from, middle), new TopDown(frontier, middle, to));
+				return;
+			}
+			topDown(frontier, from);
+		}
+	}
+
+	/**
+	 * Expands a range of blocks bottom-up, splitting it in half.
+	 */
+	private class BottomUp extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] found;
+		private final int from;
+		private final int to;
+
+		BottomUp(int[] found, int from, int to) {
+			this.found = found;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BottomUp(found, from, middle), new BottomUp(found, middle, to));
+				return;
+			}
+			found[from] = bottomUp(from);
+		}
+	}
+}
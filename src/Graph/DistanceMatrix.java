@@ -0,0 +1,222 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The costs of the shortest paths from each of a set of source nodes to each
+ * of a set of target nodes, and optionally the paths themselves.
+ * <p>
+ * One Dijkstra search is run per source, in parallel on a ForkJoinPool, and
+ * each search stops as soon as every target has been settled rather than
+ * exploring the whole graph.
+ */
+public class DistanceMatrix {
+
+	/** The cost of a pair whose target cannot be reached. */
+	public static final double UNREACHABLE = Double.MAX_VALUE;
+
+	private final IndexedGraph graph;
+	private final int[] sources;
+	private final int[] targets;
+	private final double[] costs; //cost of sources[i] -> targets[j] at [i * targets.length + j]
+	private final int[][] paths; //same layout, or null if paths were not kept
+
+	private DistanceMatrix(IndexedGraph graph, int[] sources, int[] targets, boolean keepPaths) {
+		this.graph = graph;
+		this.sources = sources;
+		this.targets = targets;
+		costs = new double[sources.length * targets.length];
+		paths = keepPaths ? new int[costs.length][] : null;
+	}
+
+	/**
+	 * Computes the matrix on the common ForkJoinPool using binary heaps.
+	 * @param graph The graph to search
+	 * @param sources The ids of the nodes searched from, one row each
+	 * @param targets The ids of the nodes searched to, one column each
+	 * @param keepPaths True to keep the path of every pair as well as its cost
+	 * @return The costs of every pair
+	 */
+	public static DistanceMatrix compute(IndexedGraph graph, int[] sources, int[] targets, boolean keepPaths) {
+		return compute(graph, sources, targets, keepPaths, QueueType.BINARY_HEAP, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param graph The graph to search, which must be safe to read from several threads
+	 * @param sources The ids of the nodes searched from, one row each
+	 * @param targets The ids of the nodes searched to, one column each
+	 * @param keepPaths True to keep the path of every pair as well as its cost
+	 * @param queueType The priority queue each search uses
+	 * @param pool The pool the searches run on
+	 * @return The costs of every pair
+	 */
+	public static DistanceMatrix compute(IndexedGraph graph, int[] sources, int[] targets, boolean keepPaths,
+			QueueType queueType, ForkJoinPool pool) {
+		int n = graph.nodeCount();
+		for (int id : sources) {
+			checkId(id, n);
+		}
+		for (int id : targets) {
+			checkId(id, n);
+		}
+		DistanceMatrix matrix = new DistanceMatrix(graph, sources.clone(), targets.clone(), keepPaths);
+		if (sources.length > 0 && targets.length > 0) {
+			//split into a few tasks per worker so each reuses its arrays across several sources
+			int grain = Math.max(1, sources.length / (pool.getParallelism() * 4));
+			pool.invoke(matrix.new Task(0, sources.length, grain, queueType));
+		}
+		return matrix;
+	}
+
+	public int getSourceCount() {
+		return sources.length;
+	}
+
+	public int getTargetCount() {
+		return targets.length;
+	}
+
+	public int getSource(int row) {
+		return sources[row];
+	}
+
+	public int getTarget(int column) {
+		return targets[column];
+	}
+
+	/**
+	 * @param row The index of a source
+	 * @param column The index of a target
+	 * @return The cost of the shortest path between them, or UNREACHABLE
+	 */
+	public double getCost(int row, int column) {
+		return costs[row * targets.length + column];
+	}
+
+	/**
+	 * @return A copy of the costs, row by row
+	 */
+	public double[] getCosts() {
+		return costs.clone();
+	}
+
+	/**
+	 * @param row The index of a source
+	 * @param column The index of a target
+	 * @return The ids of the shortest path between them, or null if it is unreachable
+	 */
+	public int[] getPath(int row, int column) {
+		if (paths == null) {
+			throw new IllegalStateException("Paths were not kept");
+		}
+		return paths[row * targets.length + column];
+	}
+
+	/**
+	 * @param row The index of a source
+	 * @param column The index of a target
+	 * @return The nodes of the shortest path between them, or null if it is unreachable
+	 */
+	public Node[] getNodePath(int row, int column) {
+		if (!(graph instanceof CsrGraph)) {
+			throw new IllegalStateException("The graph has no Node objects");
+		}
+		return ((CsrGraph) graph).toNodes(getPath(row, column));
+	}
+
+	private static void checkId(int id, int n) {
+		if (id < 0 || id >= n) {
+			throw new IllegalArgumentException("No node with id " + id);
+		}
+	}
+
+	/**
+	 * Fills the rows of a range of sources, splitting it while it is larger than the grain.
+	 */
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final QueueType queueType;
+
+		Task(int from, int to, int grain, QueueType queueType) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.queueType = queueType;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Task(from, middle, grain, queueType), new Task(middle, to, grain, queueType));
+				return;
+			}
+			int n = graph.nodeCount();
+			double[] distance = new double[n];
+			int[] parent = new int[n];
+			boolean[] isTarget = new boolean[n];
+			int[] neighbours = new int[graph.maxDegree()];
+			double[] weights = new double[graph.maxDegree()];
+			IndexedPriorityQueue queue = queueType.create(n,
+					queueType == QueueType.BUCKET_QUEUE ? IndexedSearch.maxEdgeWeight(graph) : 0.0);
+			for (int row = from; row < to; row++) {
+				search(row, distance, parent, isTarget, neighbours, weights, queue);
+			}
+		}
+
+		private void search(int row, double[] distance, int[] parent, boolean[] isTarget, int[] neighbours,
+				double[] weights, IndexedPriorityQueue queue) {
+			Arrays.fill(distance, UNREACHABLE);
+			int remaining = 0;
+			for (int target : targets) {
+				if (!isTarget[target]) {
+					isTarget[target] = true;
+					remaining++;
+				}
+			}
+			int start = sources[row];
+			distance[start] = 0.0;
+			parent[start] = -1;
+			queue.insert(start, 0.0);
+			while (!queue.isEmpty()) {
+				int current = queue.extractMin();
+				if (isTarget[current]) {
+					isTarget[current] = false;
+					if (--remaining == 0) {
+						break;
+					}
+				}
+				int count = graph.neighbours(current, neighbours, weights);
+				for (int i = 0; i < count; i++) {
+					int next = neighbours[i];
+					double newDist = distance[current] + weights[i];
+					if (newDist < distance[next]) {
+						distance[next] = newDist;
+						parent[next] = current;
+						queue.insertOrDecrease(next, newDist);
+					}
+				}
+			}
+			queue.clear();
+			//unreached targets are still marked
+			for (int target : targets) {
+				isTarget[target] = false;
+			}
+
+			int offset = row * targets.length;
+			for (int column = 0; column < targets.length; column++) {
+				int target = targets[column];
+				costs[offset + column] = distance[target];
+				if (paths != null && distance[target] != UNREACHABLE) {
+					paths[offset + column] = IndexedSearch.buildPath(parent, target);
+				}
+			}
+		}
+	}
+}
@@ -12,6 +12,12 @@ import java.util.Map;
  * @version 5.1
  */
 public class Edge implements Serializable {
+	/**
+	 * The cost per unit of distance between nodes of equal elevation, so
+	 * no edge costs less than FLAT_COST times the distance it covers.
+	 */
+	public static final double FLAT_COST = 0.01;
+
 	private Node fromNode; //source node
 	private Node toNode; //destination node
 	private double weight; //weight
@@ -68,11 +74,50 @@ public class Edge implements Serializable {
 		double e2 = toNode.getElevation();
 		
 		//weight of travel along the edge by w(e) = d(p1, p2) * (0.01+|e2-e1|)
-		weight = distance * (0.01 + (Math.abs(e2 - e1)));
+		weight = weight(distance, e1, e2);
 	
 		
 		
 	
+	}
+
+	/**
+	 * The weight function shared by every graph representation.
+	 * @param distance The Euclidean distance between the two nodes
+	 * @param fromElevation The elevation of the "from" node
+	 * @param toElevation The elevation of the "to" node
+	 * @return d(p1, p2) * (0.01+|e2-e1|)
+	 */
+	public static double weight(double distance, double fromElevation, double toElevation) {
+		return distance * (FLAT_COST + (Math.abs(toElevation - fromElevation)));
+	}
+
+	/**
+	 * Recalculates the weight from the current elevations and positions of
+	 * the two nodes, which the weight does not otherwise follow.
+	 */
+	public void updateWeight() {
+		calculateWeight();
+	}
+
+	/**
+	 * Recalculates the weight under another cost model, which is given the
+	 * ids of the two nodes, so both must have been given one by
+	 * Graph.connectNodes or GraphLoader. To reweigh a whole graph,
+	 * Graph.applyCostModel is faster.
+	 * @param model The rule to weigh the edge by
+	 * @throws IllegalStateException If either node has no id
+	 */
+	public void updateWeight(CostModel model) {
+		if (fromNode.getId() == -1 || toNode.getId() == -1) {
+			throw new IllegalStateException("Both nodes need ids to be weighed by a cost model; connect them first");
+		}
+		weight = model.weight(fromNode.getId(), toNode.getId(), fromNode.getPosition().distance(toNode.getPosition()),
+				fromNode.getElevation(), toNode.getElevation());
+	}
+
+	void setWeight(double weight) {
+		this.weight = weight;
 	}
 
 	public double getWeight() {
@@ -1,43 +1,127 @@
 package Graph;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
-
-import GUI.GraphLoader;
-import javafx.scene.control.skin.TextInputControlSkin.Direction;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represents a non-directional graph where each vertex
  * is a Node object. Connections between nodes are based
  * on the cartesian coordinate system.
+ * <p>
+ * The bidirectional, parallel and one-to-many searches run on a compact
+ * copy of the nodes, which the graph keeps up to date by listening to them.
+ * The nodes hold the graph only weakly, so a graph that is dropped does not
+ * keep its copy alive; call close to stop listening straight away, as the
+ * listener is otherwise only removed when each node next changes.
  * @author James Baumeister on 30/4/17
  */
 public class Graph {
 	
-	
+	private static volatile Node[] sharedNodes; //searched when connectNodes has not been called
+
+	private QueueType queueType;
+	private volatile SearchListener searchListener;
+	private Node[] nodes; //the nodes last passed to connectNodes
+	private int rows; //the grid nodes was connected as
+	private int cols;
+	private Node[] indexedNodes; //the array nodeIds was built from
+	private Map<Node, Integer> nodeIds;
+	private CsrGraph snapshot; //compact copy for the indexed searches, built on first use
+	private double maxWeight = Double.NaN; //the largest finite edge weight, NaN until needed
+	private Node[] trackedNodes; //the array the cached values describe, whose nodes are listened to
+	private final NodeListener changeListener = new ChangeListener(this);
+
+	public Graph() {
+		this(QueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * @param queueType The priority queue used by dijkstrasSearch
+	 */
+	public Graph(QueueType queueType) {
+		this.queueType = queueType;
+	}
+
+	/**
+	 * Sets the nodes searched by every Graph whose connectNodes has not been
+	 * called, as GraphLoader does for the map it loads. Keeping them here
+	 * lets the Graph package run without the GUI.
+	 * @param nodes The connected nodes of the shared graph
+	 */
+	public static void setSharedNodes(Node[] nodes) {
+		sharedNodes = nodes;
+	}
+
+	/**
+	 * @return The nodes set by setSharedNodes, or null if there are none
+	 */
+	public static Node[] getSharedNodes() {
+		return sharedNodes;
+	}
+
+	/**
+	 * Reports the counters of every search to a listener. Without one, searches
+	 * only count what they do while SearchEvent is being recorded.
+	 * @param listener The listener, or null to stop reporting
+	 */
+	public void setSearchListener(SearchListener listener) {
+		searchListener = listener;
+	}
+
+	public SearchListener getSearchListener() {
+		return searchListener;
+	}
+
+	public QueueType getQueueType() {
+		return queueType;
+	}
+
+	public void setQueueType(QueueType queueType) {
+		this.queueType = queueType;
+	}
 
 	/**
 	 * Connects all nodes, building their E, W, S, N, NE, SE, NW, SW edges,
 	 * in that order. The nodes should form a 10x10 square grid, and the array
 	 * is such that every i'th node % 10 = 9 is a right edge.
 	 * See the assignment specification for more information.
+	 * Any other square number of nodes is connected as a square grid of that size.
 	 * @param nodes An array of Node objects to be connected
 	 * @return An array of connected Node objects
 	 */
 	public void connectNodes(Node[] nodes) {
+		int side = (int) Math.round(Math.sqrt(nodes.length));
+		if (side * side != nodes.length) {
+			throw new IllegalArgumentException(nodes.length + " nodes do not form a square grid");
+		}
+		connectNodes(nodes, side, side);
+	}
+
+	/**
+	 * Connects nodes laid out as a rows x cols grid in row-major order,
+	 * building their E, W, S, N, NE, SE, NW, SW edges, in that order.
+	 * For grids too large to hold an Edge per connection, see GridGraph.
+	 * @param nodes An array of Node objects to be connected
+	 * @param rows The number of rows in the grid
+	 * @param cols The number of columns in the grid
+	 */
+	public void connectNodes(Node[] nodes, int rows, int cols) {
 		// TODO
-		int rows = 10;
-        int cols = 10;
+		if (nodes.length != rows * cols) {
+			throw new IllegalArgumentException("Expected " + rows * cols + " nodes, got " + nodes.length);
+		}
+		this.nodes = nodes;
+		this.rows = rows;
+		this.cols = cols;
+		invalidateCaches();
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].setId(i);
+		}
         //iterate each row and column in grid
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < cols; col++) {
@@ -104,13 +188,85 @@ public class Graph {
 
 
 	/**
-	 * Searches for an edge from the source node to the destination.
+	 * Reweighs every edge between the given nodes under a cost model, in one
+	 * pass over primitive arrays rather than edge by edge. Edges leaving the
+	 * array keep their weight. Edge.updateWeight() reverts an edge to the
+	 * standard model.
+	 * @param nodes The nodes whose edges to reweigh; node i is given to the model as id i
+	 * @param model The rule to weigh the edges by
+	 */
+	public void applyCostModel(Node[] nodes, CostModel model) {
+		Map<Node, Integer> ids = indexNodes(nodes);
+		List<Edge> edges = new ArrayList<>();
+		for (Node node : nodes) {
+			for (Edge edge : node.getEdges()) {
+				if (ids.containsKey(edge.getToNode())) {
+					edges.add(edge);
+				}
+			}
+		}
+		int count = edges.size();
+		int[] sources = new int[count];
+		int[] targets = new int[count];
+		double[] distances = new double[count];
+		for (int e = 0; e < count; e++) {
+			Edge edge = edges.get(e);
+			sources[e] = ids.get(edge.getFromNode());
+			targets[e] = ids.get(edge.getToNode());
+			distances[e] = edge.getFromNode().getPosition().distance(edge.getToNode().getPosition());
+		}
+		double[] elevations = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			elevations[i] = nodes[i].getElevation();
+		}
+		double[] weights = new double[count];
+		model.weights(sources, targets, distances, elevations, weights);
+		for (int e = 0; e < count; e++) {
+			edges.get(e).setWeight(weights[e]);
+		}
+		invalidateCaches();
+	}
+
+	/**
+	 * Tells the graph that edges or weights were changed in a way the nodes
+	 * do not report, such as through the list returned by Node.getEdges or
+	 * Edge.updateWeight, so that the compact copy the bidirectional, parallel
+	 * and one-to-many searches run on, and the largest edge weight that sizes
+	 * bucket queues, are recomputed when next needed.
+	 * connectNodes, applyCostModel and the nodes' setters do this themselves.
+	 */
+	public synchronized void invalidateCaches() {
+		snapshot = null;
+		maxWeight = Double.NaN;
+	}
+
+	/**
+	 * Stops listening to the nodes and drops the cached values. The graph
+	 * may still be searched, which listens to the nodes again if it needs to.
+	 */
+	public synchronized void close() {
+		if (trackedNodes != null) {
+			for (Node node : trackedNodes) {
+				node.removeListener(changeListener);
+			}
+			trackedNodes = null;
+		}
+		invalidateCaches();
+	}
+
+	/**
+	 * Searches for an edge from the source node to the destination. Between
+	 * grid neighbours of the connected nodes the edge is found from its
+	 * direction without a scan.
 	 * @param source The source, or first, node
 	 * @param destination The destination, or second, node
 	 * @return The edge between the nodes, or null if not found
 	 */
 	public Edge getEdge(Node source, Node destination) {
-		
+		Edge gridEdge = gridEdge(source, destination);
+		if (gridEdge != null) {
+			return gridEdge;
+		}
 		// TODO
 		//assign list of edges retrieved from source Node
 		ArrayList<Edge> edges = source.getEdges(); 
@@ -127,6 +283,44 @@ public class Graph {
 		return null;
 	}
 
+	/**
+	 * Looks up the edge between grid neighbours by where connectNodes put
+	 * it: edges are added in E, W, S, N, NE, SE, NW, SW order, skipping
+	 * those off the grid, so the edge's index is the number of earlier
+	 * directions that stay on the grid.
+	 * @return The edge, or null if the nodes are not neighbours on the grid
+	 * or the source's edges have been changed since they were connected
+	 */
+	private Edge gridEdge(Node source, Node destination) {
+		Node[] grid = nodes;
+		int from = source.getId();
+		int to = destination.getId();
+		if (grid == null || from < 0 || from >= grid.length || to < 0 || to >= grid.length
+				|| grid[from] != source || grid[to] != destination) {
+			return null;
+		}
+		int row = from / cols;
+		int col = from % cols;
+		int rowStep = to / cols - row;
+		int colStep = to % cols - col;
+		int index = 0;
+		for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+			if (GridGraph.ROW_STEP[direction] == rowStep && GridGraph.COL_STEP[direction] == colStep) {
+				ArrayList<Edge> edges = source.getEdges();
+				if (index < edges.size() && edges.get(index).getToNode() == destination) {
+					return edges.get(index);
+				}
+				return null;
+			}
+			int r = row + GridGraph.ROW_STEP[direction];
+			int c = col + GridGraph.COL_STEP[direction];
+			if (r >= 0 && r < rows && c >= 0 && c < cols) {
+				index++;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * From an array of Node objects, this calculates the total cost of
 	 * travelling (i.e. sum of weights) from the first to the last nodes.
@@ -174,46 +368,114 @@ public class Graph {
 	 */
 	public Node[] breadthFirstSearch(Node start, Node target) {
 		// TODO
-		Queue<Node> queue = new LinkedList<>();
-		Map<Node, Node> parentMap = new HashMap<>();
-		Set<Node> visited = new HashSet<>();
+		PathResult path = breadthFirstPath(start, target);
+		return path != null ? path.getNodes() : null;
+	}
 
-		queue.add(start);
-		visited.add(start);
-		
-		while (!queue.isEmpty()) {
-	        Node currentNode = queue.poll();
-	        /*
-	         * If the target node is reached, 
-	         * construct the path using the parent references and 
-	         * return
-	         */
-	        if (currentNode.equals(target)) {
-	            
-	            List<Node> path = new ArrayList<>();
-	            Node current = target;
-
-	            while (current != null) {
-	                path.add(current);
-	                current = parentMap.get(current);
-	            }
-
-	            Collections.reverse(path);
-	            return path.toArray(new Node[0]);
-	        }
-	        for (Edge edge : currentNode.getEdges()) {
-	            Node neighbor = edge.getToNode();
-	         // Enqueue and mark unvisited neighbors noting their parents.
-	            if (!visited.contains(neighbor)) {
-	                queue.add(neighbor);
-	                visited.add(neighbor);
-	                parentMap.put(neighbor, currentNode);
-	            }
-	        }
+	/**
+	 * Searches by the algorithm given and returns the path found with its
+	 * edges and cost, which the search already knows, so they need not be
+	 * looked up again with getEdge or calculateTotalWeight.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @param algorithm The search to run
+	 * @return The path from start to target, or null if target is unreachable
+	 */
+	public PathResult findPath(Node start, Node target, SearchAlgorithm algorithm) {
+		switch (algorithm) {
+			case BREADTH_FIRST:
+				return breadthFirstPath(start, target);
+			case DEPTH_FIRST:
+				return depthFirstPath(start, target);
+			case DIJKSTRA:
+				return weightedSearch(start, target, false);
+			case A_STAR:
+				return weightedSearch(start, target, true);
+			case BIDIRECTIONAL:
+				return toResult(bidirectionalSearch(start, target, false));
+			case BIDIRECTIONAL_A_STAR:
+				return toResult(bidirectionalSearch(start, target, true));
+			default:
+				throw new IllegalArgumentException("Unknown algorithm " + algorithm);
 		}
-		return null;
 	}
 
+	private PathResult breadthFirstPath(Node start, Node target) {
+		SearchEvent event = new SearchEvent();
+		SearchStats stats = begin(event);
+		Node[] graphNodes = nodes != null ? nodes : sharedNodes;
+		int startId = requireId(graphNodes, start);
+		int targetId = idOf(graphNodes, target);
+		SearchContext context = SearchContext.acquire(graphNodes.length, 0);
+		try {
+			int[] queue = context.queue; //every node is enqueued at most once
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = startId;
+			context.reach(startId, -1);
+			if (stats != null) {
+				stats.pushed(1);
+			}
+
+			while (head < tail) {
+				int current = queue[head++];
+				if (stats != null) {
+					stats.nodeSettled();
+				}
+				/*
+				 * If the target node is reached,
+				 * construct the path using the parent references and
+				 * return
+				 */
+				if (current == targetId) {
+					return finish(event, stats, SearchAlgorithm.BREADTH_FIRST, start, target, startId, targetId,
+							context.result(graphNodes, targetId));
+				}
+				ArrayList<Edge> edges = graphNodes[current].getEdges();
+				if (stats != null) {
+					stats.edgesRelaxed(edges.size());
+				}
+				for (int e = 0; e < edges.size(); e++) {
+					int neighbor = idOf(graphNodes, edges.get(e).getToNode());
+					// Enqueue and mark unvisited neighbors noting their parents.
+					if (neighbor != -1 && !context.isReached(neighbor)) {
+						queue[tail++] = neighbor;
+						context.reach(neighbor, current);
+						context.parentEdge[neighbor] = e;
+						if (stats != null) {
+							stats.pushed(tail - head);
+						}
+					}
+				}
+			}
+		}
+		finally {
+			context.release();
+		}
+		return finish(event, stats, SearchAlgorithm.BREADTH_FIRST, start, target, startId, targetId, null);
+	}
+
+
+	/**
+	 * Finds a path with the fewest edges, as breadthFirstSearch does, but
+	 * expands each level in parallel on the common ForkJoinPool and switches
+	 * to scanning bottom-up from unvisited nodes while the frontier is large.
+	 * Worth it on maps of millions of nodes rather than the assignment map.
+	 * The compact copy of the graph searched, and its reverse, are built by
+	 * the first search and kept until the graph changes.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @return The nodes on a path from start to target, in that order, or null if there is none
+	 */
+	public Node[] parallelBreadthFirstSearch(Node start, Node target) {
+		CsrGraph csr = snapshot();
+		int startId = csr.getId(start);
+		if (startId == -1) {
+			throw new IllegalArgumentException("Start node is not part of the graph");
+		}
+		int targetId = csr.getId(target);
+		return targetId == -1 ? null : csr.toNodes(DirectionOptimizingBfs.search(csr, startId, targetId));
+	}
 
 	/**
 	 * Performs a depth-first search of the graph and returns the first-found
@@ -224,49 +486,81 @@ public class Graph {
 	 */
 	public Node[] depthFirstSearch(Node start, Node target) {
 		// TODO
-		Set<Node> visited = new HashSet<>();
-	    Deque<Node> stack = new LinkedList<>();
-	    stack.push(start);
-	    
-	    /*
-	     * check the top node of the stack during traversal,
-	     * if the target node is found, the path from start to target is constructed from the stack,
-	     * reversed to get the correct order & returned.
-	     */
-	    while (!stack.isEmpty()) {
-	        Node current = stack.peek();
-
-	        if (current.equals(target)) {
-	            // Create a list to hold the nodes in the correct order
-	            List<Node> pathList = new ArrayList<>(stack);
-	            Collections.reverse(pathList);
-	            return pathList.toArray(new Node[0]);
-	        }
-	        //add current node to the set of visited nodes
-	        visited.add(current);
-
-	        boolean unvisitedNode = false;
-	        /*
-	         * Iterate through the current node's edges to find the next unvisited node.
-	         * if found, push it onto the stack and mark as visited.
-	         */
-	        for (Edge edge : current.getEdges()) {
-	            Node neighbor = edge.getToNode();
-	            if (!visited.contains(neighbor)) {
-	                stack.push(neighbor);
-	                visited.add(neighbor);
-	                unvisitedNode = true;
-	                break;
-	            }
-	        }
-	        //pop it from the stack to backtrack if the current node has no unvisited node
-	        if (!unvisitedNode) {
-	            stack.pop();
-	        }
-	    }
+		PathResult path = depthFirstPath(start, target);
+		return path != null ? path.getNodes() : null;
+	}
+
+	private PathResult depthFirstPath(Node start, Node target) {
+		SearchEvent event = new SearchEvent();
+		SearchStats stats = begin(event);
+		Node[] graphNodes = nodes != null ? nodes : sharedNodes;
+		int targetId = idOf(graphNodes, target);
+		int startId = requireId(graphNodes, start);
+		SearchContext context = SearchContext.acquire(graphNodes.length, 0);
+		try {
+			int[] stack = context.queue; //the path from start to the top of the stack
+			int[] nextEdge = context.nextEdge; //where each stacked node resumes scanning its edges
+			int top = 0;
+			stack[top] = startId;
+			nextEdge[top++] = 0;
+			context.reach(startId, -1);
+			if (stats != null) {
+				stats.pushed(1);
+				stats.nodeSettled();
+			}
+
+			/*
+			 * check the top node of the stack during traversal,
+			 * if the target node is found, the path from start to target is on the stack,
+			 * from the bottom up.
+			 */
+			while (top > 0) {
+				int current = stack[top - 1];
+
+				//each stacked node's parent is the node below it, so the parents trace the stack
+				if (current == targetId) {
+					return finish(event, stats, SearchAlgorithm.DEPTH_FIRST, start, target, startId, targetId,
+							context.result(graphNodes, targetId));
+				}
+
+				boolean unvisitedNode = false;
+				/*
+				 * Continue through the current node's edges to find the next unvisited node.
+				 * Edges already passed lead to visited nodes, so need not be checked again.
+				 * if found, push it onto the stack and mark as visited.
+				 */
+				ArrayList<Edge> edges = graphNodes[current].getEdges();
+				while (nextEdge[top - 1] < edges.size()) {
+					int e = nextEdge[top - 1]++;
+					int neighbor = idOf(graphNodes, edges.get(e).getToNode());
+					if (stats != null) {
+						stats.edgesRelaxed(1);
+					}
+					if (neighbor != -1 && !context.isReached(neighbor)) {
+						stack[top] = neighbor;
+						nextEdge[top++] = 0;
+						context.reach(neighbor, current);
+						context.parentEdge[neighbor] = e;
+						unvisitedNode = true;
+						if (stats != null) {
+							stats.pushed(top);
+							stats.nodeSettled();
+						}
+						break;
+					}
+				}
+				//pop it from the stack to backtrack if the current node has no unvisited node
+				if (!unvisitedNode) {
+					top--;
+				}
+			}
+		}
+		finally {
+			context.release();
+		}
 
 		//else null if no path found
-	    return null;
+	    return finish(event, stats, SearchAlgorithm.DEPTH_FIRST, start, target, startId, targetId, null);
 	    
 	}
 
@@ -281,63 +575,417 @@ public class Graph {
 	 */
 	public Node[] dijkstrasSearch(Node start, Node target) {
 		// TODO
-		
-		Map<Node, Double> distance = new HashMap<>();
-	    Map<Node, Node> previousNodes = new HashMap<>();
-	    Set<Node> visitedNodes = new HashSet<>();
-
-	    // Convert the array of nodes from GraphLoader into an ordered list
-	    List<Node> orderedNodes = Arrays.asList(GraphLoader.getNodes()); 
-
-	    //Initialized the starting node distance to 0.
-	    distance.put(start, 0.0);
-	    /*
-	     * Start from the initial node, 
-	     * traverse each adjacent node to determine the shortest distance to the target node.
-	     */
-	    Node currentNode = start;
-
-	    while (currentNode != null) {
-	        if (currentNode.equals(target)) {
-	            break;
-	        }
-	        //add the current node in set visitedNodes
-	        visitedNodes.add(currentNode);
-
-	        // Loop through edges in the order of connected Nodes
-	        for (Edge edge : currentNode.getEdges()) {
-	            Node adjacentNode = edge.getToNode();
-	            if (!visitedNodes.contains(adjacentNode)) {
-	                double newDist = distance.get(currentNode) + edge.getWeight();
-	                // Update the shortest distance and preceding node if a shorter path is found
-	                if (newDist < distance.getOrDefault(adjacentNode, Double.MAX_VALUE)) {
-	                    distance.put(adjacentNode, newDist);
-	                    previousNodes.put(adjacentNode, currentNode);
-	                }
-	            }
-	        }
-	        
-	        // Move to the node with the smallest distance with nodes order of connected Nodes
-	        currentNode = null;
-	        double smallestDistance = Double.MAX_VALUE;
-	        for (Node potentialNode : orderedNodes) {
-	            if (!visitedNodes.contains(potentialNode) && distance.getOrDefault(potentialNode, Double.MAX_VALUE) < smallestDistance) {
-	                smallestDistance = distance.get(potentialNode);
-	                currentNode = potentialNode;
-	            }
-	        }
-	    }
-	    /*
-	     * trace back the shortest path from the target node to the starting node,
-	     * reverse it and
-	     * return as an array.
-	     */
-	    List<Node> path = new ArrayList<>();
-	    for (Node at = target; at != null; at = previousNodes.get(at)) {
-	        path.add(at);
-	    }
-	    Collections.reverse(path);
-	    return path.toArray(new Node[0]);
-        
-    }
+		PathResult path = weightedSearch(start, target, false);
+		return path != null ? path.getNodes() : new Node[] {target};
+	}
+
+	/**
+	 * Performs an A* search of the graph, which returns a least-costly path like
+	 * dijkstrasSearch but expands nodes towards the target first. Since every edge
+	 * costs at least 0.01 times the distance it covers, 0.01 times the straight-line
+	 * distance to the target never overestimates the remaining cost.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @return An array of Node objects representing the path from start to target, in that order
+	 */
+	public Node[] aStarSearch(Node start, Node target) {
+		PathResult path = weightedSearch(start, target, true);
+		return path != null ? path.getNodes() : new Node[] {target};
+	}
+
+	/**
+	 * Performs a bidirectional search using Dijkstra's algorithm, searching
+	 * forwards from start and backwards from target over reversed edges until
+	 * the two meet. Edges that exist in one direction only are honoured.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @return An array of Node objects representing the path from start to target,
+	 * in that order, or null if target is unreachable
+	 */
+	public Node[] bidirectionalSearch(Node start, Node target) {
+		return bidirectionalSearch(start, target, false);
+	}
+
+	/**
+	 * Performs a bidirectional A* search, as bidirectionalSearch but with both
+	 * directions guided by the straight-line distance heuristic of aStarSearch.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @return An array of Node objects representing the path from start to target,
+	 * in that order, or null if target is unreachable
+	 */
+	public Node[] bidirectionalAStarSearch(Node start, Node target) {
+		return bidirectionalSearch(start, target, true);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from source to every node it can reach, so that
+	 * the paths to many destinations can be read from one search.
+	 * @param source The node at the root of the tree
+	 * @return The distance to and path to every node from source
+	 */
+	public ShortestPathTree shortestPathTree(Node source) {
+		CsrGraph csr = snapshot();
+		int sourceId = csr.getId(source);
+		if (sourceId == -1) {
+			throw new IllegalArgumentException("Source must be part of the graph");
+		}
+		return IndexedSearch.shortestPathTree(csr, sourceId, queueType);
+	}
+
+	/**
+	 * Computes the same distances as shortestPathTree by parallel
+	 * delta-stepping on the common ForkJoinPool, for graphs large enough
+	 * that one-to-all Dijkstra leaves cores idle.
+	 * @param source The node at the root of the tree
+	 * @return The distance to and path to every node from source
+	 */
+	public ShortestPathTree parallelShortestPathTree(Node source) {
+		CsrGraph csr = snapshot();
+		int sourceId = csr.getId(source);
+		if (sourceId == -1) {
+			throw new IllegalArgumentException("Source must be part of the graph");
+		}
+		return DeltaStepping.compute(csr, sourceId);
+	}
+
+	/**
+	 * Computes the costs of the shortest paths from every source to every
+	 * target, running one search per source in parallel. This replaces calling
+	 * dijkstrasSearch and calculateTotalWeight once per pair.
+	 * @param sources The nodes searched from, one row each
+	 * @param targets The nodes searched to, one column each
+	 * @param keepPaths True to keep the path of every pair as well as its cost
+	 * @return The matrix of costs, with DistanceMatrix.UNREACHABLE for unreachable pairs
+	 */
+	public DistanceMatrix distanceMatrix(Node[] sources, Node[] targets, boolean keepPaths) {
+		CsrGraph csr = snapshot();
+		return DistanceMatrix.compute(csr, toIds(csr, sources), toIds(csr, targets), keepPaths,
+				queueType, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Runs the bidirectional search over the graph's compact snapshot, whose
+	 * reverse is needed for the backward search. Both are kept between
+	 * queries until the graph changes.
+	 */
+	private Node[] bidirectionalSearch(Node start, Node target, boolean useHeuristic) {
+		CsrGraph csr = snapshot();
+		int startId = csr.getId(start);
+		int targetId = csr.getId(target);
+		if (startId == -1 || targetId == -1) {
+			throw new IllegalArgumentException("Start and target must be part of the graph");
+		}
+		//the indexed search records its own event
+		SearchListener listener = searchListener;
+		SearchStats stats = listener != null ? new SearchStats() : null;
+		Node[] path = csr.toNodes(IndexedSearch.bidirectionalSearch(csr, startId, targetId,
+				useHeuristic ? csr.euclideanHeuristic() : null, queueType, stats));
+		if (listener != null) {
+			listener.searchFinished(useHeuristic ? SearchAlgorithm.BIDIRECTIONAL_A_STAR : SearchAlgorithm.BIDIRECTIONAL,
+					start, target, stats);
+		}
+		return path;
+	}
+
+	/**
+	 * Searches for the least-costly path, ordering nodes by their distance from
+	 * start plus, for A*, the estimated remaining cost.
+	 * @param start The node from which to start searching
+	 * @param target The target node to which a path is built
+	 * @param useHeuristic True for A*, false for Dijkstra's algorithm
+	 * @return The path from start to target, or null if it is unreachable
+	 */
+	private PathResult weightedSearch(Node start, Node target, boolean useHeuristic) {
+		SearchEvent event = new SearchEvent();
+		SearchStats stats = begin(event);
+		Node[] graphNodes = nodes != null ? nodes : sharedNodes;
+		int startId = requireId(graphNodes, start);
+		int targetId = idOf(graphNodes, target);
+
+		SearchContext context = SearchContext.acquire(graphNodes.length, 0);
+		PathResult result;
+		double targetDistance;
+		try {
+			/*
+			 * The queue breaks ties between equal priorities by node index, so
+			 * Dijkstra settles nodes in the same order as a scan of the node array.
+			 * A consistent heuristic can raise a priority by up to twice an edge weight.
+			 */
+			IndexedPriorityQueue queue = context.queue(queueType, queueType == QueueType.BUCKET_QUEUE
+					? maxEdgeWeight() * (useHeuristic ? 2 : 1) : 0.0);
+			context.reach(startId, 0.0, -1);
+			queue.insert(startId, estimate(graphNodes, startId, target, context, useHeuristic));
+			if (stats != null) {
+				stats.pushed(1);
+			}
+
+			while (!queue.isEmpty()) {
+				int current = queue.extractMin();
+				if (stats != null) {
+					stats.nodeSettled();
+				}
+				if (current == targetId) {
+					break;
+				}
+				ArrayList<Edge> edges = graphNodes[current].getEdges();
+				if (stats != null) {
+					stats.edgesRelaxed(edges.size());
+				}
+
+				// Loop through edges in the order of connected Nodes
+				double currentDistance = context.distance(current);
+				for (int e = 0; e < edges.size(); e++) {
+					Edge edge = edges.get(e);
+					int adjacent = idOf(graphNodes, edge.getToNode());
+					if (adjacent == -1) {
+						continue;
+					}
+					double newDist = currentDistance + edge.getWeight();
+					/*
+					 * Update the shortest distance and preceding node if a shorter path is found.
+					 * Only rounding in the heuristic can improve a settled node, which is then requeued.
+					 */
+					if (newDist < context.distance(adjacent)) {
+						context.reach(adjacent, newDist, current);
+						context.parentEdge[adjacent] = e;
+						if (stats != null) {
+							if (queue.contains(adjacent)) {
+								stats.decreasedKey();
+							}
+							else {
+								stats.pushed(queue.size() + 1);
+							}
+						}
+						queue.insertOrDecrease(adjacent,
+								newDist + estimate(graphNodes, adjacent, target, context, useHeuristic));
+					}
+				}
+			}
+			/*
+			 * trace back the shortest path from the target node to the starting node,
+			 * or return null if it was not reached.
+			 */
+			targetDistance = targetId != -1 ? context.distance(targetId) : Double.MAX_VALUE;
+			result = targetDistance != Double.MAX_VALUE ? context.result(graphNodes, targetId) : null;
+		}
+		finally {
+			context.release();
+		}
+		if (stats != null) {
+			boolean reached = targetDistance != Double.MAX_VALUE;
+			stats.finished(targetDistance);
+			event.commit(useHeuristic ? SearchAlgorithm.A_STAR : SearchAlgorithm.DIJKSTRA, startId, targetId, stats,
+					reached ? result.getLength() : 0);
+			notifyListener(useHeuristic ? SearchAlgorithm.A_STAR : SearchAlgorithm.DIJKSTRA, start, target, stats);
+		}
+		return result;
+	}
+
+	/**
+	 * Starts timing a search and gives it counters, if a listener or a
+	 * recording of its event needs them.
+	 * @return The search's counters, or null if nothing needs them
+	 */
+	private SearchStats begin(SearchEvent event) {
+		event.begin();
+		if (searchListener == null && !event.isEnabled()) {
+			return null;
+		}
+		SearchStats stats = new SearchStats();
+		stats.started();
+		return stats;
+	}
+
+	/**
+	 * Records the end of an unweighted search with the cost of its path,
+	 * then commits its event and tells the listener.
+	 * @return The path, for the search to return
+	 */
+	private PathResult finish(SearchEvent event, SearchStats stats, SearchAlgorithm algorithm, Node start, Node target,
+			int startId, int targetId, PathResult path) {
+		if (stats != null) {
+			stats.finished(path != null ? path.getCost() : Double.MAX_VALUE);
+			event.commit(algorithm, startId, targetId, stats, path != null ? path.getLength() : 0);
+			notifyListener(algorithm, start, target, stats);
+		}
+		return path;
+	}
+
+	private void notifyListener(SearchAlgorithm algorithm, Node start, Node target, SearchStats stats) {
+		SearchListener listener = searchListener;
+		if (listener != null) {
+			listener.searchFinished(algorithm, start, target, stats);
+		}
+	}
+
+	/**
+	 * @return The lower bound on the cost from the node to the target, computed once per search, or 0 for Dijkstra
+	 */
+	private double estimate(Node[] graphNodes, int node, Node target, SearchContext context, boolean useHeuristic) {
+		if (!useHeuristic) {
+			return 0.0;
+		}
+		if (!context.hasEstimate(node)) {
+			context.setEstimate(node, Edge.FLAT_COST * graphNodes[node].getPosition().distance(target.getPosition()));
+		}
+		return context.estimate[node];
+	}
+
+	/**
+	 * Gives a Node[] path its ids, edges and cost, for the searches that
+	 * do not record the edges they take.
+	 * @return The path as a PathResult, or null for a null path
+	 */
+	private PathResult toResult(Node[] path) {
+		if (path == null) {
+			return null;
+		}
+		Node[] graphNodes = nodes != null ? nodes : sharedNodes;
+		int[] ids = new int[path.length];
+		Edge[] edges = new Edge[path.length - 1];
+		double cost = 0.0;
+		for (int i = 0; i < path.length; i++) {
+			ids[i] = idOf(graphNodes, path[i]);
+			if (i > 0) {
+				edges[i - 1] = getEdge(path[i - 1], path[i]);
+				cost += edges[i - 1].getWeight();
+			}
+		}
+		return new PathResult(graphNodes, ids, edges, cost);
+	}
+
+	/**
+	 * Returns the compact copy of the graph that the indexed searches run
+	 * on, building it on first use and after the graph has changed, and
+	 * listening to its nodes for changes.
+	 * @return The snapshot of the nodes currently searched
+	 */
+	private synchronized CsrGraph snapshot() {
+		Node[] graphNodes = track();
+		if (snapshot == null) {
+			snapshot = new CsrGraph(graphNodes);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Moves the cached values and the listener over to the nodes currently
+	 * searched, if they are not the ones last cached, dropping the values.
+	 * @return The nodes currently searched
+	 */
+	private synchronized Node[] track() {
+		Node[] graphNodes = nodes != null ? nodes : sharedNodes;
+		if (trackedNodes != graphNodes) {
+			if (trackedNodes != null) {
+				for (Node node : trackedNodes) {
+					node.removeListener(changeListener);
+				}
+			}
+			for (Node node : graphNodes) {
+				node.addListener(changeListener);
+			}
+			trackedNodes = graphNodes;
+			invalidateCaches();
+		}
+		return graphNodes;
+	}
+
+	/**
+	 * Drops a graph's cached values when one of its nodes changes, holding the
+	 * graph weakly so the nodes do not keep it reachable. Once the graph has
+	 * been collected the listener removes itself from each node that changes.
+	 */
+	private static final class ChangeListener implements NodeListener {
+		private final WeakReference<Graph> graph;
+
+		ChangeListener(Graph graph) {
+			this.graph = new WeakReference<>(graph);
+		}
+
+		@Override
+		public void nodeChanged(Node node, Change change) {
+			Graph listening = graph.get();
+			if (listening != null) {
+				listening.invalidateCaches();
+			}
+			else {
+				node.removeListener(this);
+			}
+		}
+	}
+
+	private int[] toIds(CsrGraph csr, Node[] path) {
+		int[] ids = csr.toIds(path);
+		for (int id : ids) {
+			if (id == -1) {
+				throw new IllegalArgumentException("Every node must be part of the graph");
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Finds a node's index in the array, using the id assigned when the
+	 * nodes were loaded or connected, and a lookup table for nodes whose id
+	 * does not match the array.
+	 * @return The node's index, or -1 if it is not in the array
+	 */
+	private int idOf(Node[] graphNodes, Node node) {
+		int id = node.getId();
+		if (id >= 0 && id < graphNodes.length && graphNodes[id] == node) {
+			return id;
+		}
+		Integer mapped = indexNodes(graphNodes).get(node);
+		return mapped != null ? mapped : -1;
+	}
+
+	private int requireId(Node[] graphNodes, Node start) {
+		int id = idOf(graphNodes, start);
+		if (id == -1) {
+			throw new IllegalArgumentException("Start node is not part of the graph");
+		}
+		return id;
+	}
+
+	/**
+	 * Maps each node to its index in the given array, reusing the previous
+	 * mapping while the array is unchanged.
+	 * @param graphNodes The nodes of the graph
+	 * @return The index of each node, keyed by identity
+	 */
+	private synchronized Map<Node, Integer> indexNodes(Node[] graphNodes) {
+		if (indexedNodes != graphNodes || nodeIds.size() != graphNodes.length) {
+			//build the whole map before publishing it to other searches
+			Map<Node, Integer> ids = new IdentityHashMap<>();
+			for (int i = 0; i < graphNodes.length; i++) {
+				ids.put(graphNodes[i], i);
+			}
+			nodeIds = ids;
+			indexedNodes = graphNodes;
+		}
+		return nodeIds;
+	}
+
+	/**
+	 * Scans the edges of the nodes searched on first use, and again only
+	 * after the graph has changed.
+	 * @return The largest finite weight of any of their edges
+	 */
+	private synchronized double maxEdgeWeight() {
+		Node[] graphNodes = track();
+		if (Double.isNaN(maxWeight)) {
+			double max = 0.0;
+			for (Node node : graphNodes) {
+				for (Edge edge : node.getEdges()) {
+					//edges that cannot be crossed are never relaxed
+					if (edge.getWeight() != Double.POSITIVE_INFINITY) {
+						max = Math.max(max, edge.getWeight());
+					}
+				}
+			}
+			maxWeight = max;
+		}
+		return maxWeight;
+	}
 }
@@ -0,0 +1,361 @@
+package Graph;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compact, versioned binary graph file, read through memory mapping.
+ * <p>
+ * All values are little-endian. The file is laid out as
+ * <ul>
+ * <li>a 32 byte header: magic, version, flags, node count, rows, cols
+ * (ints, rows and cols 0 if the nodes are not a grid) and edge count (long),</li>
+ * <li>the elevations, x and y coordinates of every node, as packed doubles,</li>
+ * <li>if the adjacency flag is set, node count + 1 int offsets and edge count
+ * int targets, node i's edges being targets[offsets[i]..offsets[i+1]).</li>
+ * </ul>
+ * Edge weights are not stored, as they follow from the nodes. Opening a file
+ * maps its sections without reading them, so loading costs little more than
+ * paging the arrays in, and sections not asked for are never read.
+ */
+public class GraphFile {
+
+	/** The first four bytes of every graph file, "PFGR". */
+	public static final int MAGIC = 0x52474650;
+	public static final int VERSION = 1;
+
+	private static final int FLAG_ADJACENCY = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+	private final int nodeCount;
+	private final int rows;
+	private final int cols;
+	private final long edgeCount;
+	private final DoubleBuffer elevations;
+	private final DoubleBuffer xs;
+	private final DoubleBuffer ys;
+	private final IntBuffer offsets; //null without adjacency
+	private final IntBuffer targets;
+
+	private GraphFile(FileChannel channel) throws IOException {
+		ByteBuffer header = map(channel, 0, HEADER_BYTES);
+		if (header.getInt() != MAGIC) {
+			throw new IOException("Not a graph file");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported graph file version " + version);
+		}
+		int flags = header.getInt();
+		nodeCount = header.getInt();
+		rows = header.getInt();
+		cols = header.getInt();
+		edgeCount = header.getLong();
+		if (nodeCount < 0 || edgeCount < 0 || edgeCount > Integer.MAX_VALUE) {
+			throw new IOException("Corrupt graph file header");
+		}
+
+		//each section gets its own mapping, so no single mapping passes 2GB
+		long position = HEADER_BYTES;
+		long doubles = (long) nodeCount * Double.BYTES;
+		elevations = map(channel, position, doubles).asDoubleBuffer();
+		xs = map(channel, position += doubles, doubles).asDoubleBuffer();
+		ys = map(channel, position += doubles, doubles).asDoubleBuffer();
+		position += doubles;
+		if ((flags & FLAG_ADJACENCY) != 0) {
+			long offsetBytes = (nodeCount + 1L) * Integer.BYTES;
+			offsets = map(channel, position, offsetBytes).asIntBuffer();
+			targets = map(channel, position + offsetBytes, edgeCount * Integer.BYTES).asIntBuffer();
+		}
+		else {
+			offsets = null;
+			targets = null;
+		}
+	}
+
+	/**
+	 * Maps a graph file. The file may be closed or moved afterwards, but not changed.
+	 * @param path The file to open
+	 * @return The mapped file
+	 * @throws IOException If the file cannot be read or is not a graph file
+	 */
+	public static GraphFile open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new GraphFile(channel);
+		}
+	}
+
+	/**
+	 * Writes nodes to a graph file.
+	 * @param path The file to write, replacing any existing file
+	 * @param nodes The nodes to write; node i is given the id i
+	 * @param rows The number of rows if the nodes form a grid, or 0
+	 * @param cols The number of columns if the nodes form a grid, or 0
+	 * @param withAdjacency True to store the nodes' edges, false to store the nodes only
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Path path, Node[] nodes, int rows, int cols, boolean withAdjacency) throws IOException {
+		int n = nodes.length;
+		CsrGraph csr = withAdjacency ? new CsrGraph(nodes) : null;
+		try (Writer out = new Writer(path)) {
+			out.header(withAdjacency ? FLAG_ADJACENCY : 0, n, rows, cols, csr != null ? csr.edgeCount() : 0);
+			for (Node node : nodes) {
+				out.putDouble(node.getElevation());
+			}
+			for (Node node : nodes) {
+				out.putDouble(node.getPosition().x);
+			}
+			for (Node node : nodes) {
+				out.putDouble(node.getPosition().y);
+			}
+			if (csr != null) {
+				for (int offset : csr.getOffsets()) {
+					out.putInt(offset);
+				}
+				for (int target : csr.getTargets()) {
+					out.putInt(target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a grid to a graph file without adjacency, as its edges are implicit.
+	 * @param path The file to write, replacing any existing file
+	 * @param grid The grid to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Path path, GridGraph grid) throws IOException {
+		int n = grid.nodeCount();
+		try (Writer out = new Writer(path)) {
+			out.header(0, n, grid.getRows(), grid.getCols(), 0);
+			for (double elevation : grid.getElevations()) {
+				out.putDouble(elevation);
+			}
+			for (int i = 0; i < n; i++) {
+				out.putDouble(grid.getX(i));
+			}
+			for (int i = 0; i < n; i++) {
+				out.putDouble(grid.getY(i));
+			}
+		}
+	}
+
+	/**
+	 * Converts a graph saved with Java serialisation into a graph file.
+	 * Usage: GraphFile input.ser output.graph [rows cols] [--adjacency]
+	 * @param args The input and output files, the grid size and whether to keep edges
+	 * @throws Exception If either file cannot be used
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: GraphFile input.ser output.graph [rows cols] [--adjacency]");
+			return;
+		}
+		Node[] nodes;
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(args[0]))) {
+			nodes = (Node[]) in.readObject();
+		}
+		boolean withAdjacency = args[args.length - 1].equals("--adjacency");
+		int rows = 0;
+		int cols = 0;
+		if (args.length - (withAdjacency ? 1 : 0) >= 4) {
+			rows = Integer.parseInt(args[2]);
+			cols = Integer.parseInt(args[3]);
+		}
+		else {
+			//the bundled maps are square grids
+			int side = (int) Math.round(Math.sqrt(nodes.length));
+			if (side * side == nodes.length) {
+				rows = side;
+				cols = side;
+			}
+		}
+		write(Paths.get(args[1]), nodes, rows, cols, withAdjacency);
+		System.out.println("Wrote " + nodes.length + " nodes to " + args[1]);
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return The number of rows if the nodes form a grid, or 0
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return The number of columns if the nodes form a grid, or 0
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	public boolean hasAdjacency() {
+		return offsets != null;
+	}
+
+	public long getEdgeCount() {
+		return edgeCount;
+	}
+
+	public double getElevation(int node) {
+		return elevations.get(node);
+	}
+
+	public double getX(int node) {
+		return xs.get(node);
+	}
+
+	public double getY(int node) {
+		return ys.get(node);
+	}
+
+	/**
+	 * Creates a Node for every node in the file, with ids matching their
+	 * indices. With adjacency the nodes are connected as stored; without it
+	 * they have no edges, as after loading the serialised map.
+	 * @return The nodes
+	 */
+	public Node[] toNodes() {
+		double[] elevation = copy(elevations);
+		double[] x = copy(xs);
+		double[] y = copy(ys);
+		Node[] nodes = new Node[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			nodes[i] = new Node(elevation[i], new Position(x[i], y[i]));
+			nodes[i].setId(i);
+		}
+		if (offsets != null) {
+			int[] offset = new int[nodeCount + 1];
+			int[] target = new int[(int) edgeCount];
+			offsets.duplicate().get(offset);
+			targets.duplicate().get(target);
+			for (int i = 0; i < nodeCount; i++) {
+				for (int e = offset[i]; e < offset[i + 1]; e++) {
+					nodes[i].getEdges().add(new Edge(nodes[i], nodes[target[e]]));
+				}
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Creates a GridGraph, which needs no Node objects, for a file written from a grid.
+	 * @return The grid, with the file's elevations and positions
+	 */
+	public GridGraph toGridGraph() {
+		if (rows == 0 || (long) rows * cols != nodeCount) {
+			throw new IllegalStateException("The file does not hold a grid");
+		}
+		double spacing = 1.0;
+		if (cols > 1) {
+			spacing = xs.get(1) - xs.get(0);
+		}
+		else if (rows > 1) {
+			spacing = ys.get(1) - ys.get(0);
+		}
+		return new GridGraph(rows, cols, copy(elevations), xs.get(0), ys.get(0), spacing);
+	}
+
+	/**
+	 * Creates a graph that searches the mapped file in place, without
+	 * copying it onto the heap. Edges are computed for a grid written without
+	 * adjacency, and weights follow from the nodes as in toNodes.
+	 * @return The graph, reading the file's elevations, positions and adjacency
+	 */
+	public OffHeapGraph toOffHeapGraph() {
+		if (offsets == null && (rows == 0 || (long) rows * cols != nodeCount)) {
+			throw new IllegalStateException("The file holds neither adjacency nor a grid");
+		}
+		return new OffHeapGraph(rows, cols, elevations.duplicate(), xs.duplicate(), ys.duplicate(),
+				offsets != null ? offsets.duplicate() : null, targets != null ? targets.duplicate() : null, null);
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (position + size > channel.size()) {
+			throw new IOException("Graph file is truncated");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static double[] copy(DoubleBuffer buffer) {
+		double[] values = new double[buffer.capacity()];
+		buffer.duplicate().get(values);
+		return values;
+	}
+
+	/**
+	 * Streams values to a file through a small direct buffer.
+	 */
+	private static final class Writer implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+		Writer(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void header(int flags, int nodeCount, int rows, int cols, long edgeCount) throws IOException {
+			putInt(MAGIC);
+			putInt(VERSION);
+			putInt(flags);
+			putInt(nodeCount);
+			putInt(rows);
+			putInt(cols);
+			putLong(edgeCount);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(Double.BYTES);
+			buffer.putDouble(value);
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			}
+			finally {
+				channel.close();
+			}
+		}
+	}
+}
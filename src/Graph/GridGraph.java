@@ -0,0 +1,234 @@
+package Graph;
+
+/**
+ * A rows x cols grid graph stored only as a flat, row-major elevation array.
+ * Each cell is connected to its E, W, S, N, NE, SE, NW, SW neighbours, in
+ * that order, exactly as Graph.connectNodes connects nodes, but the edges and
+ * their weights w(e) = d(p1, p2) * (0.01+|e2-e1|) are computed when asked
+ * for, so memory grows with the number of cells rather than edges.
+ * Cell (row, col) has the id row * cols + col and sits at
+ * (originX + col * spacing, originY + row * spacing).
+ */
+public class GridGraph implements IndexedGraph {
+
+	public static final int DIRECTIONS = 8;
+
+	//row and column steps for E, W, S, N, NE, SE, NW, SW
+	static final int[] ROW_STEP = {0, 0, 1, -1, -1, 1, -1, 1};
+	static final int[] COL_STEP = {1, -1, 0, 0, 1, 1, -1, -1};
+
+	private final int rows;
+	private final int cols;
+	private final double[] elevations;
+	private final double originX;
+	private final double originY;
+	private final double spacing;
+	private volatile double maxWeight = Double.NaN; //computed when first needed, reset by setElevation
+
+	/**
+	 * @param rows The number of rows in the grid
+	 * @param cols The number of columns in the grid
+	 * @param elevations The elevation of each cell in row-major order, used directly
+	 * @param originX The x coordinate of the first cell
+	 * @param originY The y coordinate of the first cell
+	 * @param spacing The distance between horizontally or vertically adjacent cells
+	 */
+	public GridGraph(int rows, int cols, double[] elevations, double originX, double originY, double spacing) {
+		if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid grid size " + rows + "x" + cols);
+		}
+		if (elevations.length != rows * cols) {
+			throw new IllegalArgumentException("Expected " + rows * cols + " elevations, got " + elevations.length);
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.elevations = elevations;
+		this.originX = originX;
+		this.originY = originY;
+		this.spacing = spacing;
+	}
+
+	/**
+	 * Builds a grid from nodes laid out as for Graph.connectNodes, taking the
+	 * origin and spacing from the first two nodes. The nodes need not be connected.
+	 * @param nodes The nodes of the grid in row-major order
+	 * @param rows The number of rows in the grid
+	 * @param cols The number of columns in the grid
+	 * @return A grid with the same positions and elevations as the nodes
+	 */
+	public static GridGraph fromNodes(Node[] nodes, int rows, int cols) {
+		double[] elevations = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			elevations[i] = nodes[i].getElevation();
+		}
+		Position first = nodes[0].getPosition();
+		double spacing = 1.0;
+		if (cols > 1) {
+			spacing = nodes[1].getPosition().x - first.x;
+		}
+		else if (rows > 1) {
+			spacing = nodes[1].getPosition().y - first.y;
+		}
+		return new GridGraph(rows, cols, elevations, first.x, first.y, spacing);
+	}
+
+	@Override
+	public int nodeCount() {
+		return elevations.length;
+	}
+
+	@Override
+	public int maxDegree() {
+		return DIRECTIONS;
+	}
+
+	@Override
+	public int neighbours(int node, int[] targets, double[] weights) {
+		int count = 0;
+		for (int d = 0; d < DIRECTIONS; d++) {
+			int to = neighbour(node, d);
+			if (to != -1) {
+				targets[count] = to;
+				weights[count] = weight(node, to);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Every cell is connected to each neighbour in both directions with the
+	 * same weight, so the grid is its own reverse.
+	 */
+	@Override
+	public GridGraph reverse() {
+		return this;
+	}
+
+	/**
+	 * @param node The id of a cell
+	 * @param direction 0 to 7 for E, W, S, N, NE, SE, NW, SW
+	 * @return The id of the adjacent cell in that direction, or -1 at the border
+	 */
+	public int neighbour(int node, int direction) {
+		int row = node / cols + ROW_STEP[direction];
+		int col = node % cols + COL_STEP[direction];
+		if (row < 0 || row >= rows || col < 0 || col >= cols) {
+			return -1;
+		}
+		return row * cols + col;
+	}
+
+	/**
+	 * Calculates the weight of travel between two cells, as Edge does.
+	 * @param from The id of the source cell
+	 * @param to The id of the destination cell
+	 * @return d(p1, p2) * (0.01+|e2-e1|)
+	 */
+	public double weight(int from, int to) {
+		double dx = getX(to) - getX(from);
+		double dy = getY(to) - getY(from);
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		return Edge.weight(distance, elevations[from], elevations[to]);
+	}
+
+	/**
+	 * Scans the cells on first use and after any call to setElevation.
+	 */
+	@Override
+	public double maxEdgeWeight() {
+		double max = maxWeight;
+		if (Double.isNaN(max)) {
+			max = IndexedGraph.super.maxEdgeWeight();
+			maxWeight = max;
+		}
+		return max;
+	}
+
+	/**
+	 * Estimates cost with the octile distance, the length of the shortest route
+	 * between two cells using only the eight grid directions. It is at least
+	 * the straight-line distance, so it gives a tighter bound than euclideanHeuristic.
+	 * @return A heuristic for A* over this grid
+	 */
+	public Heuristic octileHeuristic() {
+		return (node, target) -> {
+			int rowSteps = Math.abs(node / cols - target / cols);
+			int colSteps = Math.abs(node % cols - target % cols);
+			int diagonal = Math.min(rowSteps, colSteps);
+			int straight = Math.max(rowSteps, colSteps) - diagonal;
+			return Edge.FLAT_COST * spacing * (straight + Math.sqrt(2) * diagonal);
+		};
+	}
+
+	/**
+	 * Estimates cost from the straight-line distance between two cells.
+	 * @return A heuristic for A* over this grid
+	 */
+	public Heuristic euclideanHeuristic() {
+		return (node, target) -> {
+			double dx = getX(target) - getX(node);
+			double dy = getY(target) - getY(node);
+			return Edge.FLAT_COST * Math.sqrt(dx * dx + dy * dy);
+		};
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getId(int row, int col) {
+		return row * cols + col;
+	}
+
+	public double getSpacing() {
+		return spacing;
+	}
+
+	public double getX(int node) {
+		return originX + (node % cols) * spacing;
+	}
+
+	public double getY(int node) {
+		return originY + (node / cols) * spacing;
+	}
+
+	public Position getPosition(int node) {
+		return new Position(getX(node), getY(node));
+	}
+
+	public double getElevation(int node) {
+		return elevations[node];
+	}
+
+	/**
+	 * Changes a cell's elevation. Weights of the surrounding edges change with it.
+	 * @param node The id of the cell
+	 * @param elevation The new elevation
+	 */
+	public void setElevation(int node, double elevation) {
+		elevations[node] = elevation;
+		maxWeight = Double.NaN;
+	}
+
+	/**
+	 * @return The backing elevation array, in row-major order; change it
+	 * through setElevation, so that the cached maxEdgeWeight follows
+	 */
+	public double[] getElevations() {
+		return elevations;
+	}
+
+	/**
+	 * Creates an unconnected Node for a cell, for use where a Node is needed.
+	 * @param node The id of the cell
+	 * @return A new node with the cell's elevation and position
+	 */
+	public Node createNode(int node) {
+		return new Node(elevations[node], getPosition(node));
+	}
+}
@@ -0,0 +1,392 @@
+package Graph;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Builds terrain grids from heightmaps, decoding them in bands of rows.
+ * <p>
+ * Raw 16-bit and binary PGM heightmaps are read straight from the file one
+ * band at a time, each band at a known offset, so bands are decoded in
+ * parallel and the raw samples are never all in memory. Compressed images,
+ * such as the PNG map, are decoded once by ImageIO and converted to
+ * elevations in parallel bands.
+ * <p>
+ * Samples are scaled to elevations in [0, elevationScale], the brightest
+ * possible sample being elevationScale. The result is a GridGraph, which
+ * holds only the elevations, or a stream of bands for callers that build
+ * their own structures.
+ */
+public class HeightmapImporter {
+
+	public static final int DEFAULT_BAND_ROWS = 128;
+
+	/**
+	 * Receives the elevations of each band as it is decoded. Bands may arrive
+	 * in any order and from several threads at once.
+	 */
+	public interface BandListener {
+
+		/**
+		 * @param firstRow The grid row of the band's first row
+		 * @param rowCount The number of rows in the band
+		 * @param elevations The band's elevations in row-major order, owned by the listener
+		 */
+		void band(int firstRow, int rowCount, double[] elevations);
+	}
+
+	/**
+	 * A heightmap to import, created by raw16, pgm or image.
+	 */
+	public abstract static class Source {
+		private final int rows;
+		private final int cols;
+
+		Source(int rows, int cols) {
+			if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Invalid heightmap size " + cols + "x" + rows);
+			}
+			this.rows = rows;
+			this.cols = cols;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public int getCols() {
+			return cols;
+		}
+
+		/**
+		 * Decodes rows into samples scaled to [0, 1]. Safe to call from several threads.
+		 * @param firstRow The first row to decode
+		 * @param rowCount The number of rows
+		 * @param out Receives the samples in row-major order
+		 * @param offset The index in out of the first sample
+		 */
+		abstract void read(int firstRow, int rowCount, double[] out, int offset) throws IOException;
+	}
+
+	private final double elevationScale;
+	private final double spacing;
+	private final double originX;
+	private final double originY;
+	private final int bandRows;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Places the first sample at the origin and decodes on the common pool.
+	 * @param elevationScale The elevation of the brightest possible sample
+	 * @param spacing The distance between adjacent samples
+	 */
+	public HeightmapImporter(double elevationScale, double spacing) {
+		this(elevationScale, spacing, 0, 0, DEFAULT_BAND_ROWS, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param elevationScale The elevation of the brightest possible sample
+	 * @param spacing The distance between adjacent samples
+	 * @param originX The x coordinate of the first sample
+	 * @param originY The y coordinate of the first sample
+	 * @param bandRows The number of rows decoded together
+	 * @param pool The pool bands are decoded on
+	 */
+	public HeightmapImporter(double elevationScale, double spacing, double originX, double originY, int bandRows,
+			ForkJoinPool pool) {
+		if (bandRows < 1) {
+			throw new IllegalArgumentException("Bands must hold at least one row");
+		}
+		this.elevationScale = elevationScale;
+		this.spacing = spacing;
+		this.originX = originX;
+		this.originY = originY;
+		this.bandRows = bandRows;
+		this.pool = pool;
+	}
+
+	/**
+	 * @param path A file of unsigned 16-bit samples in row-major order, with no header
+	 * @param cols The width of the heightmap
+	 * @param rows The height of the heightmap
+	 * @param order The byte order of the samples
+	 * @return The heightmap
+	 * @throws IOException If the file is not the expected size
+	 */
+	public static Source raw16(Path path, int cols, int rows, ByteOrder order) throws IOException {
+		long expected = 2L * rows * cols;
+		if (Files.size(path) != expected) {
+			throw new IOException("Expected " + expected + " bytes for a " + cols + "x" + rows + " heightmap");
+		}
+		return new SampleFile(path, rows, cols, 0, 2, 65535, order);
+	}
+
+	/**
+	 * @param path A binary (P5) PGM file with 8 or 16-bit samples
+	 * @return The heightmap
+	 * @throws IOException If the file cannot be read or is not a binary PGM
+	 */
+	public static Source pgm(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+			PgmHeader header = new PgmHeader(in);
+			int bytes = header.maxValue < 256 ? 1 : 2;
+			long expected = header.dataOffset + (long) bytes * header.width * header.height;
+			if (Files.size(path) < expected) {
+				throw new IOException("PGM file is truncated");
+			}
+			//PGM samples are big-endian
+			return new SampleFile(path, header.height, header.width, header.dataOffset, bytes, header.maxValue,
+					ByteOrder.BIG_ENDIAN);
+		}
+	}
+
+	/**
+	 * @param path An image in a format ImageIO reads, such as PNG; colour
+	 * images are converted to their luminance
+	 * @return The heightmap
+	 * @throws IOException If the image cannot be decoded
+	 */
+	public static Source image(Path path) throws IOException {
+		BufferedImage image = ImageIO.read(path.toFile());
+		if (image == null) {
+			throw new IOException("No image reader for " + path);
+		}
+		return new ImageSource(image.getRaster());
+	}
+
+	/**
+	 * Decodes a heightmap into a grid, each band written straight into the grid's elevations.
+	 * @param source The heightmap to import
+	 * @return A grid with one cell per sample
+	 * @throws IOException If the heightmap cannot be read
+	 */
+	public GridGraph importGrid(Source source) throws IOException {
+		int cols = source.getCols();
+		double[] elevations = new double[source.getRows() * cols];
+		forEachBand(source, (firstRow, rowCount) -> {
+			int offset = firstRow * cols;
+			source.read(firstRow, rowCount, elevations, offset);
+			for (int i = offset; i < offset + rowCount * cols; i++) {
+				elevations[i] *= elevationScale;
+			}
+		});
+		return new GridGraph(source.getRows(), cols, elevations, originX, originY, spacing);
+	}
+
+	/**
+	 * Decodes a heightmap band by band, handing each band to the listener
+	 * rather than building a grid.
+	 * @param source The heightmap to import
+	 * @param listener Receives every band exactly once
+	 * @throws IOException If the heightmap cannot be read
+	 */
+	public void stream(Source source, BandListener listener) throws IOException {
+		int cols = source.getCols();
+		forEachBand(source, (firstRow, rowCount) -> {
+			double[] band = new double[rowCount * cols];
+			source.read(firstRow, rowCount, band, 0);
+			for (int i = 0; i < band.length; i++) {
+				band[i] *= elevationScale;
+			}
+			listener.band(firstRow, rowCount, band);
+		});
+	}
+
+	private interface BandTask {
+		void run(int firstRow, int rowCount) throws IOException;
+	}
+
+	private void forEachBand(Source source, BandTask task) throws IOException {
+		List<Callable<Void>> bands = new ArrayList<>();
+		for (int firstRow = 0; firstRow < source.getRows(); firstRow += bandRows) {
+			int first = firstRow;
+			int count = Math.min(bandRows, source.getRows() - firstRow);
+			bands.add(() -> {
+				task.run(first, count);
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> band : pool.invokeAll(bands)) {
+				band.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while importing", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Failed to decode heightmap", e.getCause());
+		}
+	}
+
+	/**
+	 * Fixed-size unsigned samples stored row by row from an offset in a file.
+	 */
+	private static final class SampleFile extends Source {
+		private final Path path;
+		private final long dataOffset;
+		private final int bytesPerSample;
+		private final double maxValue;
+		private final ByteOrder order;
+
+		SampleFile(Path path, int rows, int cols, long dataOffset, int bytesPerSample, int maxValue,
+				ByteOrder order) {
+			super(rows, cols);
+			this.path = path;
+			this.dataOffset = dataOffset;
+			this.bytesPerSample = bytesPerSample;
+			this.maxValue = maxValue;
+			this.order = order;
+		}
+
+		@Override
+		void read(int firstRow, int rowCount, double[] out, int offset) throws IOException {
+			int count = rowCount * getCols();
+			ByteBuffer buffer = ByteBuffer.allocate(count * bytesPerSample).order(order);
+			long position = dataOffset + (long) firstRow * getCols() * bytesPerSample;
+			//positional reads leave the channel's own position alone
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, position + buffer.position()) < 0) {
+						throw new IOException("Heightmap file is truncated");
+					}
+				}
+			}
+			buffer.flip();
+			if (bytesPerSample == 1) {
+				for (int i = 0; i < count; i++) {
+					out[offset + i] = (buffer.get() & 0xFF) / maxValue;
+				}
+			}
+			else {
+				for (int i = 0; i < count; i++) {
+					out[offset + i] = (buffer.getShort() & 0xFFFF) / maxValue;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A decoded image, read as grey levels or the luminance of its colour bands.
+	 */
+	private static final class ImageSource extends Source {
+		private final Raster raster;
+
+		ImageSource(Raster raster) {
+			super(raster.getHeight(), raster.getWidth());
+			this.raster = raster;
+		}
+
+		@Override
+		void read(int firstRow, int rowCount, double[] out, int offset) {
+			int count = rowCount * getCols();
+			int[] sampleSizes = raster.getSampleModel().getSampleSize();
+			if (raster.getNumBands() >= 3) {
+				double[] weights = {0.299, 0.587, 0.114};
+				Arrays.fill(out, offset, offset + count, 0.0);
+				int[] samples = new int[count];
+				for (int b = 0; b < 3; b++) {
+					raster.getSamples(raster.getMinX(), raster.getMinY() + firstRow, getCols(), rowCount, b, samples);
+					double scale = weights[b] / ((1 << sampleSizes[b]) - 1);
+					for (int i = 0; i < count; i++) {
+						out[offset + i] += samples[i] * scale;
+					}
+				}
+			}
+			else {
+				int[] samples = raster.getSamples(raster.getMinX(), raster.getMinY() + firstRow, getCols(), rowCount,
+						0, new int[count]);
+				double max = (1 << sampleSizes[0]) - 1;
+				for (int i = 0; i < count; i++) {
+					out[offset + i] = samples[i] / max;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the header of a binary PGM: "P5", width, height and the maximum
+	 * sample, separated by whitespace and comments, then one whitespace byte.
+	 */
+	private static final class PgmHeader {
+		final int width;
+		final int height;
+		final int maxValue;
+		final long dataOffset;
+		private long consumed;
+
+		PgmHeader(InputStream in) throws IOException {
+			if (next(in) != 'P' || next(in) != '5') {
+				throw new IOException("Not a binary (P5) PGM file");
+			}
+			width = token(in);
+			height = token(in);
+			maxValue = token(in);
+			if (maxValue < 1 || maxValue > 65535) {
+				throw new IOException("Invalid PGM maximum value " + maxValue);
+			}
+			dataOffset = consumed;
+		}
+
+		/**
+		 * Reads a decimal number and the single whitespace byte after it.
+		 */
+		private int token(InputStream in) throws IOException {
+			int c = next(in);
+			while (Character.isWhitespace(c) || c == '#') {
+				if (c == '#') {
+					while (c != '\n' && c != '\r') {
+						c = next(in);
+					}
+				}
+				c = next(in);
+			}
+			if (c < '0' || c > '9') {
+				throw new IOException("Malformed PGM header");
+			}
+			long value = 0;
+			while (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+				if (value > Integer.MAX_VALUE) {
+					throw new IOException("Malformed PGM header");
+				}
+				c = next(in);
+			}
+			if (!Character.isWhitespace(c)) {
+				throw new IOException("Malformed PGM header");
+			}
+			return (int) value;
+		}
+
+		private int next(InputStream in) throws IOException {
+			int c = in.read();
+			if (c < 0) {
+				throw new IOException("PGM header is truncated");
+			}
+			consumed++;
+			return c;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package Graph;
+
+/**
+ * Estimates the remaining cost from a node to a target for goal-directed search.
+ * A* returns a least-costly path when the estimate never exceeds the true cost.
+ */
+public interface Heuristic {
+
+	/**
+	 * @param node The id of the node being estimated
+	 * @param target The id of the search target
+	 * @return A lower bound on the cost of travel from node to target
+	 */
+	double estimate(int node, int target);
+
+	/**
+	 * Estimates the cost of reaching a node from a source, as needed by
+	 * searches that also work backwards. Symmetric heuristics, such as those
+	 * based on distance, can rely on this default.
+	 * @param source The id of the node travelled from
+	 * @param node The id of the node being estimated
+	 * @return A lower bound on the cost of travel from source to node
+	 */
+	default double estimateFrom(int source, int node) {
+		return estimate(node, source);
+	}
+}
@@ -0,0 +1,585 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Hierarchical pathfinding (HPA*) over a GridGraph. The grid is cut into
+ * square clusters, and entrances are placed at regular intervals along each
+ * border between two clusters. The cost between every pair of entrances of a
+ * cluster is precomputed by searching inside the cluster with the Edge weight
+ * function, giving a small abstract graph of entrances. A query connects the
+ * start and target to the entrances of their own clusters, searches the
+ * abstract graph, and then refines the result with an A* search restricted to
+ * the corridor of clusters the abstract path passes through, so a long query
+ * touches only a narrow band of the map.
+ * <p>
+ * The refined path is never costlier than the abstract one, but can be
+ * slightly costlier than the true shortest path when that path leaves the
+ * corridor. When elevations change only the clusters containing the changed
+ * cells are rebuilt, since edges between clusters are weighed when queried.
+ * <p>
+ * Not thread-safe: queries and rebuilds share scratch arrays. Changes heard
+ * from nodes are only recorded, and applied before the next query.
+ */
+public class HierarchicalGrid {
+
+	private final GridGraph grid;
+	private final int clusterSize;
+	private final int clusterRows;
+	private final int clusterCols;
+	private final Heuristic heuristic;
+
+	//abstract graph: entrances are numbered cluster by cluster
+	private final int[] clusterOffsets; //first entrance of each cluster
+	private final int[] entranceCells;
+	private final int[] entranceClusters;
+	private final int[] interOffsets; //entrances across a border from each entrance
+	private final int[] interTargets;
+	private final double[][] intraCosts; //k x k entrance costs of each cluster
+	private final boolean[] dirty;
+	private int dirtyCount;
+
+	//scratch space for searches on the grid and the abstract graph
+	private final double[] distance;
+	private final int[] parent;
+	private final int[] stamps;
+	private final int[] allowed; //clusters the current grid search may enter
+	private final DaryHeap queue;
+	private final double[] abstractDistance;
+	private final int[] abstractParent;
+	private final int[] abstractStamps;
+	private final DaryHeap abstractQueue;
+	private int stamp;
+	private int expanded;
+	private int abstractExpanded;
+	private int rebuilt;
+
+	private final Node[] nodes; //null unless built from Node objects
+	private final Map<Node, Integer> ids;
+	private final NodeListener listener;
+
+	/**
+	 * Places an entrance every clusterSize / 4 cells along each border.
+	 * @param grid The grid to search; its elevations may change between queries
+	 * @param clusterSize The number of rows and columns in each cluster
+	 */
+	public HierarchicalGrid(GridGraph grid, int clusterSize) {
+		this(grid, clusterSize, Math.max(1, clusterSize / 4));
+	}
+
+	/**
+	 * @param grid The grid to search; its elevations may change between queries
+	 * @param clusterSize The number of rows and columns in each cluster
+	 * @param entranceSpacing The number of cells between entrances along a
+	 * border, where smaller spacings give better paths and larger abstract graphs
+	 */
+	public HierarchicalGrid(GridGraph grid, int clusterSize, int entranceSpacing) {
+		this(grid, clusterSize, entranceSpacing, null);
+	}
+
+	/**
+	 * Builds the hierarchy over nodes laid out as for Graph.connectNodes,
+	 * listening for elevation changes. The nodes need not be connected.
+	 * @param nodes The nodes of the grid in row-major order
+	 * @param rows The number of rows in the grid
+	 * @param cols The number of columns in the grid
+	 * @param clusterSize The number of rows and columns in each cluster
+	 */
+	public HierarchicalGrid(Node[] nodes, int rows, int cols, int clusterSize) {
+		this(GridGraph.fromNodes(nodes, rows, cols), clusterSize, Math.max(1, clusterSize / 4), nodes.clone());
+	}
+
+	private HierarchicalGrid(GridGraph grid, int clusterSize, int entranceSpacing, Node[] nodes) {
+		if (clusterSize < 2) {
+			throw new IllegalArgumentException("Cluster size must be at least 2");
+		}
+		if (entranceSpacing < 1) {
+			throw new IllegalArgumentException("Entrance spacing must be at least 1");
+		}
+		this.grid = grid;
+		this.clusterSize = clusterSize;
+		int rows = grid.getRows();
+		int cols = grid.getCols();
+		clusterRows = (rows + clusterSize - 1) / clusterSize;
+		clusterCols = (cols + clusterSize - 1) / clusterSize;
+		int clusterCount = clusterRows * clusterCols;
+		heuristic = grid.octileHeuristic();
+
+		//pair up the cells on either side of each border at regular intervals
+		int[] pairs = new int[16];
+		int pairCount = 0;
+		for (int cr = 0; cr < clusterRows; cr++) {
+			for (int cc = 0; cc < clusterCols; cc++) {
+				int firstRow = cr * clusterSize;
+				int lastRow = Math.min(rows, firstRow + clusterSize) - 1;
+				int firstCol = cc * clusterSize;
+				int lastCol = Math.min(cols, firstCol + clusterSize) - 1;
+				if (cc + 1 < clusterCols) {
+					for (int r = firstRow; r <= lastRow; r = next(r, firstRow, lastRow, entranceSpacing)) {
+						pairs = add(pairs, pairCount++, grid.getId(r, lastCol), grid.getId(r, lastCol + 1));
+					}
+				}
+				if (cr + 1 < clusterRows) {
+					for (int c = firstCol; c <= lastCol; c = next(c, firstCol, lastCol, entranceSpacing)) {
+						pairs = add(pairs, pairCount++, grid.getId(lastRow, c), grid.getId(lastRow + 1, c));
+					}
+				}
+			}
+		}
+
+		//number the entrance cells cluster by cluster, so each cluster's are contiguous
+		int[] entranceOf = new int[grid.nodeCount()];
+		Arrays.fill(entranceOf, -1);
+		for (int i = 0; i < pairCount * 2; i++) {
+			entranceOf[pairs[i]] = 0;
+		}
+		clusterOffsets = new int[clusterCount + 1];
+		for (int cell = 0; cell < entranceOf.length; cell++) {
+			if (entranceOf[cell] == 0) {
+				clusterOffsets[clusterOf(cell) + 1]++;
+			}
+		}
+		for (int c = 0; c < clusterCount; c++) {
+			clusterOffsets[c + 1] += clusterOffsets[c];
+		}
+		int entranceCount = clusterOffsets[clusterCount];
+		entranceCells = new int[entranceCount];
+		entranceClusters = new int[entranceCount];
+		int[] fill = Arrays.copyOf(clusterOffsets, clusterCount);
+		for (int cell = 0; cell < entranceOf.length; cell++) {
+			if (entranceOf[cell] == 0) {
+				int cluster = clusterOf(cell);
+				int entrance = fill[cluster]++;
+				entranceOf[cell] = entrance;
+				entranceCells[entrance] = cell;
+				entranceClusters[entrance] = cluster;
+			}
+		}
+
+		//each pair is an edge between clusters in both directions
+		interOffsets = new int[entranceCount + 1];
+		for (int i = 0; i < pairCount * 2; i++) {
+			interOffsets[entranceOf[pairs[i]] + 1]++;
+		}
+		for (int e = 0; e < entranceCount; e++) {
+			interOffsets[e + 1] += interOffsets[e];
+		}
+		interTargets = new int[pairCount * 2];
+		fill = Arrays.copyOf(interOffsets, entranceCount);
+		for (int p = 0; p < pairCount; p++) {
+			int a = entranceOf[pairs[2 * p]];
+			int b = entranceOf[pairs[2 * p + 1]];
+			interTargets[fill[a]++] = b;
+			interTargets[fill[b]++] = a;
+		}
+
+		int n = grid.nodeCount();
+		distance = new double[n];
+		parent = new int[n];
+		stamps = new int[n];
+		allowed = new int[clusterCount];
+		queue = new DaryHeap(n);
+		//two extra abstract nodes stand for the start and target of a query
+		abstractDistance = new double[entranceCount + 2];
+		abstractParent = new int[entranceCount + 2];
+		abstractStamps = new int[entranceCount + 2];
+		abstractQueue = new DaryHeap(entranceCount + 2);
+
+		intraCosts = new double[clusterCount][];
+		dirty = new boolean[clusterCount];
+		for (int c = 0; c < clusterCount; c++) {
+			rebuildCluster(c);
+		}
+		rebuilt = 0;
+
+		this.nodes = nodes;
+		if (nodes != null) {
+			ids = new IdentityHashMap<>();
+			for (int i = 0; i < nodes.length; i++) {
+				ids.put(nodes[i], i);
+			}
+			listener = this::nodeChanged;
+			for (Node node : nodes) {
+				node.addListener(listener);
+			}
+		}
+		else {
+			ids = null;
+			listener = null;
+		}
+	}
+
+	/**
+	 * Finds a path through the hierarchy, first rebuilding any clusters whose
+	 * elevations have changed.
+	 * @param start The id of the cell from which to start
+	 * @param target The id of the cell to which a path is built
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public int[] findPath(int start, int target) {
+		applyChanges();
+		expanded = 0;
+		abstractExpanded = 0;
+		if (start == target) {
+			return new int[] {start};
+		}
+		int startCluster = clusterOf(start);
+		int targetCluster = clusterOf(target);
+
+		//connect the start and target to the entrances of their clusters
+		double[] startCosts = localCosts(start);
+		double direct = startCluster == targetCluster && stamps[target] == stamp ? distance[target] : Double.MAX_VALUE;
+		double[] targetCosts = localCosts(target);
+
+		int[] corridor = abstractSearch(start, target, startCosts, targetCosts, direct);
+		if (corridor == null) {
+			return null;
+		}
+		begin();
+		for (int cluster : corridor) {
+			allowed[cluster] = stamp;
+		}
+		return search(start, target) ? path(target) : null;
+	}
+
+	/**
+	 * @param start The node from which to start
+	 * @param target The node to which a path is built
+	 * @return The nodes on the path from start to target, or null if target is unreachable
+	 */
+	public Node[] findPath(Node start, Node target) {
+		if (nodes == null) {
+			throw new IllegalStateException("The hierarchy was not built from nodes");
+		}
+		int[] path = findPath(idOf(start), idOf(target));
+		if (path == null) {
+			return null;
+		}
+		Node[] result = new Node[path.length];
+		for (int i = 0; i < path.length; i++) {
+			result[i] = nodes[path[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * Changes a cell's elevation and marks its cluster for rebuilding.
+	 * @param cell The id of the cell
+	 * @param elevation The new elevation
+	 */
+	public void setElevation(int cell, double elevation) {
+		grid.setElevation(cell, elevation);
+		elevationChanged(cell);
+	}
+
+	/**
+	 * Marks the cluster of a cell whose elevation was set directly on the grid,
+	 * so that it is rebuilt before the next query.
+	 * @param cell The id of the changed cell
+	 */
+	public synchronized void elevationChanged(int cell) {
+		int cluster = clusterOf(cell);
+		if (!dirty[cluster]) {
+			dirty[cluster] = true;
+			dirtyCount++;
+		}
+	}
+
+	/**
+	 * Recomputes the costs between every pair of entrances of a cluster.
+	 * @param cluster The index of the cluster, row by row
+	 */
+	public void rebuildCluster(int cluster) {
+		int first = clusterOffsets[cluster];
+		int k = clusterOffsets[cluster + 1] - first;
+		double[] costs = new double[k * k];
+		for (int i = 0; i < k; i++) {
+			begin();
+			allowed[cluster] = stamp;
+			search(entranceCells[first + i], -1);
+			for (int j = 0; j < k; j++) {
+				int cell = entranceCells[first + j];
+				costs[i * k + j] = stamps[cell] == stamp ? distance[cell] : Double.MAX_VALUE;
+			}
+		}
+		intraCosts[cluster] = costs;
+		rebuilt++;
+	}
+
+	/**
+	 * Stops listening to the nodes given to the constructor.
+	 */
+	public void close() {
+		if (nodes != null) {
+			for (Node node : nodes) {
+				node.removeListener(listener);
+			}
+		}
+	}
+
+	/**
+	 * @param cell The id of a cell
+	 * @return The index of the cluster containing the cell, row by row
+	 */
+	public int clusterOf(int cell) {
+		int row = cell / grid.getCols();
+		int col = cell % grid.getCols();
+		return (row / clusterSize) * clusterCols + col / clusterSize;
+	}
+
+	public int getClusterCount() {
+		return clusterRows * clusterCols;
+	}
+
+	/**
+	 * @return The number of nodes in the abstract graph
+	 */
+	public int getEntranceCount() {
+		return entranceCells.length;
+	}
+
+	/**
+	 * @return The number of cells settled by the last query, in local and refining searches
+	 */
+	public int getExpandedCount() {
+		return expanded;
+	}
+
+	/**
+	 * @return The number of abstract nodes settled by the last query
+	 */
+	public int getAbstractExpandedCount() {
+		return abstractExpanded;
+	}
+
+	/**
+	 * @return The number of clusters rebuilt since construction
+	 */
+	public int getRebuiltCount() {
+		return rebuilt;
+	}
+
+	public GridGraph getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Searches the abstract graph from start to target, where the start
+	 * reaches the entrances of its cluster at startCosts and the target is
+	 * reached from the entrances of its cluster at targetCosts.
+	 * @return The clusters the abstract path passes through, or null if there is none
+	 */
+	private int[] abstractSearch(int start, int target, double[] startCosts, double[] targetCosts, double direct) {
+		int source = entranceCells.length;
+		int sink = source + 1;
+		int startCluster = clusterOf(start);
+		int targetCluster = clusterOf(target);
+		begin();
+		abstractQueue.clear();
+		reachAbstract(source, 0.0, -1, start, target);
+		while (!abstractQueue.isEmpty()) {
+			int current = abstractQueue.extractMin();
+			abstractExpanded++;
+			if (current == sink) {
+				break;
+			}
+			double dist = abstractDistance[current];
+			if (current == source) {
+				int first = clusterOffsets[startCluster];
+				for (int i = 0; i < startCosts.length; i++) {
+					if (startCosts[i] != Double.MAX_VALUE) {
+						reachAbstract(first + i, startCosts[i], current, entranceCells[first + i], target);
+					}
+				}
+				if (direct != Double.MAX_VALUE) {
+					reachAbstract(sink, direct, current, target, target);
+				}
+				continue;
+			}
+			int cluster = entranceClusters[current];
+			int first = clusterOffsets[cluster];
+			int k = clusterOffsets[cluster + 1] - first;
+			double[] costs = intraCosts[cluster];
+			int row = (current - first) * k;
+			for (int j = 0; j < k; j++) {
+				if (first + j != current && costs[row + j] != Double.MAX_VALUE) {
+					reachAbstract(first + j, dist + costs[row + j], current, entranceCells[first + j], target);
+				}
+			}
+			for (int e = interOffsets[current]; e < interOffsets[current + 1]; e++) {
+				int next = interTargets[e];
+				reachAbstract(next, dist + grid.weight(entranceCells[current], entranceCells[next]), current,
+						entranceCells[next], target);
+			}
+			if (cluster == targetCluster && targetCosts[current - first] != Double.MAX_VALUE) {
+				reachAbstract(sink, dist + targetCosts[current - first], current, target, target);
+			}
+		}
+		if (abstractStamps[sink] != stamp) {
+			return null;
+		}
+		//collect the distinct clusters along the path
+		int[] corridor = new int[2];
+		int count = 0;
+		corridor[count++] = targetCluster;
+		for (int at = abstractParent[sink]; at != source; at = abstractParent[at]) {
+			int cluster = entranceClusters[at];
+			if (corridor[count - 1] != cluster) {
+				corridor = add(corridor, count++, cluster);
+			}
+		}
+		corridor = add(corridor, count++, startCluster);
+		return Arrays.copyOf(corridor, count);
+	}
+
+	private void reachAbstract(int node, double newDist, int from, int cell, int target) {
+		if (abstractStamps[node] != stamp || newDist < abstractDistance[node]) {
+			abstractStamps[node] = stamp;
+			abstractDistance[node] = newDist;
+			abstractParent[node] = from;
+			abstractQueue.insertOrDecrease(node, newDist + heuristic.estimate(cell, target));
+		}
+	}
+
+	/**
+	 * Searches the cluster containing a cell, leaving its distances in the
+	 * scratch arrays under the current stamp.
+	 * @return The costs from the cell to each entrance of its cluster
+	 */
+	private double[] localCosts(int cell) {
+		int cluster = clusterOf(cell);
+		begin();
+		allowed[cluster] = stamp;
+		search(cell, -1);
+		int first = clusterOffsets[cluster];
+		double[] costs = new double[clusterOffsets[cluster + 1] - first];
+		for (int i = 0; i < costs.length; i++) {
+			int entrance = entranceCells[first + i];
+			costs[i] = stamps[entrance] == stamp ? distance[entrance] : Double.MAX_VALUE;
+		}
+		return costs;
+	}
+
+	/**
+	 * Runs A* from source to target, or Dijkstra's algorithm over every
+	 * reachable cell if target is -1, entering only the allowed clusters.
+	 * @return True if target was reached
+	 */
+	private boolean search(int source, int target) {
+		queue.clear();
+		stamps[source] = stamp;
+		distance[source] = 0.0;
+		parent[source] = -1;
+		queue.insert(source, 0.0);
+		while (!queue.isEmpty()) {
+			int current = queue.extractMin();
+			expanded++;
+			if (current == target) {
+				return true;
+			}
+			for (int d = 0; d < GridGraph.DIRECTIONS; d++) {
+				int next = grid.neighbour(current, d);
+				if (next == -1 || allowed[clusterOf(next)] != stamp) {
+					continue;
+				}
+				double newDist = distance[current] + grid.weight(current, next);
+				if (stamps[next] != stamp || newDist < distance[next]) {
+					stamps[next] = stamp;
+					distance[next] = newDist;
+					parent[next] = current;
+					queue.insertOrDecrease(next, target == -1 ? newDist : newDist + heuristic.estimate(next, target));
+				}
+			}
+		}
+		return target == -1;
+	}
+
+	private int[] path(int target) {
+		int length = 0;
+		for (int at = target; at != -1; at = parent[at]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int at = target; at != -1; at = parent[at]) {
+			path[--length] = at;
+		}
+		return path;
+	}
+
+	/**
+	 * Starts a new search, so that older entries in the scratch arrays are ignored.
+	 */
+	private void begin() {
+		if (++stamp == 0) {
+			//the stamp wrapped around, so older stamps could collide with it
+			Arrays.fill(stamps, 0);
+			Arrays.fill(allowed, 0);
+			Arrays.fill(abstractStamps, 0);
+			stamp = 1;
+		}
+	}
+
+	/**
+	 * Rebuilds the clusters marked as changed since the last query.
+	 */
+	private void applyChanges() {
+		boolean[] changed;
+		synchronized (this) {
+			if (dirtyCount == 0) {
+				return;
+			}
+			changed = dirty.clone();
+			Arrays.fill(dirty, false);
+			dirtyCount = 0;
+		}
+		for (int c = 0; c < changed.length; c++) {
+			if (changed[c]) {
+				rebuildCluster(c);
+			}
+		}
+	}
+
+	/**
+	 * Copies a node's new elevation into the grid and marks its cluster.
+	 */
+	private void nodeChanged(Node node, NodeListener.Change change) {
+		Integer id = ids.get(node);
+		if (id != null && change == NodeListener.Change.ELEVATION) {
+			grid.setElevation(id, node.getElevation());
+			elevationChanged(id);
+		}
+	}
+
+	private int idOf(Node node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			throw new IllegalArgumentException("Node is not part of the grid");
+		}
+		return id;
+	}
+
+	/**
+	 * @return The next position along a border of first..last, ending exactly at last
+	 */
+	private static int next(int at, int first, int last, int spacing) {
+		if (at == last) {
+			return last + 1;
+		}
+		return Math.min(at + spacing, last);
+	}
+
+	/**
+	 * Stores values at index, growing the array if needed.
+	 * @return The array holding the values
+	 */
+	private static int[] add(int[] array, int index, int... values) {
+		int at = index * values.length;
+		if (at + values.length > array.length) {
+			array = Arrays.copyOf(array, Math.max(array.length * 2, at + values.length));
+		}
+		System.arraycopy(values, 0, array, at, values.length);
+		return array;
+	}
+}
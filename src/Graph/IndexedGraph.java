@@ -0,0 +1,56 @@
+package Graph;
+
+/**
+ * A read-only graph whose nodes are the integers 0..nodeCount()-1.
+ * Neighbours are copied into caller-supplied arrays so that searches can
+ * walk the graph without allocating per edge.
+ */
+public interface IndexedGraph {
+
+	int nodeCount();
+
+	/**
+	 * @return An upper bound on the number of edges leaving any node
+	 */
+	int maxDegree();
+
+	/**
+	 * Copies the edges leaving a node into the given arrays, in the same order
+	 * as the node's Edge list.
+	 * @param node The id of the source node
+	 * @param targets Receives the id of each destination, at least maxDegree() long
+	 * @param weights Receives the weight of each edge, at least maxDegree() long
+	 * @return The number of edges copied
+	 */
+	int neighbours(int node, int[] targets, double[] weights);
+
+	/**
+	 * Returns the graph with every edge turned around, keeping its weight, so
+	 * that node's neighbours in the reverse graph are the nodes with an edge to it.
+	 * Used by searches that work backwards from the target.
+	 * @return The reverse graph, with the same node ids
+	 */
+	IndexedGraph reverse();
+
+	/**
+	 * Returns the largest weight of any edge that can be crossed, which sizes
+	 * the buckets of a bucket queue. Graphs that know it, or can keep it
+	 * until their weights change, should override this scan of every edge.
+	 * @return The largest finite edge weight, or 0 if there is none
+	 */
+	default double maxEdgeWeight() {
+		int[] targets = new int[maxDegree()];
+		double[] weights = new double[maxDegree()];
+		double max = 0.0;
+		for (int node = 0; node < nodeCount(); node++) {
+			int count = neighbours(node, targets, weights);
+			for (int i = 0; i < count; i++) {
+				//edges that cannot be crossed are never relaxed
+				if (weights[i] != Double.POSITIVE_INFINITY) {
+					max = Math.max(max, weights[i]);
+				}
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,73 @@
+package Graph;
+
+/**
+ * A min-priority queue over the integer ids 0..capacity-1 that supports
+ * decreasing the priority of an element already in the queue.
+ * Elements with equal priority are extracted smallest id first, so a search
+ * driven by any implementation visits nodes in the same order.
+ */
+public interface IndexedPriorityQueue {
+
+	/**
+	 * Adds an id that is not currently in the queue.
+	 * @param id The id to add
+	 * @param priority The priority of the id
+	 */
+	void insert(int id, double priority);
+
+	/**
+	 * Lowers the priority of an id that is already in the queue.
+	 * @param id The id to update
+	 * @param priority The new priority, no greater than the current one
+	 */
+	void decreaseKey(int id, double priority);
+
+	/**
+	 * Removes the id with the smallest priority.
+	 * @return The removed id
+	 */
+	int extractMin();
+
+	/**
+	 * @return The id with the smallest priority, without removing it
+	 */
+	int peekMin();
+
+	/**
+	 * @param id The id to look for
+	 * @return True if the id is currently in the queue
+	 */
+	boolean contains(int id);
+
+	/**
+	 * @param id An id currently in the queue
+	 * @return The priority the id was queued with
+	 */
+	double getPriority(int id);
+
+	int size();
+
+	/**
+	 * Removes every element, leaving the queue ready for another search.
+	 */
+	void clear();
+
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Inserts the id, or lowers its priority if it is already queued
+	 * with a higher one.
+	 * @param id The id to add or update
+	 * @param priority The priority of the id
+	 */
+	default void insertOrDecrease(int id, double priority) {
+		if (!contains(id)) {
+			insert(id, priority);
+		}
+		else if (priority < getPriority(id)) {
+			decreaseKey(id, priority);
+		}
+	}
+}
@@ -0,0 +1,605 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first, depth-first, Dijkstra and A* searches over an IndexedGraph.
+ * Each explores neighbours in the same order and breaks ties the same way
+ * as the equivalent Node based search in Graph, so on a graph built from
+ * connected nodes they return the same paths, as arrays of node ids.
+ */
+public final class IndexedSearch {
+
+	private IndexedSearch() {
+	}
+
+	/**
+	 * Performs a breadth-first search and returns the path with the fewest edges.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] breadthFirstSearch(IndexedGraph graph, int start, int target) {
+		return breadthFirstSearch(graph, start, target, null);
+	}
+
+	/**
+	 * Performs a breadth-first search, recording what it explored.
+	 * @param stats Receives the search's counters, or null
+	 * @see #breadthFirstSearch(IndexedGraph, int, int)
+	 */
+	public static int[] breadthFirstSearch(IndexedGraph graph, int start, int target, SearchStats stats) {
+		SearchEvent event = new SearchEvent();
+		SearchStats local = begin(event, stats);
+		SearchContext context = SearchContext.acquire(graph.nodeCount(), graph.maxDegree());
+		try {
+			int[] queue = context.queue; //every node is enqueued at most once
+			int[] targets = context.targets;
+			double[] weights = context.weights;
+
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			context.reach(start, -1);
+			if (local != null) {
+				local.pushed(1);
+			}
+
+			while (head < tail) {
+				int current = queue[head++];
+				if (local != null) {
+					local.nodeSettled();
+				}
+				if (current == target) {
+					return finish(event, SearchAlgorithm.BREADTH_FIRST, graph, start, target, context.path(target),
+							local, stats);
+				}
+				int count = graph.neighbours(current, targets, weights);
+				if (local != null) {
+					local.edgesRelaxed(count);
+				}
+				for (int i = 0; i < count; i++) {
+					int neighbour = targets[i];
+					if (!context.isReached(neighbour)) {
+						context.reach(neighbour, current);
+						queue[tail++] = neighbour;
+						if (local != null) {
+							local.pushed(tail - head);
+						}
+					}
+				}
+			}
+		}
+		finally {
+			context.release();
+		}
+		return finish(event, SearchAlgorithm.BREADTH_FIRST, graph, start, target, null, local, stats);
+	}
+
+	/**
+	 * Performs a depth-first search and returns the first-found path,
+	 * always following the first unvisited neighbour.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] depthFirstSearch(IndexedGraph graph, int start, int target) {
+		return depthFirstSearch(graph, start, target, null);
+	}
+
+	/**
+	 * Performs a depth-first search, recording what it explored. Each node
+	 * counts as settled when it is first pushed.
+	 * @param stats Receives the search's counters, or null
+	 * @see #depthFirstSearch(IndexedGraph, int, int)
+	 */
+	public static int[] depthFirstSearch(IndexedGraph graph, int start, int target, SearchStats stats) {
+		SearchEvent event = new SearchEvent();
+		SearchStats local = begin(event, stats);
+		SearchContext context = SearchContext.acquire(graph.nodeCount(), graph.maxDegree());
+		try {
+			int[] stack = context.queue;
+			int[] nextEdge = context.nextEdge; //where to resume scanning each node's edges
+			int[] targets = context.targets;
+			double[] weights = context.weights;
+
+			int top = 0;
+			stack[top++] = start;
+			context.reach(start, -1);
+			nextEdge[start] = 0;
+			if (local != null) {
+				local.pushed(1);
+				local.nodeSettled();
+			}
+
+			while (top > 0) {
+				int current = stack[top - 1];
+				if (current == target) {
+					return finish(event, SearchAlgorithm.DEPTH_FIRST, graph, start, target, Arrays.copyOf(stack, top),
+							local, stats);
+				}
+				/*
+				 * Neighbours before nextEdge were visited when last scanned and
+				 * stay visited, so resuming there finds the same first unvisited neighbour.
+				 */
+				int count = graph.neighbours(current, targets, weights);
+				int i = nextEdge[current];
+				while (i < count && context.isReached(targets[i])) {
+					i++;
+				}
+				if (local != null) {
+					local.edgesRelaxed(Math.min(i + 1, count) - nextEdge[current]);
+				}
+				nextEdge[current] = i;
+				if (i < count) {
+					context.reach(targets[i], current);
+					nextEdge[targets[i]] = 0;
+					stack[top++] = targets[i];
+					if (local != null) {
+						local.pushed(top);
+						local.nodeSettled();
+					}
+				}
+				else {
+					//backtrack when there is no unvisited neighbour
+					top--;
+				}
+			}
+		}
+		finally {
+			context.release();
+		}
+		return finish(event, SearchAlgorithm.DEPTH_FIRST, graph, start, target, null, local, stats);
+	}
+
+	/**
+	 * Performs a search using Dijkstra's algorithm with a binary heap.
+	 * @see #dijkstrasSearch(IndexedGraph, int, int, QueueType)
+	 */
+	public static int[] dijkstrasSearch(IndexedGraph graph, int start, int target) {
+		return dijkstrasSearch(graph, start, target, QueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * Performs a search using Dijkstra's algorithm and returns the least-costly path.
+	 * Equal distances are settled in order of node id.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param queueType The priority queue to order the search with
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] dijkstrasSearch(IndexedGraph graph, int start, int target, QueueType queueType) {
+		return weightedSearch(graph, start, target, null, queueType, null);
+	}
+
+	/**
+	 * Performs a search using Dijkstra's algorithm, recording what it explored.
+	 * @param stats Receives the search's counters
+	 * @see #dijkstrasSearch(IndexedGraph, int, int, QueueType)
+	 */
+	public static int[] dijkstrasSearch(IndexedGraph graph, int start, int target, QueueType queueType,
+			SearchStats stats) {
+		return weightedSearch(graph, start, target, null, queueType, stats);
+	}
+
+	/**
+	 * Performs an A* search with a binary heap.
+	 * @see #aStarSearch(IndexedGraph, int, int, Heuristic, QueueType)
+	 */
+	public static int[] aStarSearch(IndexedGraph graph, int start, int target, Heuristic heuristic) {
+		return aStarSearch(graph, start, target, heuristic, QueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * Performs an A* search, expanding nodes in order of distance from start plus
+	 * estimated cost to target. With an admissible heuristic the path is least-costly.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param heuristic Estimates the remaining cost to target
+	 * @param queueType The priority queue to order the search with
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] aStarSearch(IndexedGraph graph, int start, int target, Heuristic heuristic,
+			QueueType queueType) {
+		return weightedSearch(graph, start, target, heuristic, queueType, null);
+	}
+
+	/**
+	 * Performs an A* search, recording what it explored.
+	 * @param stats Receives the search's counters
+	 * @see #aStarSearch(IndexedGraph, int, int, Heuristic, QueueType)
+	 */
+	public static int[] aStarSearch(IndexedGraph graph, int start, int target, Heuristic heuristic,
+			QueueType queueType, SearchStats stats) {
+		return weightedSearch(graph, start, target, heuristic, queueType, stats);
+	}
+
+	/**
+	 * Searches for the least-costly path, ordering nodes by their distance from
+	 * start plus the heuristic's estimate, if there is one.
+	 */
+	private static int[] weightedSearch(IndexedGraph graph, int start, int target, Heuristic heuristic,
+			QueueType queueType, SearchStats stats) {
+		SearchEvent event = new SearchEvent();
+		SearchStats local = begin(event, stats);
+		SearchAlgorithm algorithm = heuristic != null ? SearchAlgorithm.A_STAR : SearchAlgorithm.DIJKSTRA;
+		SearchContext context = SearchContext.acquire(graph.nodeCount(), graph.maxDegree());
+		try {
+			int[] targets = context.targets;
+			double[] weights = context.weights;
+
+			//a consistent heuristic can raise a priority by up to twice an edge weight
+			IndexedPriorityQueue queue = context.queue(queueType, queueType == QueueType.BUCKET_QUEUE
+					? maxEdgeWeight(graph) * (heuristic != null ? 2 : 1) : 0.0);
+			context.reach(start, 0.0, -1);
+			queue.insert(start, heuristic != null ? heuristic.estimate(start, target) : 0.0);
+			if (local != null) {
+				local.pushed(1);
+			}
+
+			while (!queue.isEmpty()) {
+				int current = queue.extractMin();
+				if (local != null) {
+					local.nodeSettled();
+				}
+				if (current == target) {
+					return finish(event, algorithm, start, target, context.path(target), context.distance(target),
+							local, stats);
+				}
+
+				double currentDistance = context.distance(current);
+				int count = graph.neighbours(current, targets, weights);
+				if (local != null) {
+					local.edgesRelaxed(count);
+				}
+				for (int i = 0; i < count; i++) {
+					int neighbour = targets[i];
+					double newDist = currentDistance + weights[i];
+					//only rounding in the heuristic can improve a settled node, which is then requeued
+					if (newDist < context.distance(neighbour)) {
+						context.reach(neighbour, newDist, current);
+						if (local != null) {
+							countUpdate(local, queue, neighbour);
+						}
+						queue.insertOrDecrease(neighbour, heuristic != null
+								? newDist + heuristic.estimate(neighbour, target) : newDist);
+					}
+				}
+			}
+		}
+		finally {
+			context.release();
+		}
+		return finish(event, algorithm, start, target, null, Double.MAX_VALUE, local, stats);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from source to every reachable node with binary heaps.
+	 * @see #shortestPathTree(IndexedGraph, int, QueueType)
+	 */
+	public static ShortestPathTree shortestPathTree(IndexedGraph graph, int source) {
+		return shortestPathTree(graph, source, QueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from source until every reachable node is
+	 * settled, keeping the distances and parents of all of them, so paths to
+	 * any number of destinations come from one search.
+	 * @param graph The graph to search
+	 * @param source The id of the root of the tree
+	 * @param queueType The priority queue to use
+	 * @return The shortest path tree rooted at source
+	 */
+	public static ShortestPathTree shortestPathTree(IndexedGraph graph, int source, QueueType queueType) {
+		int n = graph.nodeCount();
+		double[] distance = new double[n];
+		int[] parent = new int[n];
+		int[] order = new int[n];
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		Arrays.fill(distance, Double.MAX_VALUE);
+		Arrays.fill(parent, -1);
+
+		IndexedPriorityQueue queue = queueType.create(n,
+				queueType == QueueType.BUCKET_QUEUE ? maxEdgeWeight(graph) : 0.0);
+		distance[source] = 0.0;
+		queue.insert(source, 0.0);
+		int settled = 0;
+		while (!queue.isEmpty()) {
+			int current = queue.extractMin();
+			order[settled++] = current;
+			int count = graph.neighbours(current, targets, weights);
+			for (int i = 0; i < count; i++) {
+				int neighbour = targets[i];
+				double newDist = distance[current] + weights[i];
+				if (newDist < distance[neighbour]) {
+					distance[neighbour] = newDist;
+					parent[neighbour] = current;
+					queue.insertOrDecrease(neighbour, newDist);
+				}
+			}
+		}
+		return new ShortestPathTree(graph, source, distance, parent, order, settled);
+	}
+
+	/**
+	 * Performs a bidirectional search using Dijkstra's algorithm with binary heaps.
+	 * @see #bidirectionalSearch(IndexedGraph, int, int, Heuristic, QueueType, SearchStats)
+	 */
+	public static int[] bidirectionalSearch(IndexedGraph graph, int start, int target) {
+		return bidirectionalSearch(graph, start, target, null, QueueType.BINARY_HEAP, null);
+	}
+
+	/**
+	 * Performs a bidirectional A* search with binary heaps.
+	 * @see #bidirectionalSearch(IndexedGraph, int, int, Heuristic, QueueType, SearchStats)
+	 */
+	public static int[] bidirectionalAStarSearch(IndexedGraph graph, int start, int target, Heuristic heuristic) {
+		return bidirectionalSearch(graph, start, target, heuristic, QueueType.BINARY_HEAP, null);
+	}
+
+	/**
+	 * Searches forwards from start and, over the reverse graph, backwards from
+	 * target, always advancing the side with the smaller queue minimum, and
+	 * returns the least-costly path. The searches stop once the two minimums
+	 * add up to at least the cheapest path found where they met, after
+	 * settling roughly half as many nodes as a one-directional search.
+	 * <p>
+	 * With a heuristic, both sides use the average potential
+	 * (h(v, target) - h(start, v)) / 2, which keeps them consistent with each
+	 * other, where h(start, v) is the heuristic's estimateFrom.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param heuristic A heuristic, or null for Dijkstra's algorithm
+	 * @param queueType The priority queue to order both searches with
+	 * @param stats Receives the counters of both searches, or null
+	 * @return The ids on the path from start to target, or null if target is unreachable
+	 */
+	public static int[] bidirectionalSearch(IndexedGraph graph, int start, int target, Heuristic heuristic,
+			QueueType queueType, SearchStats stats) {
+		SearchEvent event = new SearchEvent();
+		SearchStats local = begin(event, stats);
+		SearchAlgorithm algorithm = heuristic != null
+				? SearchAlgorithm.BIDIRECTIONAL_A_STAR : SearchAlgorithm.BIDIRECTIONAL;
+		if (start == target) {
+			return finish(event, algorithm, start, target, new int[]{start}, 0.0, local, stats);
+		}
+		IndexedGraph reverse = graph.reverse();
+		int n = graph.nodeCount();
+		double[] forwardDistance = new double[n];
+		double[] backwardDistance = new double[n];
+		int[] forwardParent = new int[n]; //previous node on the way from start
+		int[] backwardParent = new int[n]; //next node on the way to target
+		double[] potential = new double[n]; //NaN until first needed
+		int[] targets = new int[Math.max(graph.maxDegree(), reverse.maxDegree())];
+		double[] weights = new double[targets.length];
+		Arrays.fill(forwardDistance, Double.MAX_VALUE);
+		Arrays.fill(backwardDistance, Double.MAX_VALUE);
+		Arrays.fill(potential, heuristic != null ? Double.NaN : 0.0);
+
+		double maxWeight = queueType == QueueType.BUCKET_QUEUE ? maxEdgeWeight(graph) * 2 : 0.0;
+		IndexedPriorityQueue forward = queueType.create(n, maxWeight);
+		IndexedPriorityQueue backward = queueType.create(n, maxWeight);
+		forwardDistance[start] = 0.0;
+		forwardParent[start] = -1;
+		forward.insert(start, potential(heuristic, potential, start, start, target));
+		backwardDistance[target] = 0.0;
+		backwardParent[target] = -1;
+		backward.insert(target, -potential(heuristic, potential, target, start, target));
+		if (local != null) {
+			local.pushed(1);
+			local.pushed(2);
+		}
+
+		double best = Double.MAX_VALUE; //cost of the cheapest path found so far
+		int meetFrom = -1; //that path is start..meetFrom -> meetTo..target
+		int meetTo = -1;
+
+		while (!forward.isEmpty() && !backward.isEmpty()) {
+			double forwardMin = forward.getPriority(forward.peekMin());
+			double backwardMin = backward.getPriority(backward.peekMin());
+			//the potentials cancel out, so the keys bound any path not yet found
+			if (forwardMin + backwardMin >= best) {
+				break;
+			}
+			if (forwardMin <= backwardMin) {
+				int current = forward.extractMin();
+				if (local != null) {
+					local.nodeSettled();
+				}
+				int count = graph.neighbours(current, targets, weights);
+				if (local != null) {
+					local.edgesRelaxed(count);
+				}
+				for (int i = 0; i < count; i++) {
+					int neighbour = targets[i];
+					double newDist = forwardDistance[current] + weights[i];
+					if (newDist < forwardDistance[neighbour]) {
+						forwardDistance[neighbour] = newDist;
+						forwardParent[neighbour] = current;
+						if (local != null) {
+							countUpdate(local, forward, neighbour, backward.size());
+						}
+						forward.insertOrDecrease(neighbour,
+								newDist + potential(heuristic, potential, neighbour, start, target));
+					}
+					if (backwardDistance[neighbour] != Double.MAX_VALUE
+							&& forwardDistance[current] + weights[i] + backwardDistance[neighbour] < best) {
+						best = forwardDistance[current] + weights[i] + backwardDistance[neighbour];
+						meetFrom = current;
+						meetTo = neighbour;
+					}
+				}
+			}
+			else {
+				int current = backward.extractMin();
+				if (local != null) {
+					local.nodeSettled();
+				}
+				int count = reverse.neighbours(current, targets, weights);
+				if (local != null) {
+					local.edgesRelaxed(count);
+				}
+				for (int i = 0; i < count; i++) {
+					int neighbour = targets[i];
+					double newDist = backwardDistance[current] + weights[i];
+					if (newDist < backwardDistance[neighbour]) {
+						backwardDistance[neighbour] = newDist;
+						backwardParent[neighbour] = current;
+						if (local != null) {
+							countUpdate(local, backward, neighbour, forward.size());
+						}
+						backward.insertOrDecrease(neighbour,
+								newDist - potential(heuristic, potential, neighbour, start, target));
+					}
+					if (forwardDistance[neighbour] != Double.MAX_VALUE
+							&& forwardDistance[neighbour] + weights[i] + backwardDistance[current] < best) {
+						best = forwardDistance[neighbour] + weights[i] + backwardDistance[current];
+						meetFrom = neighbour;
+						meetTo = current;
+					}
+				}
+			}
+		}
+		if (meetFrom == -1) {
+			return finish(event, algorithm, start, target, null, Double.MAX_VALUE, local, stats);
+		}
+
+		//join the forward path to meetFrom with the backward path from meetTo
+		int[] head = buildPath(forwardParent, meetFrom);
+		int length = head.length;
+		for (int at = meetTo; at != -1; at = backwardParent[at]) {
+			length++;
+		}
+		int[] path = Arrays.copyOf(head, length);
+		int index = head.length;
+		for (int at = meetTo; at != -1; at = backwardParent[at]) {
+			path[index++] = at;
+		}
+		return finish(event, algorithm, start, target, path, best, local, stats);
+	}
+
+	/**
+	 * Starts timing a search and, if its caller wants counters or a recording
+	 * wants its event, gives it fresh counters of its own.
+	 * @return The search's counters, or null if nothing needs them
+	 */
+	private static SearchStats begin(SearchEvent event, SearchStats stats) {
+		event.begin();
+		if (stats == null && !event.isEnabled()) {
+			return null;
+		}
+		SearchStats local = new SearchStats();
+		local.started();
+		return local;
+	}
+
+	/**
+	 * Finishes an unweighted search, costing its path from the graph's weights.
+	 * @see #finish(SearchEvent, SearchAlgorithm, int, int, int[], double, SearchStats, SearchStats)
+	 */
+	private static int[] finish(SearchEvent event, SearchAlgorithm algorithm, IndexedGraph graph, int start,
+			int target, int[] path, SearchStats local, SearchStats stats) {
+		return finish(event, algorithm, start, target, path, local != null ? pathCost(graph, path) : 0.0, local, stats);
+	}
+
+	/**
+	 * Records the end of a search in its counters, adds them to the caller's
+	 * and commits the search's event.
+	 * @return The path, for the search to return
+	 */
+	private static int[] finish(SearchEvent event, SearchAlgorithm algorithm, int start, int target, int[] path,
+			double cost, SearchStats local, SearchStats stats) {
+		if (local != null) {
+			local.finished(path != null ? cost : Double.MAX_VALUE);
+			if (stats != null) {
+				stats.add(local);
+			}
+			event.commit(algorithm, start, target, local, path != null ? path.length : 0);
+		}
+		return path;
+	}
+
+	/**
+	 * Counts a node about to be passed to insertOrDecrease as a push or decrease-key.
+	 */
+	private static void countUpdate(SearchStats stats, IndexedPriorityQueue queue, int node) {
+		countUpdate(stats, queue, node, 0);
+	}
+
+	/**
+	 * @param others The number of nodes waiting in another queue of the same search
+	 */
+	private static void countUpdate(SearchStats stats, IndexedPriorityQueue queue, int node, int others) {
+		if (queue.contains(node)) {
+			stats.decreasedKey();
+		}
+		else {
+			stats.pushed(queue.size() + 1 + others);
+		}
+	}
+
+	/**
+	 * @return The sum of the weights along a path, or Double.MAX_VALUE if there is none
+	 */
+	private static double pathCost(IndexedGraph graph, int[] path) {
+		if (path == null) {
+			return Double.MAX_VALUE;
+		}
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			int count = graph.neighbours(path[i], targets, weights);
+			for (int e = 0; e < count; e++) {
+				if (targets[e] == path[i + 1]) {
+					total += weights[e];
+					break;
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @return The forward potential of a node, computed once per search
+	 */
+	private static double potential(Heuristic heuristic, double[] potential, int node, int start, int target) {
+		if (Double.isNaN(potential[node])) {
+			potential[node] = (heuristic.estimate(node, target) - heuristic.estimateFrom(start, node)) / 2;
+		}
+		return potential[node];
+	}
+
+	/**
+	 * @param graph The graph to ask
+	 * @return The largest finite weight of any edge in the graph
+	 * @see IndexedGraph#maxEdgeWeight()
+	 */
+	public static double maxEdgeWeight(IndexedGraph graph) {
+		return graph.maxEdgeWeight();
+	}
+
+	/**
+	 * Follows parent links back from the target, where the start's parent is -1.
+	 * @param parent The parent of each reached node
+	 * @param target The id of the last node on the path
+	 * @return The ids on the path, start first
+	 */
+	static int[] buildPath(int[] parent, int target) {
+		int length = 0;
+		for (int at = target; at != -1; at = parent[at]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int at = target; at != -1; at = parent[at]) {
+			path[--length] = at;
+		}
+		return path;
+	}
+}
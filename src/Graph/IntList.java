@@ -0,0 +1,62 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, for the parallel searches to gather nodes into
+ * and the contraction hierarchy to hold its adjacency, without boxing them.
+ */
+final class IntList {
+	int[] values;
+	int size;
+
+	IntList() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity The initial capacity, small for lists kept per node
+	 */
+	IntList(int capacity) {
+		values = new int[capacity];
+	}
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	void addAll(IntList other) {
+		if (size + other.size > values.length) {
+			values = Arrays.copyOf(values, Math.max(size + other.size, values.length * 2));
+		}
+		System.arraycopy(other.values, 0, values, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * Removes a value by moving the last one into its place, so order is not kept.
+	 */
+	void removeAt(int index) {
+		values[index] = values[--size];
+	}
+
+	int indexOf(int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,315 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The ALT heuristic: A* guided by landmarks and the triangle inequality.
+ * For a handful of landmark nodes L, the exact costs d(L, v) and d(v, L) are
+ * precomputed for every node v, so that
+ * d(v, t) >= max(d(v, L) - d(t, L), d(L, t) - d(L, v))
+ * gives a lower bound on the remaining cost that, unlike the straight-line
+ * bound, accounts for the elevation changes along the way.
+ * <p>
+ * Distances are stored node by node, so estimating a node reads one
+ * contiguous run of each table.
+ */
+public class Landmarks implements Heuristic {
+
+	/**
+	 * How landmarks are chosen.
+	 */
+	public enum Selection {
+		/** Each landmark is the node farthest from those already chosen. */
+		FARTHEST,
+		/** Each landmark is placed where the current ones give the weakest bounds. */
+		AVOID
+	}
+
+	private final IndexedGraph graph;
+	private final int[] landmarks;
+	private final int count;
+	private final double[] fromLandmark; //d(L, v) at [v * count + l]
+	private final double[] toLandmark; //d(v, L) at [v * count + l]
+
+	/**
+	 * Chooses landmarks with the avoid strategy and precomputes their distances.
+	 * @param graph The graph to estimate costs on
+	 * @param count The number of landmarks, typically 8 to 16
+	 */
+	public Landmarks(IndexedGraph graph, int count) {
+		this(graph, count, Selection.AVOID, 42);
+	}
+
+	/**
+	 * @param graph The graph to estimate costs on
+	 * @param count The number of landmarks
+	 * @param selection How to choose the landmarks
+	 * @param seed Seeds the random choices made by the selection
+	 */
+	public Landmarks(IndexedGraph graph, int count, Selection selection, long seed) {
+		if (count < 1 || count > graph.nodeCount()) {
+			throw new IllegalArgumentException("Invalid number of landmarks: " + count);
+		}
+		this.graph = graph;
+		this.count = count;
+		int n = graph.nodeCount();
+		landmarks = new int[count];
+		fromLandmark = new double[n * count];
+		toLandmark = new double[n * count];
+
+		Random random = new Random(seed);
+		for (int l = 0; l < count; l++) {
+			if (selection == Selection.FARTHEST || l == 0) {
+				landmarks[l] = farthest(l, random);
+			}
+			else {
+				landmarks[l] = avoid(l, random);
+			}
+			//record the new landmark's distances in both directions
+			ShortestPathTree tree = IndexedSearch.shortestPathTree(graph, landmarks[l]);
+			for (int v = 0; v < n; v++) {
+				fromLandmark[v * count + l] = tree.getDistance(v);
+			}
+			tree = IndexedSearch.shortestPathTree(graph.reverse(), landmarks[l]);
+			for (int v = 0; v < n; v++) {
+				toLandmark[v * count + l] = tree.getDistance(v);
+			}
+		}
+	}
+
+	/**
+	 * Takes the maximum of the triangle inequality bounds over all landmarks.
+	 * Landmarks that cannot reach or be reached from a node give no bound.
+	 */
+	@Override
+	public double estimate(int node, int target) {
+		double best = 0.0;
+		int v = node * count;
+		int t = target * count;
+		for (int l = 0; l < count; l++) {
+			double viaTo = toLandmark[v + l] - toLandmark[t + l];
+			double viaFrom = fromLandmark[t + l] - fromLandmark[v + l];
+			if (toLandmark[v + l] != Double.MAX_VALUE && toLandmark[t + l] != Double.MAX_VALUE && viaTo > best) {
+				best = viaTo;
+			}
+			if (fromLandmark[t + l] != Double.MAX_VALUE && fromLandmark[v + l] != Double.MAX_VALUE
+					&& viaFrom > best) {
+				best = viaFrom;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Bounds d(source, node) the same way, since the tables are not symmetric.
+	 */
+	@Override
+	public double estimateFrom(int source, int node) {
+		return estimate(source, node);
+	}
+
+	/**
+	 * Runs the same query as an A* search with these landmarks and as a search
+	 * guided by another heuristic, or Dijkstra's algorithm if there is none.
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param baseline The heuristic to compare against, or null
+	 * @return The number of nodes each search settled
+	 */
+	public Comparison compare(int start, int target, Heuristic baseline) {
+		SearchStats withLandmarks = new SearchStats();
+		SearchStats without = new SearchStats();
+		int[] path = IndexedSearch.aStarSearch(graph, start, target, this, QueueType.BINARY_HEAP, withLandmarks);
+		if (baseline != null) {
+			IndexedSearch.aStarSearch(graph, start, target, baseline, QueueType.BINARY_HEAP, without);
+		}
+		else {
+			IndexedSearch.dijkstrasSearch(graph, start, target, QueueType.BINARY_HEAP, without);
+		}
+		return new Comparison(path, withLandmarks.getNodesSettled(), without.getNodesSettled());
+	}
+
+	/**
+	 * @return The ids of the landmarks, in the order they were chosen
+	 */
+	public int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	/**
+	 * @param landmark The index of a landmark
+	 * @param node The id of a node
+	 * @return d(landmark, node), or Double.MAX_VALUE if it is unreachable
+	 */
+	public double distanceFrom(int landmark, int node) {
+		return fromLandmark[node * count + landmark];
+	}
+
+	/**
+	 * @param landmark The index of a landmark
+	 * @param node The id of a node
+	 * @return d(node, landmark), or Double.MAX_VALUE if it is unreachable
+	 */
+	public double distanceTo(int landmark, int node) {
+		return toLandmark[node * count + landmark];
+	}
+
+	/**
+	 * Picks the node whose nearest landmark is farthest away. The first
+	 * landmark is the node farthest from a random one.
+	 */
+	private int farthest(int chosen, Random random) {
+		int n = graph.nodeCount();
+		double[] nearest = new double[n];
+		if (chosen == 0) {
+			ShortestPathTree tree = IndexedSearch.shortestPathTree(graph, random.nextInt(n));
+			for (int v = 0; v < n; v++) {
+				nearest[v] = tree.getDistance(v);
+			}
+		}
+		else {
+			Arrays.fill(nearest, Double.MAX_VALUE);
+			for (int v = 0; v < n; v++) {
+				for (int l = 0; l < chosen; l++) {
+					nearest[v] = Math.min(nearest[v], fromLandmark[v * count + l]);
+				}
+			}
+		}
+		int best = -1;
+		for (int v = 0; v < n; v++) {
+			//unreachable nodes are skipped, so later landmarks stay in the same component
+			if (nearest[v] != Double.MAX_VALUE && (best == -1 || nearest[v] > nearest[best])) {
+				best = v;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Grows a shortest path tree from a random root and weights each node by
+	 * how much the current landmarks underestimate its distance from the root.
+	 * Subtrees containing a landmark are already well covered and weigh nothing.
+	 * Starting at the heaviest subtree, the walk follows the heaviest child
+	 * down to a leaf, which becomes the next landmark.
+	 */
+	private int avoid(int chosen, Random random) {
+		int n = graph.nodeCount();
+		int root = random.nextInt(n);
+		ShortestPathTree tree = IndexedSearch.shortestPathTree(graph, root);
+		int settled = tree.getSettledCount();
+
+		boolean[] isLandmark = new boolean[n];
+		for (int l = 0; l < chosen; l++) {
+			isLandmark[landmarks[l]] = true;
+		}
+		double[] size = new double[n];
+		boolean[] covered = new boolean[n];
+		for (int i = 0; i < settled; i++) {
+			int v = tree.getSettled(i);
+			size[v] = tree.getDistance(v) - partialEstimate(root, v, chosen);
+			covered[v] = isLandmark[v];
+		}
+		//children are settled after their parents, so accumulate in reverse order
+		for (int i = settled - 1; i > 0; i--) {
+			int v = tree.getSettled(i);
+			int p = tree.getParent(v);
+			covered[p] |= covered[v];
+			size[p] += size[v];
+		}
+		int heaviest = -1;
+		for (int i = 0; i < settled; i++) {
+			int v = tree.getSettled(i);
+			if (covered[v]) {
+				size[v] = 0.0;
+			}
+			if (heaviest == -1 || size[v] > size[heaviest]) {
+				heaviest = v;
+			}
+		}
+
+		//descend to a leaf through the heaviest children
+		int[] childOffsets = new int[n + 1];
+		for (int i = 1; i < settled; i++) {
+			childOffsets[tree.getParent(tree.getSettled(i)) + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			childOffsets[v + 1] += childOffsets[v];
+		}
+		int[] children = new int[Math.max(settled - 1, 0)];
+		int[] fill = Arrays.copyOf(childOffsets, n);
+		for (int i = 1; i < settled; i++) {
+			int v = tree.getSettled(i);
+			children[fill[tree.getParent(v)]++] = v;
+		}
+		int current = heaviest;
+		while (childOffsets[current] < childOffsets[current + 1]) {
+			int next = children[childOffsets[current]];
+			for (int c = childOffsets[current] + 1; c < childOffsets[current + 1]; c++) {
+				if (size[children[c]] > size[next]) {
+					next = children[c];
+				}
+			}
+			current = next;
+		}
+		return isLandmark[current] ? farthest(chosen, random) : current;
+	}
+
+	/**
+	 * @return The landmark bound on d(node, target) using only the first chosen landmarks
+	 */
+	private double partialEstimate(int node, int target, int chosen) {
+		double best = 0.0;
+		for (int l = 0; l < chosen; l++) {
+			double to = toLandmark[node * count + l];
+			double toTarget = toLandmark[target * count + l];
+			double from = fromLandmark[node * count + l];
+			double fromTarget = fromLandmark[target * count + l];
+			if (to != Double.MAX_VALUE && toTarget != Double.MAX_VALUE) {
+				best = Math.max(best, to - toTarget);
+			}
+			if (from != Double.MAX_VALUE && fromTarget != Double.MAX_VALUE) {
+				best = Math.max(best, fromTarget - from);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The number of nodes settled by the two searches of compare.
+	 */
+	public static class Comparison {
+		private final int[] path;
+		private final long settledWithLandmarks;
+		private final long settledWithout;
+
+		Comparison(int[] path, long settledWithLandmarks, long settledWithout) {
+			this.path = path;
+			this.settledWithLandmarks = settledWithLandmarks;
+			this.settledWithout = settledWithout;
+		}
+
+		/**
+		 * @return The path found using the landmarks, or null if there is none
+		 */
+		public int[] getPath() {
+			return path;
+		}
+
+		public long getSettledWithLandmarks() {
+			return settledWithLandmarks;
+		}
+
+		public long getSettledWithout() {
+			return settledWithout;
+		}
+
+		@Override
+		public String toString() {
+			return "Comparison{" +
+					"settledWithLandmarks=" + settledWithLandmarks +
+					", settledWithout=" + settledWithout +
+					'}';
+		}
+	}
+}
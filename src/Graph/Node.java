@@ -2,6 +2,8 @@ package Graph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A node represents one polygon on a terrain map. It has a number
@@ -20,6 +22,8 @@ public class Node implements Serializable {
 	private double elevation;
 	private Position position;
 	private ArrayList<Edge> edges;
+	private transient List<NodeListener> listeners; //created when the first listener is added
+	private transient int id = -1; //index in the node array, not kept by serialisation
 
 	public Node(double elevation, Position position) {
 		this.elevation = elevation;
@@ -33,6 +37,7 @@ public class Node implements Serializable {
 
 	public void setElevation(double elevation) {
 		this.elevation = elevation;
+		notifyListeners(NodeListener.Change.ELEVATION);
 	}
 
 	public Position getPosition() {
@@ -41,6 +46,21 @@ public class Node implements Serializable {
 
 	public void setPosition(Position position) {
 		this.position = position;
+		notifyListeners(NodeListener.Change.POSITION);
+	}
+
+	/**
+	 * Returns the node's dense integer id, its index in the array of nodes it
+	 * was loaded or connected with. GraphLoader and Graph.connectNodes assign
+	 * ids, which searches use in place of hashing nodes.
+	 * @return The id, or -1 if none has been assigned
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
 	}
 
 	public ArrayList<Edge> getEdges() {
@@ -49,6 +69,37 @@ public class Node implements Serializable {
 
 	public void setEdges(ArrayList<Edge> edges) {
 		this.edges = edges;
+		notifyListeners(NodeListener.Change.EDGES);
+	}
+
+	/**
+	 * Registers a listener to be told when this node's elevation, position
+	 * or edges are set. Listeners are not serialised.
+	 * @param listener The listener to add
+	 */
+	public synchronized void addListener(NodeListener listener) {
+		if (listeners == null) {
+			listeners = new CopyOnWriteArrayList<>();
+		}
+		listeners.add(listener);
+	}
+
+	public synchronized void removeListener(NodeListener listener) {
+		if (listeners != null) {
+			listeners.remove(listener);
+		}
+	}
+
+	private void notifyListeners(NodeListener.Change change) {
+		List<NodeListener> current;
+		synchronized (this) {
+			current = listeners;
+		}
+		if (current != null) {
+			for (NodeListener listener : current) {
+				listener.nodeChanged(this, change);
+			}
+		}
 	}
 
 	
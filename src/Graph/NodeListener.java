@@ -0,0 +1,21 @@
+package Graph;
+
+/**
+ * Notified when a node is changed through one of its setters.
+ * Changes made by editing the list returned by Node.getEdges are not reported.
+ */
+public interface NodeListener {
+
+	/**
+	 * The property of a node that was changed.
+	 */
+	enum Change {
+		ELEVATION, POSITION, EDGES
+	}
+
+	/**
+	 * @param node The node that changed
+	 * @param change Which of its properties changed
+	 */
+	void nodeChanged(Node node, Change change);
+}
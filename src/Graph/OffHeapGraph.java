@@ -0,0 +1,292 @@
+package Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+
+/**
+ * A read-only graph whose elevations, positions and adjacency live outside
+ * the Java heap, in direct or memory-mapped buffers, so that a map of
+ * millions of cells costs the garbage collector a handful of buffer objects
+ * rather than a Node, Position and Edge list per cell.
+ * <p>
+ * Node i's edges are targets[offsets[i]..offsets[i+1]), as in CsrGraph. A
+ * grid needs no adjacency: its cells are connected to their E, W, S, N, NE,
+ * SE, NW, SW neighbours, in that order, as in GridGraph. Weights are stored
+ * when copied from nodes, keeping any cost model applied to them, and are
+ * otherwise computed from the elevations and positions as Edge does.
+ * <p>
+ * A graph mapped from a GraphFile reads the file through the OS page cache,
+ * which every process mapping the same file shares. Every read is an
+ * absolute get, so searches may run on several threads at once. The memory
+ * is released once the graph is no longer reachable.
+ */
+public class OffHeapGraph implements IndexedGraph {
+
+	private final int nodeCount;
+	private final int rows; //0 unless the graph is a grid without adjacency
+	private final int cols;
+	private final DoubleBuffer elevations;
+	private final DoubleBuffer xs;
+	private final DoubleBuffer ys;
+	private final IntBuffer offsets; //null for a grid
+	private final IntBuffer targets;
+	private final DoubleBuffer weights; //null if computed
+	private final int maxDegree;
+	private OffHeapGraph reverse; //built on first use
+	private volatile double maxWeight = Double.NaN; //likewise
+
+	/**
+	 * Creates a graph over existing buffers, which must not change afterwards.
+	 * @param rows The number of rows of a grid without adjacency, or 0
+	 * @param cols The number of columns of a grid without adjacency, or 0
+	 * @param offsets The start of each node's edges and the end of the last, or null for a grid
+	 * @param targets The destination of each edge, or null for a grid
+	 * @param weights The weight of each edge, or null to compute them
+	 */
+	OffHeapGraph(int rows, int cols, DoubleBuffer elevations, DoubleBuffer xs, DoubleBuffer ys, IntBuffer offsets,
+			IntBuffer targets, DoubleBuffer weights) {
+		nodeCount = elevations.capacity();
+		if (offsets == null && (rows < 1 || (long) rows * cols != nodeCount)) {
+			throw new IllegalArgumentException("A graph without adjacency must be a grid of its nodes");
+		}
+		this.rows = offsets == null ? rows : 0;
+		this.cols = offsets == null ? cols : 0;
+		this.elevations = elevations;
+		this.xs = xs;
+		this.ys = ys;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		int degree = GridGraph.DIRECTIONS;
+		if (offsets != null) {
+			degree = 0;
+			for (int i = 0; i < nodeCount; i++) {
+				degree = Math.max(degree, offsets.get(i + 1) - offsets.get(i));
+			}
+		}
+		maxDegree = degree;
+	}
+
+	/**
+	 * Copies connected nodes off the heap, with their edges and current
+	 * weights. Edges to nodes outside the array are dropped.
+	 * @param nodes The nodes of the graph; node i is given the id i
+	 * @return The graph, which later changes to the nodes do not affect
+	 */
+	public static OffHeapGraph copyOf(Node[] nodes) {
+		CsrGraph csr = new CsrGraph(nodes);
+		int n = nodes.length;
+		DoubleBuffer elevations = doubles(n);
+		DoubleBuffer xs = doubles(n);
+		DoubleBuffer ys = doubles(n);
+		for (int i = 0; i < n; i++) {
+			elevations.put(i, nodes[i].getElevation());
+			xs.put(i, nodes[i].getPosition().x);
+			ys.put(i, nodes[i].getPosition().y);
+		}
+		IntBuffer offsets = ints(n + 1).put(csr.getOffsets());
+		IntBuffer targets = ints(csr.edgeCount()).put(csr.getTargets());
+		DoubleBuffer weights = doubles(csr.edgeCount()).put(csr.getWeights());
+		return new OffHeapGraph(0, 0, elevations, xs, ys, offsets, targets, weights);
+	}
+
+	/**
+	 * Copies a grid off the heap. Its edges stay implicit.
+	 * @param grid The grid to copy
+	 * @return The graph, which later changes to the grid do not affect
+	 */
+	public static OffHeapGraph copyOf(GridGraph grid) {
+		int n = grid.nodeCount();
+		DoubleBuffer elevations = doubles(n);
+		DoubleBuffer xs = doubles(n);
+		DoubleBuffer ys = doubles(n);
+		for (int i = 0; i < n; i++) {
+			elevations.put(i, grid.getElevation(i));
+			xs.put(i, grid.getX(i));
+			ys.put(i, grid.getY(i));
+		}
+		return new OffHeapGraph(grid.getRows(), grid.getCols(), elevations, xs, ys, null, null, null);
+	}
+
+	/**
+	 * Maps a graph file, which must hold adjacency or a grid, without reading it.
+	 * @param path The file to map, which must not be changed while mapped
+	 * @return The graph, reading the file as it searches
+	 * @throws IOException If the file cannot be read or is not a graph file
+	 * @see GraphFile#toOffHeapGraph()
+	 */
+	public static OffHeapGraph map(Path path) throws IOException {
+		return GraphFile.open(path).toOffHeapGraph();
+	}
+
+	@Override
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	@Override
+	public int maxDegree() {
+		return maxDegree;
+	}
+
+	@Override
+	public int neighbours(int node, int[] targets, double[] weights) {
+		if (offsets == null) {
+			return gridNeighbours(node, targets, weights);
+		}
+		int start = offsets.get(node);
+		int count = offsets.get(node + 1) - start;
+		for (int e = 0; e < count; e++) {
+			int to = this.targets.get(start + e);
+			targets[e] = to;
+			weights[e] = this.weights != null ? this.weights.get(start + e) : weight(node, to);
+		}
+		return count;
+	}
+
+	private int gridNeighbours(int node, int[] targets, double[] weights) {
+		int row = node / cols;
+		int col = node % cols;
+		int count = 0;
+		for (int d = 0; d < GridGraph.DIRECTIONS; d++) {
+			int r = row + GridGraph.ROW_STEP[d];
+			int c = col + GridGraph.COL_STEP[d];
+			if (r >= 0 && r < rows && c >= 0 && c < cols) {
+				int to = r * cols + c;
+				targets[count] = to;
+				weights[count] = weight(node, to);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Calculates the standard weight of travel between two nodes, as Edge does.
+	 * @return d(p1, p2) * (0.01+|e2-e1|)
+	 */
+	private double weight(int from, int to) {
+		double dx = xs.get(to) - xs.get(from);
+		double dy = ys.get(to) - ys.get(from);
+		return Edge.weight(Math.sqrt(dx * dx + dy * dy), elevations.get(from), elevations.get(to));
+	}
+
+	/**
+	 * Builds the transpose of this graph off the heap on first use, with its
+	 * weights, listing each node's incoming edges in order of their source id.
+	 * A grid is its own reverse.
+	 */
+	@Override
+	public synchronized OffHeapGraph reverse() {
+		if (offsets == null) {
+			return this;
+		}
+		if (reverse == null) {
+			int edges = offsets.get(nodeCount);
+			//count each node's incoming edges into fill[i + 1], then turn the counts into starts
+			int[] fill = new int[nodeCount + 1];
+			for (int e = 0; e < edges; e++) {
+				fill[targets.get(e) + 1]++;
+			}
+			for (int i = 0; i < nodeCount; i++) {
+				fill[i + 1] += fill[i];
+			}
+			IntBuffer reverseOffsets = ints(nodeCount + 1).put(fill);
+			IntBuffer reverseTargets = ints(edges);
+			DoubleBuffer reverseWeights = doubles(edges);
+			for (int from = 0; from < nodeCount; from++) {
+				for (int e = offsets.get(from); e < offsets.get(from + 1); e++) {
+					int to = targets.get(e);
+					int slot = fill[to]++;
+					reverseTargets.put(slot, from);
+					reverseWeights.put(slot, weights != null ? weights.get(e) : weight(from, to));
+				}
+			}
+			reverse = new OffHeapGraph(0, 0, elevations, xs, ys, reverseOffsets, reverseTargets, reverseWeights);
+			reverse.reverse = this;
+		}
+		return reverse;
+	}
+
+	/**
+	 * Scans the edges on first use only, as they never change.
+	 */
+	@Override
+	public double maxEdgeWeight() {
+		double max = maxWeight;
+		if (Double.isNaN(max)) {
+			max = IndexedGraph.super.maxEdgeWeight();
+			maxWeight = max;
+		}
+		return max;
+	}
+
+	/**
+	 * Estimates cost from the straight-line distance between two nodes.
+	 * @return A heuristic for A* over this graph
+	 */
+	public Heuristic euclideanHeuristic() {
+		return (node, target) -> {
+			double dx = xs.get(target) - xs.get(node);
+			double dy = ys.get(target) - ys.get(node);
+			return Edge.FLAT_COST * Math.sqrt(dx * dx + dy * dy);
+		};
+	}
+
+	/**
+	 * @return True if the graph is a grid whose edges are implicit
+	 */
+	public boolean isGrid() {
+		return offsets == null;
+	}
+
+	/**
+	 * @return The number of edges, counting both directions between grid cells
+	 */
+	public long edgeCount() {
+		if (offsets != null) {
+			return offsets.get(nodeCount);
+		}
+		//every pair of adjacent cells, horizontally, vertically and on both diagonals
+		long pairs = (long) rows * (cols - 1) + (long) (rows - 1) * cols + 2L * (rows - 1) * (cols - 1);
+		return 2 * pairs;
+	}
+
+	public double getElevation(int node) {
+		return elevations.get(node);
+	}
+
+	public double getX(int node) {
+		return xs.get(node);
+	}
+
+	public double getY(int node) {
+		return ys.get(node);
+	}
+
+	public Position getPosition(int node) {
+		return new Position(xs.get(node), ys.get(node));
+	}
+
+	private static DoubleBuffer doubles(long count) {
+		return direct(count * Double.BYTES).asDoubleBuffer();
+	}
+
+	private static IntBuffer ints(long count) {
+		return direct(count * Integer.BYTES).asIntBuffer();
+	}
+
+	/**
+	 * Allocates native memory, which a single buffer limits to 2GB.
+	 */
+	private static ByteBuffer direct(long bytes) {
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too large for one buffer: " + bytes + " bytes");
+		}
+		return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+	}
+}
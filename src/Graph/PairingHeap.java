@@ -0,0 +1,177 @@
+package Graph;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A pairing heap over integer ids, stored in parallel arrays rather than
+ * heap-allocated tree nodes. Insert and decrease-key are constant time;
+ * extractMin is amortised logarithmic using the standard two-pass merge.
+ */
+public class PairingHeap implements IndexedPriorityQueue {
+
+	private static final int NIL = -1;
+
+	private final double[] priorities;
+	private final int[] child; //leftmost child of each id
+	private final int[] sibling; //right sibling of each id
+	private final int[] previous; //left sibling, or parent for a leftmost child
+	private final boolean[] queued;
+	private final int[] pairs; //scratch space for the two-pass merge
+	private int root = NIL;
+	private int size;
+
+	/**
+	 * @param capacity The number of ids the heap can hold
+	 */
+	public PairingHeap(int capacity) {
+		priorities = new double[capacity];
+		child = new int[capacity];
+		sibling = new int[capacity];
+		previous = new int[capacity];
+		queued = new boolean[capacity];
+		pairs = new int[capacity];
+	}
+
+	@Override
+	public void insert(int id, double priority) {
+		if (queued[id]) {
+			throw new IllegalArgumentException("Id " + id + " is already queued");
+		}
+		priorities[id] = priority;
+		child[id] = NIL;
+		sibling[id] = NIL;
+		previous[id] = NIL;
+		queued[id] = true;
+		root = link(root, id);
+		size++;
+	}
+
+	@Override
+	public void decreaseKey(int id, double priority) {
+		if (!queued[id]) {
+			throw new IllegalArgumentException("Id " + id + " is not queued");
+		}
+		priorities[id] = priority;
+		if (id == root) {
+			return;
+		}
+		//cut the subtree rooted at id out of its parent's child list
+		int prev = previous[id];
+		if (child[prev] == id) {
+			child[prev] = sibling[id];
+		}
+		else {
+			sibling[prev] = sibling[id];
+		}
+		if (sibling[id] != NIL) {
+			previous[sibling[id]] = prev;
+		}
+		sibling[id] = NIL;
+		previous[id] = NIL;
+		root = link(root, id);
+	}
+
+	@Override
+	public int extractMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		int min = root;
+		queued[min] = false;
+		size--;
+
+		//first pass: link the root's children in pairs, left to right
+		int count = 0;
+		int current = child[min];
+		while (current != NIL) {
+			int a = current;
+			int b = sibling[a];
+			current = b != NIL ? sibling[b] : NIL;
+			sibling[a] = NIL;
+			previous[a] = NIL;
+			if (b != NIL) {
+				sibling[b] = NIL;
+				previous[b] = NIL;
+			}
+			pairs[count++] = link(a, b);
+		}
+
+		//second pass: fold the pairs together, right to left
+		root = NIL;
+		for (int i = count - 1; i >= 0; i--) {
+			root = link(pairs[i], root);
+		}
+		child[min] = NIL;
+		return min;
+	}
+
+	@Override
+	public int peekMin() {
+		if (size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return root;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return queued[id];
+	}
+
+	@Override
+	public double getPriority(int id) {
+		return priorities[id];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		//walk the tree iteratively, reusing the pairs array as a stack
+		int top = 0;
+		if (root != NIL) {
+			pairs[top++] = root;
+		}
+		while (top > 0) {
+			int id = pairs[--top];
+			queued[id] = false;
+			for (int c = child[id]; c != NIL; c = sibling[c]) {
+				pairs[top++] = c;
+			}
+		}
+		root = NIL;
+		size = 0;
+	}
+
+	/**
+	 * Links two tree roots, making the larger a child of the smaller.
+	 * @return The root of the combined tree
+	 */
+	private int link(int a, int b) {
+		if (a == NIL) {
+			return b;
+		}
+		if (b == NIL) {
+			return a;
+		}
+		if (less(b, a)) {
+			int temp = a;
+			a = b;
+			b = temp;
+		}
+		sibling[b] = child[a];
+		if (child[a] != NIL) {
+			previous[child[a]] = b;
+		}
+		previous[b] = a;
+		child[a] = b;
+		return a;
+	}
+
+	private boolean less(int a, int b) {
+		return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && a < b);
+	}
+}
@@ -0,0 +1,300 @@
+package Graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe cache of paths in front of a Graph, keyed on the
+ * start node, target node and search algorithm. The least recently used
+ * paths are evicted once either the number of entries or the total number
+ * of nodes held in cached paths exceeds its limit.
+ * <p>
+ * The cache listens to every node of the graph and drops the entries a
+ * change could affect:
+ * <ul>
+ * <li>setEdges drops every breadth- and depth-first path, and every weighted
+ * path that passes through the node or could be shortened by a detour through it.</li>
+ * <li>setElevation and setPosition leave breadth- and depth-first paths alone,
+ * since those searches ignore weights, and drop weighted paths as above.</li>
+ * </ul>
+ * A weighted path from s to t costing c is kept when the node v is not on it and
+ * FLAT_COST * (|s - v| + |v - t|) > c, as no path through v can then cost as little.
+ * Edges added or removed through the list returned by Node.getEdges are not
+ * reported, so call invalidateAll after editing the graph that way.
+ */
+public class PathCache {
+
+	/** The default limit on the number of cached paths. */
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	private final Graph graph;
+	private final Node[] nodes;
+	private final int maxEntries;
+	private final long maxNodes;
+	private final LinkedHashMap<Key, Entry> entries;
+	private final NodeListener listener;
+	private long cachedNodes; //total length of the cached paths
+	private long version; //bumped by every invalidation
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Creates a cache holding up to DEFAULT_MAX_ENTRIES paths.
+	 * @param graph The graph to run searches on
+	 * @param nodes The nodes of the graph, whose changes invalidate entries
+	 */
+	public PathCache(Graph graph, Node[] nodes) {
+		this(graph, nodes, DEFAULT_MAX_ENTRIES, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param graph The graph to run searches on
+	 * @param nodes The nodes of the graph, whose changes invalidate entries
+	 * @param maxEntries The most paths to hold at once
+	 * @param maxNodes The most nodes to hold across all cached paths
+	 */
+	public PathCache(Graph graph, Node[] nodes, int maxEntries, long maxNodes) {
+		if (maxEntries < 1 || maxNodes < 1) {
+			throw new IllegalArgumentException("Cache limits must be positive");
+		}
+		this.graph = graph;
+		this.nodes = nodes.clone();
+		this.maxEntries = maxEntries;
+		this.maxNodes = maxNodes;
+		//access order makes iteration run from least to most recently used
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		listener = this::nodeChanged;
+		for (Node node : this.nodes) {
+			node.addListener(listener);
+		}
+	}
+
+	/**
+	 * Returns the cached path between two nodes, searching for it on a miss.
+	 * Searches run outside the cache's lock, so concurrent misses do not wait
+	 * for each other, but the Graph must not be reconfigured meanwhile.
+	 * @param start The node from which to start searching
+	 * @param target The node to which a path is built
+	 * @param algorithm The search to run
+	 * @return The path the search returns, shared between callers, so it must not be modified
+	 */
+	public Node[] findPath(Node start, Node target, SearchAlgorithm algorithm) {
+		Key key = new Key(start, target, algorithm);
+		long seen;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return entry.path;
+			}
+			misses++;
+			seen = version;
+		}
+		Node[] path = algorithm.search(graph, start, target);
+		double cost = algorithm.isWeighted() ? cost(start, path) : 0.0;
+		synchronized (this) {
+			//a change during the search may have made its result stale
+			if (version == seen && !entries.containsKey(key)) {
+				entries.put(key, new Entry(path, cost));
+				cachedNodes += length(path);
+				evict();
+			}
+		}
+		return path;
+	}
+
+	public Node[] breadthFirstSearch(Node start, Node target) {
+		return findPath(start, target, SearchAlgorithm.BREADTH_FIRST);
+	}
+
+	public Node[] depthFirstSearch(Node start, Node target) {
+		return findPath(start, target, SearchAlgorithm.DEPTH_FIRST);
+	}
+
+	public Node[] dijkstrasSearch(Node start, Node target) {
+		return findPath(start, target, SearchAlgorithm.DIJKSTRA);
+	}
+
+	public Node[] aStarSearch(Node start, Node target) {
+		return findPath(start, target, SearchAlgorithm.A_STAR);
+	}
+
+	/**
+	 * Drops every entry a change to the node could affect.
+	 * @param node The node that changed
+	 * @param change Which of its properties changed
+	 */
+	public synchronized void invalidate(Node node, NodeListener.Change change) {
+		version++;
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Entry> e = it.next();
+			if (isAffected(e.getKey(), e.getValue(), node, change)) {
+				cachedNodes -= length(e.getValue().path);
+				invalidations++;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops every entry.
+	 */
+	public synchronized void invalidateAll() {
+		version++;
+		invalidations += entries.size();
+		entries.clear();
+		cachedNodes = 0;
+	}
+
+	/**
+	 * Stops listening to the graph's nodes and empties the cache.
+	 */
+	public void close() {
+		for (Node node : nodes) {
+			node.removeListener(listener);
+		}
+		invalidateAll();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * @return The fraction of lookups answered from the cache, or 0 before any lookup
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PathCache{" +
+				"size=" + entries.size() +
+				", hits=" + hits +
+				", misses=" + misses +
+				", evictions=" + evictions +
+				", invalidations=" + invalidations +
+				'}';
+	}
+
+	private void nodeChanged(Node node, NodeListener.Change change) {
+		invalidate(node, change);
+	}
+
+	private boolean isAffected(Key key, Entry entry, Node node, NodeListener.Change change) {
+		if (!key.algorithm.isWeighted()) {
+			return change == NodeListener.Change.EDGES;
+		}
+		if (entry.cost == Double.MAX_VALUE) {
+			//only new edges can connect an unreachable target
+			return change == NodeListener.Change.EDGES;
+		}
+		if (entry.cost < 0.0) {
+			return true;
+		}
+		//a detour through the node costs at least its straight-line length
+		Position at = node.getPosition();
+		double detour = Edge.FLAT_COST
+				* (key.start.getPosition().distance(at) + at.distance(key.target.getPosition()));
+		return detour <= entry.cost || contains(entry.path, node);
+	}
+
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while ((entries.size() > maxEntries || cachedNodes > maxNodes) && it.hasNext()) {
+			Entry eldest = it.next();
+			cachedNodes -= length(eldest.path);
+			evictions++;
+			it.remove();
+		}
+	}
+
+	/**
+	 * @return The weight of the path, Double.MAX_VALUE if it does not reach
+	 * from start to its last node, or -1 if it uses a missing edge
+	 */
+	private double cost(Node start, Node[] path) {
+		if (path == null || path.length == 0 || path[0] != start) {
+			return Double.MAX_VALUE;
+		}
+		return graph.calculateTotalWeight(path);
+	}
+
+	private static boolean contains(Node[] path, Node node) {
+		if (path != null) {
+			for (Node n : path) {
+				if (n == node) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int length(Node[] path) {
+		return path == null ? 0 : path.length;
+	}
+
+	/**
+	 * Compares nodes by identity, like the searches themselves.
+	 */
+	private static final class Key {
+		final Node start;
+		final Node target;
+		final SearchAlgorithm algorithm;
+
+		Key(Node start, Node target, SearchAlgorithm algorithm) {
+			this.start = start;
+			this.target = target;
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return start == other.start && target == other.target && algorithm == other.algorithm;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = System.identityHashCode(start);
+			result = 31 * result + System.identityHashCode(target);
+			return 31 * result + algorithm.hashCode();
+		}
+	}
+
+	private static final class Entry {
+		final Node[] path;
+		final double cost;
+
+		Entry(Node[] path, double cost) {
+			this.path = path;
+			this.cost = cost;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package Graph;
+
+/**
+ * A path found by one of Graph's searches: the ids of the nodes it visits,
+ * the edges it takes and its total cost, all known to the search, so callers
+ * need not look the edges up again to price the path. The Node array is
+ * only built if asked for.
+ */
+public class PathResult {
+
+	private final Node[] graphNodes; //the nodes of the graph, by id
+	private final int[] ids;
+	private final Edge[] edges;
+	private final double cost;
+	private Node[] nodes; //built on first use
+
+	/**
+	 * @param graphNodes The nodes of the graph searched, by id
+	 * @param ids The ids on the path, start first
+	 * @param edges The edge taken out of each node but the last
+	 * @param cost The sum of the edges' weights
+	 */
+	PathResult(Node[] graphNodes, int[] ids, Edge[] edges, double cost) {
+		this.graphNodes = graphNodes;
+		this.ids = ids;
+		this.edges = edges;
+		this.cost = cost;
+	}
+
+	/**
+	 * @return The sum of the weights of the edges taken, 0 for a path of one node
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return The number of nodes on the path, including both ends
+	 */
+	public int getLength() {
+		return ids.length;
+	}
+
+	/**
+	 * @return The ids of the nodes on the path, start first; the array is not copied
+	 */
+	public int[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * @param index A position on the path
+	 * @return The id of the node at that position
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	/**
+	 * @return The edges taken, one fewer than the nodes; the array is not copied
+	 */
+	public Edge[] getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @param index A position on the path before the last
+	 * @return The edge taken from the node at that position to the next
+	 */
+	public Edge getEdge(int index) {
+		return edges[index];
+	}
+
+	/**
+	 * @return The nodes on the path, start first, as the Node[] searches return them
+	 */
+	public Node[] getNodes() {
+		if (nodes == null) {
+			Node[] path = new Node[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				path[i] = graphNodes[ids[i]];
+			}
+			nodes = path;
+		}
+		return nodes;
+	}
+
+	public Node getStart() {
+		return graphNodes[ids[0]];
+	}
+
+	public Node getTarget() {
+		return graphNodes[ids[ids.length - 1]];
+	}
+
+	@Override
+	public String toString() {
+		return "PathResult{" +
+				"length=" + ids.length +
+				", cost=" + cost +
+				'}';
+	}
+}
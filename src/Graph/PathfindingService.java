@@ -0,0 +1,191 @@
+package Graph;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Answers path queries concurrently over an immutable snapshot of a graph.
+ * <p>
+ * The snapshot is a CsrGraph copied from the nodes when the service is
+ * created, so later changes to the nodes, or to the graph GraphLoader last
+ * loaded, do not affect queries in flight. Call reload to publish a new
+ * snapshot; searches already running finish on the one they started with.
+ * <p>
+ * Each thread reuses its own scratch arrays and queues from one search to
+ * the next, and the snapshot is only read, so any number of searches can
+ * run at once on the executor the service was given: a ForkJoinPool, a
+ * fixed pool sized to the machine, or one virtual thread per search.
+ */
+public class PathfindingService {
+
+	private final Executor executor;
+	private final QueueType queueType;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Runs searches on the common ForkJoinPool using binary heaps.
+	 * @param nodes The connected nodes of the graph
+	 */
+	public PathfindingService(Node[] nodes) {
+		this(nodes, ForkJoinPool.commonPool(), QueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * @param nodes The connected nodes of the graph
+	 * @param executor Runs the searches; the caller remains responsible for shutting it down
+	 * @param queueType The priority queue the weighted searches use
+	 */
+	public PathfindingService(Node[] nodes, Executor executor, QueueType queueType) {
+		this.executor = executor;
+		this.queueType = queueType;
+		this.snapshot = new Snapshot(nodes, null);
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread for each search, if
+	 * the running Java version has them, or else a cached thread pool.
+	 * The caller must shut it down.
+	 * @return The new executor
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			//looked up reflectively, as the code still compiles for Java 11
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Replaces the snapshot searched by queries submitted from now on.
+	 * @param nodes The connected nodes of the graph
+	 */
+	public void reload(Node[] nodes) {
+		snapshot = new Snapshot(nodes, null);
+	}
+
+	/**
+	 * Replaces the snapshot searched by queries submitted from now on with
+	 * one whose edges are weighed by a cost model. The nodes' own edges keep
+	 * their weights.
+	 * @param nodes The connected nodes of the graph
+	 * @param model The rule to weigh the snapshot's edges by
+	 */
+	public void reload(Node[] nodes, CostModel model) {
+		snapshot = new Snapshot(nodes, model);
+	}
+
+	/**
+	 * @return The snapshot queries are currently answered from
+	 */
+	public CsrGraph getGraph() {
+		return snapshot.graph;
+	}
+
+	/**
+	 * Searches for a path between two nodes of the current snapshot.
+	 * @param start The node from which to start searching
+	 * @param target The node to which a path is built
+	 * @param algorithm The search to run
+	 * @return The path from start to target, or null if target is unreachable.
+	 * Completes exceptionally if either node is not part of the graph.
+	 */
+	public CompletableFuture<Node[]> findPath(Node start, Node target, SearchAlgorithm algorithm) {
+		Snapshot current = snapshot;
+		return CompletableFuture.supplyAsync(() -> current.graph.toNodes(
+				current.search(current.idOf(start), current.idOf(target), algorithm, queueType)), executor);
+	}
+
+	/**
+	 * Searches for a path between two node ids of the current snapshot.
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param algorithm The search to run
+	 * @return The ids on the path, or null if target is unreachable
+	 */
+	public CompletableFuture<int[]> findPath(int start, int target, SearchAlgorithm algorithm) {
+		Snapshot current = snapshot;
+		return CompletableFuture.supplyAsync(() -> current.search(start, target, algorithm, queueType), executor);
+	}
+
+	/**
+	 * @param source The node at the root of the tree
+	 * @return The distance to and path to every node from source
+	 */
+	public CompletableFuture<ShortestPathTree> shortestPathTree(Node source) {
+		Snapshot current = snapshot;
+		return CompletableFuture.supplyAsync(
+				() -> IndexedSearch.shortestPathTree(current.graph, current.idOf(source), queueType), executor);
+	}
+
+	/**
+	 * Computes a cost matrix, running its searches in parallel on the
+	 * service's executor if that is a ForkJoinPool, or on the common pool.
+	 * @param sources The nodes searched from, one row each
+	 * @param targets The nodes searched to, one column each
+	 * @param keepPaths True to keep the path of every pair as well as its cost
+	 * @return The matrix of costs
+	 */
+	public CompletableFuture<DistanceMatrix> distanceMatrix(Node[] sources, Node[] targets, boolean keepPaths) {
+		Snapshot current = snapshot;
+		ForkJoinPool pool = executor instanceof ForkJoinPool ? (ForkJoinPool) executor : ForkJoinPool.commonPool();
+		return CompletableFuture.supplyAsync(() -> DistanceMatrix.compute(current.graph, current.idsOf(sources),
+				current.idsOf(targets), keepPaths, queueType, pool), executor);
+	}
+
+	/**
+	 * A graph and the heuristic over it, replaced together by reload.
+	 */
+	private static final class Snapshot {
+		final CsrGraph graph;
+		final Heuristic heuristic;
+
+		/**
+		 * @param model The cost model to weigh edges by, or null to keep the nodes' weights
+		 */
+		Snapshot(Node[] nodes, CostModel model) {
+			CsrGraph copy = new CsrGraph(nodes.clone());
+			graph = model != null ? copy.withCostModel(model) : copy;
+			//copy the positions, which the nodes may still change
+			int n = nodes.length;
+			Position[] positions = new Position[n];
+			for (int i = 0; i < n; i++) {
+				positions[i] = new Position(nodes[i].getPosition().x, nodes[i].getPosition().y);
+			}
+			heuristic = (node, target) -> Edge.FLAT_COST * positions[node].distance(positions[target]);
+			if (graph.nodeCount() > 0) {
+				//build the reverse graph now rather than under a lock during the first query
+				graph.reverse();
+			}
+		}
+
+		int[] search(int start, int target, SearchAlgorithm algorithm, QueueType queueType) {
+			if (start < 0 || start >= graph.nodeCount() || target < 0 || target >= graph.nodeCount()) {
+				throw new IllegalArgumentException("No node with id " + (start < 0
+						|| start >= graph.nodeCount() ? start : target));
+			}
+			return algorithm.search(graph, start, target, heuristic, queueType);
+		}
+
+		int idOf(Node node) {
+			int id = graph.getId(node);
+			if (id == -1) {
+				throw new IllegalArgumentException("Node is not part of the graph");
+			}
+			return id;
+		}
+
+		int[] idsOf(Node[] nodes) {
+			int[] ids = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				ids[i] = idOf(nodes[i]);
+			}
+			return ids;
+		}
+	}
+}
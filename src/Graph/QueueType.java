@@ -0,0 +1,37 @@
+package Graph;
+
+/**
+ * The priority queue implementations available to the weighted searches in Graph.
+ */
+public enum QueueType {
+	/** A binary heap, the default. */
+	BINARY_HEAP,
+	/** A 4-ary heap, shallower than a binary heap and friendlier to the cache. */
+	QUATERNARY_HEAP,
+	/** A pairing heap with constant time decrease-key. */
+	PAIRING_HEAP,
+	/** A bucket queue that quantises distances relative to the largest edge weight. */
+	BUCKET_QUEUE;
+
+	/** The number of buckets used by BUCKET_QUEUE. */
+	static final int BUCKET_COUNT = 256;
+
+	/**
+	 * Creates an empty queue of this type.
+	 * @param capacity The number of ids the queue must hold
+	 * @param maxEdgeWeight The largest edge weight the search will relax
+	 * @return A new queue
+	 */
+	public IndexedPriorityQueue create(int capacity, double maxEdgeWeight) {
+		switch (this) {
+		case QUATERNARY_HEAP:
+			return new DaryHeap(capacity, 4);
+		case PAIRING_HEAP:
+			return new PairingHeap(capacity);
+		case BUCKET_QUEUE:
+			return BucketQueue.forMaxEdgeWeight(capacity, maxEdgeWeight, BUCKET_COUNT);
+		default:
+			return new DaryHeap(capacity, 2);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package Graph;
+
+/**
+ * The searches Graph can run between two nodes, so callers can choose one
+ * at runtime and caches can tell their results apart.
+ */
+public enum SearchAlgorithm {
+	BREADTH_FIRST(false),
+	DEPTH_FIRST(false),
+	DIJKSTRA(true),
+	A_STAR(true),
+	BIDIRECTIONAL(true),
+	BIDIRECTIONAL_A_STAR(true);
+
+	private final boolean weighted;
+
+	SearchAlgorithm(boolean weighted) {
+		this.weighted = weighted;
+	}
+
+	/**
+	 * @return True if the search minimises edge weights, false if it only follows edges
+	 */
+	public boolean isWeighted() {
+		return weighted;
+	}
+
+	/**
+	 * Runs this search on a graph.
+	 * @param graph The graph whose settings the search uses
+	 * @param start The node from which to start searching
+	 * @param target The node to which a path is built
+	 * @return The path the corresponding Graph method returns
+	 */
+	public Node[] search(Graph graph, Node start, Node target) {
+		switch (this) {
+		case BREADTH_FIRST:
+			return graph.breadthFirstSearch(start, target);
+		case DEPTH_FIRST:
+			return graph.depthFirstSearch(start, target);
+		case DIJKSTRA:
+			return graph.dijkstrasSearch(start, target);
+		case A_STAR:
+			return graph.aStarSearch(start, target);
+		case BIDIRECTIONAL:
+			return graph.bidirectionalSearch(start, target);
+		default:
+			return graph.bidirectionalAStarSearch(start, target);
+		}
+	}
+
+	/**
+	 * Runs this search on an indexed graph.
+	 * @param graph The graph to search
+	 * @param start The id of the node from which to start searching
+	 * @param target The id of the node to which a path is built
+	 * @param heuristic Guides the A* searches, and is ignored by the others
+	 * @param queueType The priority queue the weighted searches use
+	 * @return The ids on the path, or null if target is unreachable
+	 */
+	public int[] search(IndexedGraph graph, int start, int target, Heuristic heuristic, QueueType queueType) {
+		switch (this) {
+		case BREADTH_FIRST:
+			return IndexedSearch.breadthFirstSearch(graph, start, target);
+		case DEPTH_FIRST:
+			return IndexedSearch.depthFirstSearch(graph, start, target);
+		case DIJKSTRA:
+			return IndexedSearch.dijkstrasSearch(graph, start, target, queueType);
+		case A_STAR:
+			return IndexedSearch.aStarSearch(graph, start, target, heuristic, queueType);
+		case BIDIRECTIONAL:
+			return IndexedSearch.bidirectionalSearch(graph, start, target, null, queueType, null);
+		default:
+			return IndexedSearch.bidirectionalSearch(graph, start, target, heuristic, queueType, null);
+		}
+	}
+}
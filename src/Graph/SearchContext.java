@@ -0,0 +1,176 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * The scratch state of one search at a time on one thread: distances,
+ * parents, a queue or stack and neighbour buffers in primitive arrays, and
+ * a priority queue of each type. Each thread keeps one and reuses it, so a
+ * search in steady state allocates nothing but its result.
+ * <p>
+ * Rather than clearing the arrays between searches, every search gets a new
+ * generation stamp, and a node's entries only count if its stamp matches.
+ * A search that starts while the thread's context is in use, such as one
+ * run by a SearchListener, is given a context of its own.
+ */
+final class SearchContext {
+
+	private static final ThreadLocal<SearchContext> CONTEXTS = ThreadLocal.withInitial(SearchContext::new);
+
+	int[] parent = new int[0];
+	int[] parentEdge = new int[0]; //the index in the parent's edge list of the edge each node was reached by
+	double[] distance = new double[0];
+	double[] estimate = new double[0]; //remaining cost estimates, cached by the searches that use them
+	int[] queue = new int[0]; //a FIFO queue or stack of ids
+	int[] nextEdge = new int[0]; //where depth-first search resumes scanning a node's edges
+	int[] targets = new int[0];
+	double[] weights = new double[0];
+
+	private int[] reached = new int[0]; //the generation in which each node was reached
+	private int[] estimated = new int[0]; //the generation in which each estimate was made
+	private int generation;
+	private boolean inUse;
+	private final IndexedPriorityQueue[] queues = new IndexedPriorityQueue[QueueType.values().length];
+	private double bucketWeight; //the edge weight the cached bucket queue was sized for
+
+	private SearchContext() {
+	}
+
+	/**
+	 * Takes the current thread's context for a search, or a new one if it is
+	 * already in use, forgetting everything recorded by earlier searches.
+	 * @param nodeCount The number of nodes in the graph to be searched
+	 * @param maxDegree The most edges leaving any node
+	 * @return A context to pass to release once the search is over
+	 */
+	static SearchContext acquire(int nodeCount, int maxDegree) {
+		SearchContext context = CONTEXTS.get();
+		if (context.inUse) {
+			context = new SearchContext();
+		}
+		context.inUse = true;
+		context.begin(nodeCount, maxDegree);
+		return context;
+	}
+
+	/**
+	 * Hands the context back for the thread's next search.
+	 */
+	void release() {
+		inUse = false;
+	}
+
+	private void begin(int nodeCount, int maxDegree) {
+		if (reached.length < nodeCount) {
+			parent = new int[nodeCount];
+			parentEdge = new int[nodeCount];
+			distance = new double[nodeCount];
+			estimate = new double[nodeCount];
+			queue = new int[nodeCount];
+			nextEdge = new int[nodeCount];
+			reached = new int[nodeCount];
+			estimated = new int[nodeCount];
+			Arrays.fill(queues, null);
+			generation = 0;
+		}
+		if (targets.length < maxDegree) {
+			targets = new int[maxDegree];
+			weights = new double[maxDegree];
+		}
+		if (++generation == 0) {
+			//the stamp wrapped around, so older stamps could collide with it
+			Arrays.fill(reached, 0);
+			Arrays.fill(estimated, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * @return True if the node has been reached in this search
+	 */
+	boolean isReached(int node) {
+		return reached[node] == generation;
+	}
+
+	/**
+	 * Marks a node as reached from a parent, for searches that do not track distance.
+	 * @param from The node's parent, or -1 for the start
+	 */
+	void reach(int node, int from) {
+		reached[node] = generation;
+		parent[node] = from;
+	}
+
+	/**
+	 * @return The node's distance in this search, or Double.MAX_VALUE if it has not been reached
+	 */
+	double distance(int node) {
+		return reached[node] == generation ? distance[node] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Reaches a node at a distance from a parent.
+	 * @param from The node's parent, or -1 for the start
+	 */
+	void reach(int node, double newDistance, int from) {
+		reached[node] = generation;
+		distance[node] = newDistance;
+		parent[node] = from;
+	}
+
+	/**
+	 * @return True if an estimate has been stored for the node in this search
+	 */
+	boolean hasEstimate(int node) {
+		return estimated[node] == generation;
+	}
+
+	void setEstimate(int node, double value) {
+		estimated[node] = generation;
+		estimate[node] = value;
+	}
+
+	/**
+	 * Returns an empty priority queue of the given type, reusing the one
+	 * left by an earlier search where it fits.
+	 * @param maxEdgeWeight The largest edge weight the search will relax, which sizes bucket queues
+	 */
+	IndexedPriorityQueue queue(QueueType type, double maxEdgeWeight) {
+		IndexedPriorityQueue cached = queues[type.ordinal()];
+		if (cached == null || (type == QueueType.BUCKET_QUEUE && maxEdgeWeight != bucketWeight)) {
+			cached = type.create(reached.length, maxEdgeWeight);
+			queues[type.ordinal()] = cached;
+			if (type == QueueType.BUCKET_QUEUE) {
+				bucketWeight = maxEdgeWeight;
+			}
+		}
+		else {
+			cached.clear();
+		}
+		return cached;
+	}
+
+	/**
+	 * @return The ids on the path to target, following parents back to -1
+	 */
+	int[] path(int target) {
+		return IndexedSearch.buildPath(parent, target);
+	}
+
+	/**
+	 * Builds the path to target from the parents and parentEdge entries
+	 * recorded by a search over Node objects.
+	 * @param nodes The nodes of the graph, by id
+	 * @return The path to target, following parents back to -1
+	 */
+	PathResult result(Node[] nodes, int target) {
+		int[] ids = path(target);
+		Edge[] edges = new Edge[ids.length - 1];
+		double cost = 0.0;
+		for (int i = 1; i < ids.length; i++) {
+			edges[i - 1] = nodes[ids[i - 1]].getEdges().get(parentEdge[ids[i]]);
+			cost += edges[i - 1].getWeight();
+		}
+		return new PathResult(nodes, ids, edges, cost);
+	}
+}
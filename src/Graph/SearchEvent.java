@@ -0,0 +1,79 @@
+package Graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for one path search, committed by the
+ * searches in Graph and IndexedSearch. Record it with, for example,
+ * -XX:StartFlightRecording and a settings file enabling "Graph.Search".
+ * While no recording enables it, a search only pays for creating the
+ * event and checking isEnabled.
+ */
+@Name("Graph.Search")
+@Label("Path Search")
+@Category({"Pathfinding"})
+@Description("A search for a path between two nodes")
+@StackTrace(false)
+public final class SearchEvent extends Event {
+
+	@Label("Algorithm")
+	String algorithm;
+
+	@Label("Start")
+	int start;
+
+	@Label("Target")
+	int target;
+
+	@Label("Nodes Settled")
+	long nodesSettled;
+
+	@Label("Edges Relaxed")
+	long edgesRelaxed;
+
+	@Label("Pushes")
+	long pushes;
+
+	@Label("Decrease Keys")
+	long decreaseKeys;
+
+	@Label("Peak Frontier")
+	int peakFrontier;
+
+	@Label("Path Cost")
+	@Description("Double.MAX_VALUE if the target was unreachable")
+	double pathCost;
+
+	@Label("Path Length")
+	int pathLength;
+
+	/**
+	 * Fills in and commits the event, if a recording wants it.
+	 * @param algorithm The search that was run
+	 * @param start The id of the node searched from
+	 * @param target The id of the node searched to
+	 * @param stats The counters of the search
+	 * @param pathLength The number of nodes on the path, or 0 if there was none
+	 */
+	void commit(SearchAlgorithm algorithm, int start, int target, SearchStats stats, int pathLength) {
+		end();
+		if (shouldCommit()) {
+			this.algorithm = algorithm.name();
+			this.start = start;
+			this.target = target;
+			nodesSettled = stats.getNodesSettled();
+			edgesRelaxed = stats.getEdgesRelaxed();
+			pushes = stats.getPushes();
+			decreaseKeys = stats.getDecreaseKeys();
+			peakFrontier = stats.getPeakFrontier();
+			pathCost = stats.getPathCost();
+			this.pathLength = pathLength;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package Graph;
+
+/**
+ * Told about every search a Graph runs once it is set with
+ * Graph.setSearchListener. Searches only count what they do while a
+ * listener is set or SearchEvent is being recorded.
+ */
+public interface SearchListener {
+
+	/**
+	 * Called on the searching thread after each search.
+	 * @param algorithm The search that was run
+	 * @param start The node searched from
+	 * @param target The node searched to
+	 * @param stats The counters of this search alone
+	 */
+	void searchFinished(SearchAlgorithm algorithm, Node start, Node target, SearchStats stats);
+}
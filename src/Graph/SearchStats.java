@@ -0,0 +1,153 @@
+package Graph;
+
+/**
+ * Counters filled in by a search that is given one, describing how much of
+ * the graph the search had to explore. Counters add up over every search
+ * the object is given to, until reset; the path cost is that of the last.
+ */
+public class SearchStats {
+
+	private long nodesSettled;
+	private long edgesRelaxed;
+	private long pushes;
+	private long decreaseKeys;
+	private int peakFrontier;
+	private double pathCost = Double.MAX_VALUE;
+	private long elapsedNanos;
+	private long searches;
+	private long startNanos;
+
+	/**
+	 * @return The number of nodes taken off the search queue and expanded
+	 */
+	public long getNodesSettled() {
+		return nodesSettled;
+	}
+
+	/**
+	 * @return The number of edges scanned out of expanded nodes
+	 */
+	public long getEdgesRelaxed() {
+		return edgesRelaxed;
+	}
+
+	/**
+	 * @return The number of nodes added to the queue, stack or priority queue
+	 */
+	public long getPushes() {
+		return pushes;
+	}
+
+	/**
+	 * @return The number of times a queued node's priority was lowered
+	 */
+	public long getDecreaseKeys() {
+		return decreaseKeys;
+	}
+
+	/**
+	 * @return The largest number of nodes waiting to be expanded at once
+	 */
+	public int getPeakFrontier() {
+		return peakFrontier;
+	}
+
+	/**
+	 * @return The cost of the last path found, or Double.MAX_VALUE if there was none
+	 */
+	public double getPathCost() {
+		return pathCost;
+	}
+
+	/**
+	 * @return The wall-clock time spent searching, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return The number of searches recorded
+	 */
+	public long getSearches() {
+		return searches;
+	}
+
+	void nodeSettled() {
+		nodesSettled++;
+	}
+
+	void edgesRelaxed(int count) {
+		edgesRelaxed += count;
+	}
+
+	/**
+	 * @param frontier The number of nodes waiting after the push
+	 */
+	void pushed(int frontier) {
+		pushes++;
+		if (frontier > peakFrontier) {
+			peakFrontier = frontier;
+		}
+	}
+
+	void decreasedKey() {
+		decreaseKeys++;
+	}
+
+	void started() {
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Records the end of the search begun by started.
+	 * @param cost The cost of the path found, or Double.MAX_VALUE
+	 */
+	void finished(double cost) {
+		pathCost = cost;
+		elapsedNanos += System.nanoTime() - startNanos;
+		searches++;
+	}
+
+	/**
+	 * Adds the counters of another search to these.
+	 * @param other The counters to add
+	 */
+	public void add(SearchStats other) {
+		nodesSettled += other.nodesSettled;
+		edgesRelaxed += other.edgesRelaxed;
+		pushes += other.pushes;
+		decreaseKeys += other.decreaseKeys;
+		peakFrontier = Math.max(peakFrontier, other.peakFrontier);
+		pathCost = other.pathCost;
+		elapsedNanos += other.elapsedNanos;
+		searches += other.searches;
+	}
+
+	/**
+	 * Zeroes every counter so the object can be reused for another search.
+	 */
+	public void reset() {
+		nodesSettled = 0;
+		edgesRelaxed = 0;
+		pushes = 0;
+		decreaseKeys = 0;
+		peakFrontier = 0;
+		pathCost = Double.MAX_VALUE;
+		elapsedNanos = 0;
+		searches = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchStats{" +
+				"nodesSettled=" + nodesSettled +
+				", edgesRelaxed=" + edgesRelaxed +
+				", pushes=" + pushes +
+				", decreaseKeys=" + decreaseKeys +
+				", peakFrontier=" + peakFrontier +
+				", pathCost=" + pathCost +
+				", elapsedNanos=" + elapsedNanos +
+				'}';
+	}
+}
@@ -0,0 +1,112 @@
+package Graph;
+
+/**
+ * The result of one Dijkstra search from a source to every node it can
+ * reach: the distance to each node and its parent on a shortest path, held
+ * in primitive arrays indexed by node id. The path to any node is rebuilt
+ * in time proportional to its length, without searching again.
+ */
+public class ShortestPathTree {
+
+	private final IndexedGraph graph;
+	private final int source;
+	private final double[] distance; //Double.MAX_VALUE for unreached nodes
+	private final int[] parent; //-1 for the source and unreached nodes
+	private final int[] order; //reached nodes in the order they were settled
+	private final int settled;
+
+	ShortestPathTree(IndexedGraph graph, int source, double[] distance, int[] parent, int[] order, int settled) {
+		this.graph = graph;
+		this.source = source;
+		this.distance = distance;
+		this.parent = parent;
+		this.order = order;
+		this.settled = settled;
+	}
+
+	/**
+	 * @return The id of the root of the tree
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * @param node The id of a node
+	 * @return True if there is a path from the source to the node
+	 */
+	public boolean isReachable(int node) {
+		return distance[node] != Double.MAX_VALUE;
+	}
+
+	/**
+	 * @param node The id of a node
+	 * @return The cost of the shortest path from the source, or Double.MAX_VALUE if it is unreachable
+	 */
+	public double getDistance(int node) {
+		return distance[node];
+	}
+
+	/**
+	 * @param node The id of a node
+	 * @return The node before it on a shortest path, or -1 for the source and unreachable nodes
+	 */
+	public int getParent(int node) {
+		return parent[node];
+	}
+
+	/**
+	 * @param node The id of a node
+	 * @return The ids on the shortest path from the source, or null if it is unreachable
+	 */
+	public int[] getPath(int node) {
+		return isReachable(node) ? IndexedSearch.buildPath(parent, node) : null;
+	}
+
+	/**
+	 * @return The number of nodes reachable from the source, including itself
+	 */
+	public int getSettledCount() {
+		return settled;
+	}
+
+	/**
+	 * Reachable nodes are numbered in the order the search settled them,
+	 * so every node comes after its parent.
+	 * @param index A number below getSettledCount
+	 * @return The id of the index'th node settled
+	 */
+	public int getSettled(int index) {
+		if (index >= settled) {
+			throw new IndexOutOfBoundsException("Only " + settled + " nodes were settled");
+		}
+		return order[index];
+	}
+
+	/**
+	 * @param node A node of the graph the tree was built from
+	 * @return The cost of the shortest path from the source, or Double.MAX_VALUE if it is unreachable
+	 */
+	public double distanceTo(Node node) {
+		return distance[idOf(node)];
+	}
+
+	/**
+	 * @param node A node of the graph the tree was built from
+	 * @return The nodes on the shortest path from the source, or null if it is unreachable
+	 */
+	public Node[] pathTo(Node node) {
+		return ((CsrGraph) graph).toNodes(getPath(idOf(node)));
+	}
+
+	private int idOf(Node node) {
+		if (!(graph instanceof CsrGraph)) {
+			throw new IllegalStateException("The graph has no Node objects");
+		}
+		int id = ((CsrGraph) graph).getId(node);
+		if (id == -1) {
+			throw new IllegalArgumentException("Node is not part of the graph");
+		}
+		return id;
+	}
+}
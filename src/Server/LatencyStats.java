@@ -0,0 +1,82 @@
+package Server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram. Each sample falls into one of 64
+ * power-of-two buckets of nanoseconds, so percentiles are reported as the
+ * upper bound of their bucket, accurate to within a factor of two.
+ */
+public class LatencyStats {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param nanos The latency of one operation, in nanoseconds
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(nanos, 0);
+		buckets.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @param unit The unit to report in
+	 * @return The mean latency, or 0 if nothing was recorded
+	 */
+	public double getMean(TimeUnit unit) {
+		long n = count.sum();
+		return n == 0 ? 0.0 : (double) total.sum() / n / unit.toNanos(1);
+	}
+
+	/**
+	 * @param unit The unit to report in
+	 * @return The highest latency recorded
+	 */
+	public double getMax(TimeUnit unit) {
+		return (double) max.get() / unit.toNanos(1);
+	}
+
+	/**
+	 * @param percentile The percentile to find, between 0 and 100
+	 * @param unit The unit to report in
+	 * @return An upper bound on the latency at that percentile, or 0 if nothing was recorded
+	 */
+	public double getPercentile(double percentile, TimeUnit unit) {
+		long n = count.sum();
+		if (n == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(percentile / 100.0 * n);
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += buckets.get(b);
+			if (seen >= rank) {
+				//the bucket bound cannot be more than the highest sample
+				return Math.min((double) (1L << Math.min(b, 62)), max.get()) / unit.toNanos(1);
+			}
+		}
+		return getMax(unit);
+	}
+
+	/**
+	 * @return The bucket b whose range [2^(b-1), 2^b) holds a latency, or 0 for a latency of 0
+	 */
+	private static int bucketOf(long nanos) {
+		return BUCKETS - Long.numberOfLeadingZeros(nanos);
+	}
+}
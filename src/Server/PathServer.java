@@ -0,0 +1,402 @@
+package Server;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.GraphFile;
+import Graph.Node;
+import Graph.PathfindingService;
+import Graph.SearchAlgorithm;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A headless HTTP server answering batches of path queries, built on the
+ * JDK's own com.sun.net.httpserver and bound to the loopback address.
+ * <p>
+ * POST /paths takes one query per line, "start target [algorithm]", as node
+ * ids and a SearchAlgorithm name (DIJKSTRA by default). The reply has one
+ * line per query, in order: the path cost followed by the ids on the path,
+ * or "unreachable". GET /stats reports the counters below, one "name value"
+ * per line.
+ * <p>
+ * Batches are not searched as they arrive. Every tick, the batches received
+ * since the last tick are gathered, identical queries among them are merged
+ * so each is searched once, and the searches run in parallel on a
+ * PathfindingService. A batch is answered once all its queries are.
+ */
+public class PathServer implements AutoCloseable {
+
+	/** The default time between ticks. */
+	public static final long DEFAULT_TICK_MILLIS = 5;
+	/** The longest a handler waits for its batch to be answered. */
+	public static final long REPLY_TIMEOUT_MILLIS = 30_000;
+
+	private final PathfindingService service;
+	private final HttpServer http;
+	private final ExecutorService handlers;
+	private final ScheduledExecutorService ticker;
+	private final Queue<Batch> pending = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed;
+
+	private final LatencyStats latency = new LatencyStats();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder queries = new LongAdder();
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder ticks = new LongAdder();
+
+	/**
+	 * Starts serving on a loopback port.
+	 * @param service Answers the queries; the server does not shut it down
+	 * @param port The port to listen on, or 0 for any free port
+	 * @param tickMillis The time between ticks, in milliseconds
+	 * @throws IOException If the port cannot be bound
+	 */
+	public PathServer(PathfindingService service, int port, long tickMillis) throws IOException {
+		this.service = service;
+		http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		http.createContext("/paths", this::handlePaths);
+		http.createContext("/stats", this::handleStats);
+		//handlers wait for their batch's tick, so each gets its own thread
+		handlers = PathfindingService.newVirtualThreadExecutor();
+		http.setExecutor(handlers);
+		ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "PathServer-tick");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		http.start();
+	}
+
+	/**
+	 * Serves a graph file until the process is stopped.
+	 * Usage: PathServer [graph file] [port] [tick millis]
+	 * @param args The graph file (the bundled map by default), port (8080) and tick length
+	 * @throws IOException If the file cannot be read or the port bound
+	 */
+	public static void main(String[] args) throws IOException {
+		String path = args.length > 0 ? args[0] : "src/Resources/simple_graph.graph";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+		long tick = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TICK_MILLIS;
+		GraphFile file = GraphFile.open(Paths.get(path));
+		Node[] nodes = file.toNodes();
+		if (!file.hasAdjacency()) {
+			new Graph().connectNodes(nodes, file.getRows(), file.getCols());
+		}
+		PathServer server = new PathServer(new PathfindingService(nodes), port, tick);
+		System.out.println("Serving " + nodes.length + " nodes on port " + server.getPort());
+	}
+
+	/**
+	 * @return The port the server is listening on
+	 */
+	public int getPort() {
+		return http.getAddress().getPort();
+	}
+
+	/**
+	 * @return The time from receiving each batch to answering it
+	 */
+	public LatencyStats getLatency() {
+		return latency;
+	}
+
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	public long getQueryCount() {
+		return queries.sum();
+	}
+
+	/**
+	 * @return The number of searches run, fewer than the queries when identical ones were merged
+	 */
+	public long getSearchCount() {
+		return searches.sum();
+	}
+
+	/**
+	 * @return The number of ticks that had at least one batch to answer
+	 */
+	public long getTickCount() {
+		return ticks.sum();
+	}
+
+	/**
+	 * Stops accepting requests, failing the batches no tick has taken yet
+	 * and waiting briefly for exchanges in progress.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		ticker.shutdownNow();
+		failPending(new IllegalStateException("Server closed"));
+		http.stop(1);
+		handlers.shutdownNow();
+	}
+
+	/**
+	 * Completes every batch still waiting for a tick exceptionally.
+	 */
+	private void failPending(Throwable failure) {
+		for (Batch batch = pending.poll(); batch != null; batch = pending.poll()) {
+			batch.done.completeExceptionally(failure);
+		}
+	}
+
+	private void handlePaths(HttpExchange exchange) throws IOException {
+		long received = System.nanoTime();
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				respond(exchange, 405, "Use POST\n");
+				return;
+			}
+			Batch batch;
+			try {
+				batch = parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			}
+			catch (IllegalArgumentException e) {
+				respond(exchange, 400, e.getMessage() + "\n");
+				return;
+			}
+			pending.add(batch);
+			if (closed) {
+				//the ticker may have stopped before the batch was queued
+				failPending(new IllegalStateException("Server closed"));
+			}
+			String reply;
+			try {
+				reply = batch.done.get(REPLY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			catch (ExecutionException e) {
+				respond(exchange, closed ? 503 : 500, "Search failed: " + e.getCause() + "\n");
+				return;
+			}
+			catch (TimeoutException e) {
+				respond(exchange, 503, "No reply within " + REPLY_TIMEOUT_MILLIS + "ms\n");
+				return;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				respond(exchange, 503, "Server closed\n");
+				return;
+			}
+			latency.record(System.nanoTime() - received);
+			respond(exchange, 200, reply);
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException {
+		try {
+			TimeUnit unit = TimeUnit.MICROSECONDS;
+			String stats = "batches " + getBatchCount() + "\n"
+					+ "queries " + getQueryCount() + "\n"
+					+ "searches " + getSearchCount() + "\n"
+					+ "ticks " + getTickCount() + "\n"
+					+ "latency_mean_us " + latency.getMean(unit) + "\n"
+					+ "latency_p50_us " + latency.getPercentile(50, unit) + "\n"
+					+ "latency_p99_us " + latency.getPercentile(99, unit) + "\n"
+					+ "latency_max_us " + latency.getMax(unit) + "\n";
+			respond(exchange, 200, stats);
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Reads the queries of a batch, checking the ids against the current graph.
+	 * @throws IllegalArgumentException If a line is not a valid query
+	 */
+	private Batch parse(String body) {
+		int nodeCount = service.getGraph().nodeCount();
+		List<Query> parsed = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			line = line.trim();
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			if (parts.length < 2 || parts.length > 3) {
+				throw new IllegalArgumentException("Expected \"start target [algorithm]\": " + line);
+			}
+			try {
+				int start = Integer.parseInt(parts[0]);
+				int target = Integer.parseInt(parts[1]);
+				if (start < 0 || start >= nodeCount || target < 0 || target >= nodeCount) {
+					throw new IllegalArgumentException("Node id out of range: " + line);
+				}
+				SearchAlgorithm algorithm = parts.length == 3 ? SearchAlgorithm.valueOf(parts[2]) : SearchAlgorithm.DIJKSTRA;
+				parsed.add(new Query(start, target, algorithm));
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid node id: " + line);
+			}
+		}
+		return new Batch(parsed.toArray(new Query[0]));
+	}
+
+	/**
+	 * Answers every batch received since the last tick, searching each
+	 * distinct query once. A failure fails the tick's batches rather than
+	 * escaping, which would cancel every later tick.
+	 */
+	private void tick() {
+		List<Batch> due = new ArrayList<>();
+		try {
+			for (Batch batch = pending.poll(); batch != null; batch = pending.poll()) {
+				due.add(batch);
+			}
+			if (!due.isEmpty()) {
+				ticks.increment();
+				answer(due);
+			}
+		}
+		catch (RuntimeException e) {
+			for (Batch batch : due) {
+				batch.done.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Starts the searches for a tick's batches, completing each batch once
+	 * all its queries are answered.
+	 */
+	private void answer(List<Batch> due) {
+		CsrGraph graph = service.getGraph();
+		Map<Query, CompletableFuture<String>> answers = new HashMap<>();
+		for (Batch batch : due) {
+			batches.increment();
+			queries.add(batch.queries.length);
+			CompletableFuture<?>[] lines = new CompletableFuture<?>[batch.queries.length];
+			for (int i = 0; i < lines.length; i++) {
+				Query query = batch.queries[i];
+				lines[i] = answers.computeIfAbsent(query, q -> {
+					searches.increment();
+					return service.findPath(q.start, q.target, q.algorithm).thenApply(path -> format(graph, path));
+				});
+			}
+			CompletableFuture.allOf(lines).whenComplete((ignored, failure) -> {
+				if (failure != null) {
+					batch.done.completeExceptionally(failure);
+					return;
+				}
+				StringBuilder reply = new StringBuilder();
+				for (CompletableFuture<?> line : lines) {
+					reply.append(line.join()).append('\n');
+				}
+				batch.done.complete(reply.toString());
+			});
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * @return The cost and ids of a path, or "unreachable"
+	 */
+	private static String format(CsrGraph graph, int[] path) {
+		if (path == null) {
+			return "unreachable";
+		}
+		StringBuilder line = new StringBuilder();
+		line.append(cost(graph, path));
+		for (int id : path) {
+			line.append(' ').append(id);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * @return The sum of the weights along the path
+	 */
+	private static double cost(CsrGraph graph, int[] path) {
+		int[] offsets = graph.getOffsets();
+		int[] targets = graph.getTargets();
+		double[] weights = graph.getWeights();
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			for (int e = offsets[path[i]]; e < offsets[path[i] + 1]; e++) {
+				if (targets[e] == path[i + 1]) {
+					total += weights[e];
+					break;
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * One query, equal to any other with the same ends and algorithm.
+	 */
+	private static final class Query {
+		private final int start;
+		private final int target;
+		private final SearchAlgorithm algorithm;
+
+		Query(int start, int target, SearchAlgorithm algorithm) {
+			this.start = start;
+			this.target = target;
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Query)) {
+				return false;
+			}
+			Query other = (Query) o;
+			return start == other.start && target == other.target && algorithm == other.algorithm;
+		}
+
+		@Override
+		public int hashCode() {
+			return (start * 31 + target) * 31 + algorithm.hashCode();
+		}
+	}
+
+	/**
+	 * The queries of one request, and the reply once they are all answered.
+	 */
+	private static final class Batch {
+		private final Query[] queries;
+		private final CompletableFuture<String> done = new CompletableFuture<>();
+
+		Batch(Query[] queries) {
+			this.queries = queries;
+		}
+	}
+}
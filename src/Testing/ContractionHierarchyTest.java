@@ -0,0 +1,110 @@
+package Testing;
+
+import Graph.ContractionHierarchy;
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks that hierarchy queries find paths as cheap as Dijkstra's, made of
+ * original edges, while settling far fewer nodes.
+ */
+public class ContractionHierarchyTest extends DSUnitTesting {
+	
+	Graph g;
+	Node[] nodes;
+	
+	@Before
+	public void initialise() {
+		GraphLoader gl = new GraphLoader();
+		nodes = gl.getNodes();
+		g = new Graph();
+		g.connectNodes(nodes);
+	}
+	
+	@Test
+	public void pathsMatchDijkstra() {
+		AssignmentMarker.marks.put("ContractionHierarchy:pathsMatchDijkstra", 10.0f);
+		ContractionHierarchy ch = new ContractionHierarchy(nodes);
+		
+		for (int s = 0; s < nodes.length; s++) {
+			for (int t = 0; t < nodes.length; t++) {
+				Node[] path = ch.shortestPath(nodes[s], nodes[t]);
+				Assert.assertSame("1. Path starts at " + s, nodes[s], path[0]);
+				Assert.assertSame("2. Path ends at " + t, nodes[t], path[path.length - 1]);
+				// calculateTotalWeight returns -1 if a hop is not an original edge
+				Assert.assertEquals("3. Cost of " + s + " -> " + t,
+						g.calculateTotalWeight(g.dijkstrasSearch(nodes[s], nodes[t])),
+						g.calculateTotalWeight(path), 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void largeGrid() {
+		AssignmentMarker.marks.put("ContractionHierarchy:largeGrid", 10.0f);
+		
+		int side = 80;
+		double[] elevations = new double[side * side];
+		Random random = new Random(7);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextInt(10) / 10.0;
+		}
+		GridGraph grid = new GridGraph(side, side, elevations, 0, 0, 10);
+		ContractionHierarchy ch = new ContractionHierarchy(grid);
+		ContractionHierarchy.Query query = ch.newQuery();
+		
+		int settled = 0;
+		for (int i = 0; i < 30; i++) {
+			int s = random.nextInt(elevations.length);
+			int t = random.nextInt(elevations.length);
+			int[] path = query.shortestPath(s, t);
+			settled += query.getSettledCount();
+			Assert.assertEquals("1. Cost of " + s + " -> " + t, cost(grid, IndexedSearch.dijkstrasSearch(grid, s, t)),
+					cost(grid, path), 1e-9);
+			Assert.assertEquals("2. Distance of " + s + " -> " + t, cost(grid, path), ch.distance(s, t), 1e-9);
+		}
+		Assert.assertTrue("3. Queries should settle a small part of the map", settled / 30 < elevations.length / 4);
+	}
+	
+	@Test
+	public void oneWayEdges() {
+		AssignmentMarker.marks.put("ContractionHierarchy:oneWayEdges", 5.0f);
+		
+		// Remove every edge into node 11
+		for (Node n : nodes) {
+			n.getEdges().removeIf(e -> e.getToNode() == nodes[11]);
+		}
+		CsrGraph csr = new CsrGraph(nodes);
+		ContractionHierarchy ch = new ContractionHierarchy(csr);
+		Assert.assertNull("1. Node 11 cannot be entered", ch.shortestPath(0, 11));
+		Assert.assertEquals("2. Node 11 can be left", IndexedSearch.dijkstrasSearch(csr, 11, 0).length,
+				ch.shortestPath(11, 0).length);
+	}
+	
+	private double cost(GridGraph grid, int[] path) {
+		double total = 0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			Assert.assertTrue("Hops must join neighbours", isNeighbour(grid, path[i], path[i + 1]));
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+	
+	private boolean isNeighbour(GridGraph grid, int a, int b) {
+		for (int d = 0; d < GridGraph.DIRECTIONS; d++) {
+			if (grid.neighbour(a, d) == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
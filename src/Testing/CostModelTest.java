@@ -0,0 +1,174 @@
+package Testing;
+
+import Graph.CostModel;
+import Graph.CsrGraph;
+import Graph.Edge;
+import Graph.Graph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.Position;
+import Graph.QueueType;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the cost models, in bulk against their per-edge weights, and the
+ * paths found once a graph has been reweighed.
+ */
+public class CostModelTest extends DSUnitTesting {
+
+	private Node[] connectedNodes(Graph graph) throws Exception {
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		graph.connectNodes(nodes);
+		return nodes;
+	}
+
+	@Test
+	public void bulkMatchesScalar() {
+		AssignmentMarker.marks.put("CostModel:bulkMatchesScalar", 2.0f);
+		Random random = new Random(20);
+		int nodeCount = 50;
+		int edgeCount = 1000;
+		double[] elevations = new double[nodeCount];
+		int[] terrain = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			elevations[i] = random.nextDouble() * 3;
+			terrain[i] = random.nextInt(3);
+		}
+		int[] sources = new int[edgeCount];
+		int[] targets = new int[edgeCount];
+		double[] distances = new double[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			sources[e] = random.nextInt(nodeCount);
+			targets[e] = random.nextInt(nodeCount);
+			distances[e] = 1 + random.nextDouble() * 60;
+		}
+		CostModel[] models = {
+				CostModel.standard(),
+				CostModel.slopeLimited(0.02),
+				CostModel.uphillOnly(),
+				CostModel.terrainMultiplier(CostModel.uphillOnly(), terrain, new double[] {1.0, 1.5, 4.0})
+		};
+		for (CostModel model : models) {
+			double[] weights = new double[edgeCount];
+			model.weights(sources, targets, distances, elevations, weights);
+			for (int e = 0; e < edgeCount; e++) {
+				double expected = model.weight(sources[e], targets[e], distances[e],
+						elevations[sources[e]], elevations[targets[e]]);
+				Assert.assertEquals(expected, weights[e], 0.0);
+				Assert.assertTrue(weights[e] >= Edge.FLAT_COST * distances[e]);
+			}
+		}
+
+		try {
+			CostModel.terrainMultiplier(CostModel.standard(), terrain, new double[] {0.5});
+			Assert.fail("Multipliers below 1 should be rejected");
+		}
+		catch (IllegalArgumentException expected) {
+			//heuristics would overestimate
+		}
+	}
+
+	@Test
+	public void reweighGraphs() throws Exception {
+		AssignmentMarker.marks.put("CostModel:reweighGraphs", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		CsrGraph csr = new CsrGraph(nodes);
+		double[] original = csr.getWeights().clone();
+
+		//the standard model reproduces the weights edges are built with
+		Assert.assertArrayEquals(original, csr.withCostModel(CostModel.standard()).getWeights(), 0.0);
+		graph.applyCostModel(nodes, CostModel.standard());
+		Assert.assertArrayEquals(original, new CsrGraph(nodes).getWeights(), 0.0);
+
+		//both forms agree after switching models
+		CostModel uphill = CostModel.uphillOnly();
+		CsrGraph standard = csr;
+		csr = csr.withCostModel(uphill);
+		graph.applyCostModel(nodes, uphill);
+		Assert.assertArrayEquals(csr.getWeights(), new CsrGraph(nodes).getWeights(), 0.0);
+		//the graph it was made from is left as it was
+		Assert.assertArrayEquals(original, standard.getWeights(), 0.0);
+		Assert.assertSame(standard.getTargets(), csr.getTargets());
+		Edge edge = graph.getEdge(nodes[0], nodes[1]);
+		Edge back = graph.getEdge(nodes[1], nodes[0]);
+		double distance = nodes[0].getPosition().distance(nodes[1].getPosition());
+		Assert.assertEquals(distance * Edge.FLAT_COST, Math.min(edge.getWeight(), back.getWeight()), 1e-12);
+
+		Node[] path = graph.dijkstrasSearch(nodes[0], nodes[99]);
+		int[] ids = IndexedSearch.dijkstrasSearch(csr, 0, 99, QueueType.BINARY_HEAP);
+		Assert.assertEquals(graph.calculateTotalWeight(path), cost(csr, ids), 1e-9);
+		//the reverse graph follows the new weights
+		int[] bidirectional = IndexedSearch.bidirectionalSearch(csr, 0, 99);
+		Assert.assertEquals(cost(csr, ids), cost(csr, bidirectional), 1e-9);
+
+		edge.updateWeight();
+		Assert.assertEquals(original[0], edge.getWeight(), 0.0);
+
+		//models are given node ids, which unconnected nodes lack
+		Edge loose = new Edge(new Node(0.0, new Position(0, 0)), new Node(1.0, new Position(1, 0)));
+		try {
+			loose.updateWeight(CostModel.terrainMultiplier(CostModel.standard(), new int[] {0, 0}, new double[] {1.0}));
+			Assert.fail("Nodes without ids should be rejected");
+		}
+		catch (IllegalStateException expected) {
+			//rather than indexing the terrain with -1
+		}
+	}
+
+	@Test
+	public void slopeLimitAvoidsSteepEdges() throws Exception {
+		AssignmentMarker.marks.put("CostModel:slopeLimitAvoidsSteepEdges", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		Node[] unlimited = graph.dijkstrasSearch(nodes[0], nodes[99]);
+
+		//find the steepest edge the unlimited path uses and forbid it
+		double steepest = 0.0;
+		for (int i = 0; i + 1 < unlimited.length; i++) {
+			steepest = Math.max(steepest, slope(unlimited[i], unlimited[i + 1]));
+		}
+		double limit = steepest * 0.99;
+		graph.applyCostModel(nodes, CostModel.slopeLimited(limit));
+		for (QueueType queueType : QueueType.values()) {
+			graph.setQueueType(queueType);
+			Node[] path = graph.dijkstrasSearch(nodes[0], nodes[99]);
+			if (path != null) {
+				for (int i = 0; i + 1 < path.length; i++) {
+					Assert.assertTrue(slope(path[i], path[i + 1]) <= limit);
+				}
+				Assert.assertTrue(graph.calculateTotalWeight(path) < Double.POSITIVE_INFINITY);
+			}
+		}
+
+		//with no slope allowed only flat edges can be crossed, so the target is cut off
+		graph.setQueueType(QueueType.BINARY_HEAP);
+		graph.applyCostModel(nodes, CostModel.slopeLimited(0.0));
+		Node[] flat = graph.dijkstrasSearch(nodes[0], nodes[99]);
+		for (int i = 0; i + 1 < flat.length; i++) {
+			Assert.assertEquals(0.0, slope(flat[i], flat[i + 1]), 0.0);
+		}
+		Assert.assertNull(IndexedSearch.dijkstrasSearch(new CsrGraph(nodes), 0, 99));
+	}
+
+	private static double cost(CsrGraph graph, int[] path) {
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			for (int e = graph.getOffsets()[path[i]]; e < graph.getOffsets()[path[i] + 1]; e++) {
+				if (graph.getTargets()[e] == path[i + 1]) {
+					total += graph.getWeights()[e];
+					break;
+				}
+			}
+		}
+		return total;
+	}
+
+	private static double slope(Node from, Node to) {
+		return Math.abs(to.getElevation() - from.getElevation()) / from.getPosition().distance(to.getPosition());
+	}
+}
@@ -0,0 +1,83 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the compact graph mirrors the connected nodes and that
+ * searches over it return the same paths as Graph.
+ */
+public class CsrGraphTest extends DSUnitTesting {
+	
+	Graph g;
+	Node[] nodes;
+	CsrGraph csr;
+	
+	@Before
+	public void initialise() {
+		GraphLoader gl = new GraphLoader();
+		nodes = gl.getNodes();
+		g = new Graph();
+		g.connectNodes(nodes);
+		csr = new CsrGraph(nodes);
+	}
+	
+	@Test
+	public void constructor() {
+		AssignmentMarker.marks.put("CsrGraph:constructor", 5.0f);
+		
+		int edges = 0;
+		for (Node n : nodes) {
+			edges += n.getEdges().size();
+		}
+		Assert.assertEquals("1. Every edge should be copied", edges, csr.edgeCount());
+		Assert.assertEquals("2. Corner node has three edges", 3, csr.degree(0));
+		Assert.assertEquals("3. Inner node has eight edges", 8, csr.degree(45));
+		
+		// Edges keep the E, W, S, N, NE, SE, NW, SW order of connectNodes
+		int[] offsets = csr.getOffsets();
+		int[] expected = {46, 44, 55, 35, 36, 56, 34, 54};
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals("4. Node 45's edge " + i, expected[i], csr.getTargets()[offsets[45] + i]);
+			Assert.assertEquals("5. Node 45's weight " + i, nodes[45].getEdges().get(i).getWeight(),
+					csr.getWeights()[offsets[45] + i], 0.0);
+		}
+	}
+	
+	@Test
+	public void searchesMatchGraph() {
+		AssignmentMarker.marks.put("CsrGraph:searchesMatchGraph", 10.0f);
+		
+		int[] starts = {0, 5, 40, 63, 99};
+		for (int s : starts) {
+			for (int t = 0; t < nodes.length; t++) {
+				Assert.assertArrayEquals("BFS " + s + " -> " + t, g.breadthFirstSearch(nodes[s], nodes[t]),
+						csr.toNodes(IndexedSearch.breadthFirstSearch(csr, s, t)));
+				Assert.assertArrayEquals("DFS " + s + " -> " + t, g.depthFirstSearch(nodes[s], nodes[t]),
+						csr.toNodes(IndexedSearch.depthFirstSearch(csr, s, t)));
+				Assert.assertArrayEquals("Dijkstra " + s + " -> " + t, g.dijkstrasSearch(nodes[s], nodes[t]),
+						csr.toNodes(IndexedSearch.dijkstrasSearch(csr, s, t)));
+			}
+		}
+	}
+	
+	@Test
+	public void unreachable() {
+		AssignmentMarker.marks.put("CsrGraph:unreachable", 5.0f);
+		
+		// A graph whose nodes were never connected has no paths between distinct nodes
+		Node[] isolated = new GraphLoader().getNodes();
+		CsrGraph empty = new CsrGraph(isolated);
+		Assert.assertEquals("1. No edges", 0, empty.edgeCount());
+		Assert.assertNull("2. BFS finds no path", IndexedSearch.breadthFirstSearch(empty, 0, 1));
+		Assert.assertNull("3. DFS finds no path", IndexedSearch.depthFirstSearch(empty, 0, 1));
+		Assert.assertNull("4. Dijkstra finds no path", IndexedSearch.dijkstrasSearch(empty, 0, 1));
+		Assert.assertArrayEquals("5. A node reaches itself", new int[]{7}, IndexedSearch.dijkstrasSearch(empty, 7, 7));
+	}
+}
@@ -0,0 +1,150 @@
+package Testing;
+
+import Graph.CostModel;
+import Graph.DStarLite;
+import Graph.Edge;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import Graph.SearchStats;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks that incremental replanning finds the same costs as searching
+ * again from scratch, while expanding far fewer nodes.
+ */
+public class DStarLiteTest extends DSUnitTesting {
+	
+	private GridGraph hillyGrid(int side, long seed) {
+		double[] elevations = new double[side * side];
+		Random random = new Random(seed);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextInt(10) / 10.0;
+		}
+		return new GridGraph(side, side, elevations, 0, 0, 10);
+	}
+	
+	private double cost(GridGraph grid, int[] path) {
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+	
+	@Test
+	public void replansGrid() {
+		AssignmentMarker.marks.put("DStarLite:replansGrid", 5.0f);
+		GridGraph grid = hillyGrid(150, 4);
+		int start = grid.getId(10, 10);
+		int goal = grid.getId(140, 130);
+		DStarLite planner = new DStarLite(grid, start, goal, grid.octileHeuristic());
+		
+		int[] path = planner.plan();
+		Assert.assertEquals("1. Initial cost", cost(grid, IndexedSearch.dijkstrasSearch(grid, start, goal)),
+				cost(grid, path), 1e-9);
+		Assert.assertEquals("2. Reported cost", cost(grid, path), planner.getCost(), 1e-9);
+		
+		Random random = new Random(8);
+		long replanned = 0;
+		long full = 0;
+		for (int step = 0; step < 20; step++) {
+			//the unit advances along its path and finds the ground ahead has changed
+			start = path[Math.min(3, path.length - 1)];
+			planner.setStart(start);
+			int row = start / grid.getCols();
+			int col = start % grid.getCols();
+			for (int i = 0; i < 6; i++) {
+				int r = Math.min(grid.getRows() - 1, Math.max(0, row + random.nextInt(9) - 4));
+				int c = Math.min(grid.getCols() - 1, Math.max(0, col + random.nextInt(9) - 4));
+				int node = grid.getId(r, c);
+				grid.setElevation(node, random.nextInt(10) / 10.0);
+				planner.nodesChanged(node);
+			}
+			path = planner.plan();
+			SearchStats stats = new SearchStats();
+			int[] expected = IndexedSearch.dijkstrasSearch(grid, start, goal,
+					QueueType.BINARY_HEAP, stats);
+			Assert.assertEquals("3. Cost after change " + step, cost(grid, expected), cost(grid, path), 1e-9);
+			Assert.assertEquals("4. Path starts at the unit", start, path[0]);
+			replanned += planner.getExpandedCount();
+			full += stats.getNodesSettled();
+		}
+		Assert.assertTrue("5. Replanning expanded " + replanned + " nodes against " + full,
+				replanned * 5 < full);
+	}
+	
+	@Test
+	public void unreachableGoal() {
+		AssignmentMarker.marks.put("DStarLite:unreachableGoal", 2.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		new Graph().connectNodes(nodes);
+		DStarLite planner = new DStarLite(nodes, nodes[0], nodes[99]);
+		Assert.assertNotNull("1. Initially reachable", planner.planNodes());
+		
+		//cutting the goal off changes the graph's shape, which restarts the search
+		for (Node node : nodes) {
+			node.getEdges().removeIf(edge -> edge.getToNode() == nodes[99]);
+		}
+		nodes[99].setEdges(nodes[99].getEdges());
+		Assert.assertNull("2. Unreachable", planner.planNodes());
+		Assert.assertEquals("3. Cost", Double.MAX_VALUE, planner.getCost(), 0.0);
+		planner.close();
+	}
+	
+	@Test
+	public void followsNodeElevation() {
+		AssignmentMarker.marks.put("DStarLite:followsNodeElevation", 4.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		DStarLite planner = new DStarLite(nodes, nodes[9], nodes[90]);
+		
+		Random random = new Random(3);
+		for (int step = 0; step < 15; step++) {
+			Node[] path = planner.planNodes();
+			Assert.assertEquals("1. Cost at step " + step,
+					graph.calculateTotalWeight(graph.dijkstrasSearch(nodes[9], nodes[90])),
+					graph.calculateTotalWeight(path), 1e-9);
+			//raise or lower a node on the current path, so the planner must route around it
+			Node changed = path[1 + random.nextInt(path.length - 2)];
+			changed.setElevation(changed.getElevation() + (random.nextBoolean() ? 2.0 : -0.5));
+		}
+		planner.close();
+	}
+	
+	@Test
+	public void keepsCostModel() {
+		AssignmentMarker.marks.put("DStarLite:keepsCostModel", 2.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		CostModel model = CostModel.slopeLimited(0.01);
+		graph.applyCostModel(nodes, model);
+		DStarLite planner = new DStarLite(nodes, nodes[0], nodes[99], model);
+		planner.planNodes();
+		
+		//a node raised far above its neighbours is cut off under the model, not reweighed as standard
+		nodes[55].setElevation(nodes[55].getElevation() + 100.0);
+		for (Edge edge : nodes[55].getEdges()) {
+			Assert.assertEquals("1. Edge out of the raised node", Double.POSITIVE_INFINITY, edge.getWeight(), 0.0);
+			Assert.assertEquals("2. Edge into the raised node", Double.POSITIVE_INFINITY,
+					graph.getEdge(edge.getToNode(), nodes[55]).getWeight(), 0.0);
+		}
+		Node[] path = planner.planNodes();
+		Node[] expected = graph.dijkstrasSearch(nodes[0], nodes[99]);
+		if (path == null) {
+			Assert.assertEquals("3. Unreachable", 1, expected.length);
+		}
+		else {
+			Assert.assertEquals("3. Cost", graph.calculateTotalWeight(expected), graph.calculateTotalWeight(path), 1e-9);
+		}
+		planner.close();
+	}
+}
@@ -0,0 +1,146 @@
+package Testing;
+
+import Graph.CostModel;
+import Graph.CsrGraph;
+import Graph.DeltaStepping;
+import Graph.Edge;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.Position;
+import Graph.ShortestPathTree;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that parallel delta-stepping finds exactly the distances Dijkstra's algorithm does.
+ */
+public class DeltaSteppingTest extends DSUnitTesting {
+
+	@Test
+	public void matchesDijkstra() throws Exception {
+		AssignmentMarker.marks.put("DeltaStepping:matchesDijkstra", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		CsrGraph csr = new CsrGraph(nodes);
+		for (int source : new int[] {0, 9, 45, 99}) {
+			ShortestPathTree expected = IndexedSearch.shortestPathTree(csr, source);
+			ShortestPathTree actual = graph.parallelShortestPathTree(nodes[source]);
+			assertSameTree(csr, expected, actual);
+		}
+	}
+
+	@Test
+	public void largeGridInParallel() {
+		AssignmentMarker.marks.put("DeltaStepping:largeGridInParallel", 3.0f);
+		int side = 400;
+		Random random = new Random(21);
+		double[] elevations = new double[side * side];
+		for (int i = 0; i < elevations.length; i++) {
+			int row = i / side;
+			int col = i % side;
+			elevations[i] = Math.sin(row * 0.05) + Math.cos(col * 0.07) + random.nextDouble() * 0.3;
+		}
+		GridGraph grid = new GridGraph(side, side, elevations, 0, 0, 10);
+		ShortestPathTree expected = IndexedSearch.shortestPathTree(grid, 12345);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			//the chosen delta, narrow buckets, and one bucket holding everything
+			double[] deltas = {DeltaStepping.chooseDelta(grid), 0.05, 1e9};
+			for (double delta : deltas) {
+				assertSameTree(grid, expected, DeltaStepping.compute(grid, 12345, delta, pool));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void unreachableAndImpassable() throws Exception {
+		AssignmentMarker.marks.put("DeltaStepping:unreachableAndImpassable", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		for (int i = 0; i < 10; i++) {
+			//cut off the top row
+			nodes[10 + i].getEdges().removeIf(edge -> edge.getToNode().getId() < 10);
+		}
+		CsrGraph csr = new CsrGraph(nodes).withCostModel(CostModel.slopeLimited(0.02));
+		ShortestPathTree expected = IndexedSearch.shortestPathTree(csr, 55);
+		ShortestPathTree actual = DeltaStepping.compute(csr, 55);
+		assertSameTree(csr, expected, actual);
+		Assert.assertFalse(actual.isReachable(0));
+		Assert.assertNull(actual.getPath(0));
+
+		try {
+			DeltaStepping.compute(csr, 55, 0.0, ForkJoinPool.commonPool());
+			Assert.fail("Delta must be positive");
+		}
+		catch (IllegalArgumentException expectedFailure) {
+			//buckets would have no width
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void zeroWeightEdges() {
+		AssignmentMarker.marks.put("DeltaStepping:zeroWeightEdges", 2.0f);
+		//three nodes in the same place, so every edge between them weighs nothing
+		Node[] nodes = new Node[3];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new Node(1.0, new Position(5, 5));
+			nodes[i].setId(i);
+		}
+		Node b = nodes[0];
+		Node a = nodes[1];
+		Node s = nodes[2];
+		s.getEdges().add(new Edge(s, a));
+		a.getEdges().add(new Edge(a, b));
+		b.getEdges().add(new Edge(b, a));
+		CsrGraph csr = new CsrGraph(nodes);
+		ShortestPathTree expected = IndexedSearch.shortestPathTree(csr, 2);
+		ShortestPathTree actual = DeltaStepping.compute(csr, 2);
+		assertSameTree(csr, expected, actual);
+		Assert.assertEquals(3, actual.getSettledCount());
+		Assert.assertEquals(2, actual.getParent(1));
+		Assert.assertArrayEquals(new int[] {2, 1, 0}, actual.getPath(0));
+	}
+
+	/**
+	 * Checks the distances match exactly and that every parent lies on a
+	 * shortest path and comes before its child.
+	 */
+	private static void assertSameTree(IndexedGraph graph, ShortestPathTree expected, ShortestPathTree actual) {
+		int n = graph.nodeCount();
+		Assert.assertEquals(expected.getSettledCount(), actual.getSettledCount());
+		for (int node = 0; node < n; node++) {
+			Assert.assertEquals("Distance to " + node, expected.getDistance(node), actual.getDistance(node), 0.0);
+		}
+		int[] position = new int[n];
+		for (int i = 0; i < actual.getSettledCount(); i++) {
+			position[actual.getSettled(i)] = i;
+		}
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		for (int i = 1; i < actual.getSettledCount(); i++) {
+			int node = actual.getSettled(i);
+			int parent = actual.getParent(node);
+			Assert.assertTrue(position[parent] < i);
+			int count = graph.neighbours(parent, targets, weights);
+			boolean found = false;
+			for (int e = 0; e < count; e++) {
+				if (targets[e] == node && actual.getDistance(parent) + weights[e] == actual.getDistance(node)) {
+					found = true;
+				}
+			}
+			Assert.assertTrue("Parent of " + node, found);
+		}
+	}
+}
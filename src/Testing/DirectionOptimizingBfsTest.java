@@ -0,0 +1,137 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.DirectionOptimizingBfs;
+import Graph.Edge;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the parallel breadth-first search finds paths as short as the
+ * sequential one, through both its top-down and bottom-up steps.
+ */
+public class DirectionOptimizingBfsTest extends DSUnitTesting {
+
+	@Test
+	public void sameLengthAsSequential() throws Exception {
+		AssignmentMarker.marks.put("DirectionOptimizingBfs:sameLengthAsSequential", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		for (int start : new int[] {0, 37, 99}) {
+			for (int target = 0; target < nodes.length; target++) {
+				Node[] expected = graph.breadthFirstSearch(nodes[start], nodes[target]);
+				Node[] actual = graph.parallelBreadthFirstSearch(nodes[start], nodes[target]);
+				Assert.assertEquals(expected.length, actual.length);
+				Assert.assertSame(nodes[start], actual[0]);
+				Assert.assertSame(nodes[target], actual[actual.length - 1]);
+				for (int i = 0; i + 1 < actual.length; i++) {
+					Assert.assertNotNull(graph.getEdge(actual[i], actual[i + 1]));
+				}
+			}
+		}
+
+		//the graph's kept copy is rebuilt after changes, reported or not
+		for (Node node : nodes) {
+			node.getEdges().removeIf(edge -> edge.getToNode() == nodes[99]);
+		}
+		nodes[0].setEdges(nodes[0].getEdges());
+		Assert.assertNull(graph.parallelBreadthFirstSearch(nodes[0], nodes[99]));
+		nodes[98].getEdges().add(new Edge(nodes[98], nodes[99]));
+		graph.invalidateCaches();
+		Assert.assertEquals(graph.breadthFirstSearch(nodes[0], nodes[99]).length,
+				graph.parallelBreadthFirstSearch(nodes[0], nodes[99]).length);
+	}
+
+	@Test
+	public void hopsOnLargeGrid() {
+		AssignmentMarker.marks.put("DirectionOptimizingBfs:hopsOnLargeGrid", 3.0f);
+		int side = 400;
+		GridGraph grid = new GridGraph(side, side, new double[side * side], 0, 0, 1);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			int source = grid.getId(150, 220);
+			int[] hops = DirectionOptimizingBfs.hops(grid, source, pool);
+			for (int node = 0; node < grid.nodeCount(); node++) {
+				//with diagonal moves the fewest hops is the Chebyshev distance
+				int expected = Math.max(Math.abs(node / side - 150), Math.abs(node % side - 220));
+				Assert.assertEquals(expected, hops[node]);
+			}
+			int target = grid.getId(399, 0);
+			int[] path = DirectionOptimizingBfs.search(grid, source, target, pool);
+			Assert.assertEquals(IndexedSearch.breadthFirstSearch(grid, source, target).length, path.length);
+			assertEdges(grid, path);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void unreachable() throws Exception {
+		AssignmentMarker.marks.put("DirectionOptimizingBfs:unreachable", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		//only edges into node 0 remain, so it can be reached but not left
+		nodes[0].getEdges().clear();
+		CsrGraph csr = new CsrGraph(nodes);
+		int[] hops = DirectionOptimizingBfs.hops(csr, 0, ForkJoinPool.commonPool());
+		Assert.assertEquals(0, hops[0]);
+		Assert.assertEquals(-1, hops[1]);
+		Assert.assertNull(graph.parallelBreadthFirstSearch(nodes[0], nodes[99]));
+		Assert.assertEquals(10, graph.parallelBreadthFirstSearch(nodes[99], nodes[0]).length);
+	}
+
+	@Test
+	public void droppedGraphsAreCollected() throws Exception {
+		AssignmentMarker.marks.put("DirectionOptimizingBfs:droppedGraphsAreCollected", 1.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		new Graph().connectNodes(nodes);
+		//each search takes a snapshot and listens to the nodes
+		WeakReference<Graph> dropped = searchedGraph(nodes);
+		for (int i = 0; i < 20 && dropped.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertNull("The nodes keep a dropped graph reachable", dropped.get());
+		nodes[5].setElevation(nodes[5].getElevation()); //its listener now removes itself
+
+		//a closed graph stops listening, but takes a fresh snapshot when searched again
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		Assert.assertEquals(10, graph.parallelBreadthFirstSearch(nodes[0], nodes[99]).length);
+		graph.close();
+		nodes[0].getEdges().clear();
+		Assert.assertNull(graph.parallelBreadthFirstSearch(nodes[0], nodes[99]));
+	}
+
+	private static WeakReference<Graph> searchedGraph(Node[] nodes) {
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		Assert.assertNotNull(graph.parallelBreadthFirstSearch(nodes[0], nodes[99]));
+		return new WeakReference<>(graph);
+	}
+
+	private static void assertEdges(IndexedGraph graph, int[] path) {
+		int[] targets = new int[graph.maxDegree()];
+		double[] weights = new double[graph.maxDegree()];
+		for (int i = 0; i + 1 < path.length; i++) {
+			int count = graph.neighbours(path[i], targets, weights);
+			boolean found = false;
+			for (int e = 0; e < count; e++) {
+				found |= targets[e] == path[i + 1];
+			}
+			Assert.assertTrue(found);
+		}
+	}
+}
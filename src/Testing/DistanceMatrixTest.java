@@ -0,0 +1,111 @@
+package Testing;
+
+import Graph.DistanceMatrix;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the many-to-many cost matrix against one search per pair.
+ */
+public class DistanceMatrixTest extends DSUnitTesting {
+	
+	@Test
+	public void matchesPairwise() {
+		AssignmentMarker.marks.put("DistanceMatrix:matchesPairwise", 4.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		Node[] sources = {nodes[0], nodes[9], nodes[45], nodes[45]};
+		Node[] targets = {nodes[99], nodes[0], nodes[12], nodes[45]};
+		
+		DistanceMatrix matrix = graph.distanceMatrix(sources, targets, true);
+		Assert.assertEquals("1. Rows", sources.length, matrix.getSourceCount());
+		Assert.assertEquals("2. Columns", targets.length, matrix.getTargetCount());
+		for (int i = 0; i < sources.length; i++) {
+			for (int j = 0; j < targets.length; j++) {
+				Node[] path = graph.dijkstrasSearch(sources[i], targets[j]);
+				double cost = sources[i] == targets[j] ? 0.0 : graph.calculateTotalWeight(path);
+				Assert.assertEquals("3. Cost " + i + ", " + j, cost, matrix.getCost(i, j), 1e-9);
+				Assert.assertArrayEquals("4. Path " + i + ", " + j, path, matrix.getNodePath(i, j));
+			}
+		}
+	}
+	
+	@Test
+	public void unreachable() {
+		AssignmentMarker.marks.put("DistanceMatrix:unreachable", 2.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		nodes[0].getEdges().clear();
+		
+		DistanceMatrix matrix = graph.distanceMatrix(new Node[] {nodes[0], nodes[1]},
+				new Node[] {nodes[1], nodes[0]}, false);
+		Assert.assertEquals("1. Unreachable cost", DistanceMatrix.UNREACHABLE, matrix.getCost(0, 0), 0.0);
+		Assert.assertEquals("2. Start is its own target", 0.0, matrix.getCost(0, 1), 0.0);
+		Assert.assertTrue("3. Reachable cost", matrix.getCost(1, 0) < DistanceMatrix.UNREACHABLE);
+		try {
+			matrix.getPath(0, 0);
+			Assert.fail("4. Paths were not kept");
+		}
+		catch (IllegalStateException e) {
+			//expected
+		}
+	}
+	
+	@Test
+	public void parallelGrid() {
+		AssignmentMarker.marks.put("DistanceMatrix:parallelGrid", 3.0f);
+		int side = 60;
+		double[] elevations = new double[side * side];
+		Random random = new Random(11);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextInt(10) / 10.0;
+		}
+		GridGraph grid = new GridGraph(side, side, elevations, 0, 0, 10);
+		int[] sources = new int[37];
+		int[] targets = new int[13];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = random.nextInt(elevations.length);
+		}
+		for (int j = 0; j < targets.length; j++) {
+			targets[j] = random.nextInt(elevations.length);
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (QueueType queueType : QueueType.values()) {
+				DistanceMatrix matrix = DistanceMatrix.compute(grid, sources, targets, true, queueType, pool);
+				for (int i = 0; i < sources.length; i++) {
+					for (int j = 0; j < targets.length; j++) {
+						int[] expected = IndexedSearch.dijkstrasSearch(grid, sources[i], targets[j]);
+						Assert.assertEquals("1. " + queueType + " cost " + i + ", " + j, cost(grid, expected),
+								matrix.getCost(i, j), 1e-9);
+						Assert.assertEquals("2. " + queueType + " path cost " + i + ", " + j,
+								matrix.getCost(i, j), cost(grid, matrix.getPath(i, j)), 1e-9);
+					}
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	private double cost(GridGraph grid, int[] path) {
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,109 @@
+package Testing;
+
+import Graph.Edge;
+import Graph.Graph;
+import Graph.GraphFile;
+import Graph.GridGraph;
+import Graph.Node;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks that graphs survive a round trip through the binary graph file format.
+ */
+public class GraphFileTest extends DSUnitTesting {
+	
+	@Test
+	public void matchesSerialised() throws Exception {
+		AssignmentMarker.marks.put("GraphFile:matchesSerialised", 3.0f);
+		Node[] serialised = GraphLoader.load(GraphLoader.SERIALISED_PATH);
+		Node[] binary = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Assert.assertEquals("1. Node count", serialised.length, binary.length);
+		for (int i = 0; i < serialised.length; i++) {
+			Assert.assertEquals("2. Elevation " + i, serialised[i].getElevation(), binary[i].getElevation(), 0.0);
+			Assert.assertEquals("3. X " + i, serialised[i].getPosition().x, binary[i].getPosition().x, 0.0);
+			Assert.assertEquals("4. Y " + i, serialised[i].getPosition().y, binary[i].getPosition().y, 0.0);
+			Assert.assertEquals("5. Edges " + i, serialised[i].getEdges().size(), binary[i].getEdges().size());
+			Assert.assertEquals("6. Id " + i, i, binary[i].getId());
+		}
+		GraphFile file = GraphFile.open(java.nio.file.Paths.get(GraphLoader.DEFAULT_PATH));
+		Assert.assertEquals("7. Rows", 10, file.getRows());
+		Assert.assertFalse("8. No adjacency", file.hasAdjacency());
+	}
+	
+	@Test
+	public void adjacencyRoundTrip() throws Exception {
+		AssignmentMarker.marks.put("GraphFile:adjacencyRoundTrip", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		new Graph().connectNodes(nodes);
+		nodes[0].getEdges().remove(0); //one-way edges are kept as they are
+		Path path = Files.createTempFile("graph", ".graph");
+		try {
+			GraphFile.write(path, nodes, 10, 10, true);
+			GraphFile file = GraphFile.open(path);
+			Assert.assertTrue("1. Adjacency", file.hasAdjacency());
+			Node[] loaded = file.toNodes();
+			for (int i = 0; i < nodes.length; i++) {
+				Assert.assertEquals("2. Degree of " + i, nodes[i].getEdges().size(), loaded[i].getEdges().size());
+				for (int e = 0; e < nodes[i].getEdges().size(); e++) {
+					Edge expected = nodes[i].getEdges().get(e);
+					Edge actual = loaded[i].getEdges().get(e);
+					Assert.assertEquals("3. Target of " + i, expected.getToNode().getId(), actual.getToNode().getId());
+					Assert.assertEquals("4. Weight of " + i, expected.getWeight(), actual.getWeight(), 0.0);
+				}
+			}
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void gridRoundTrip() throws Exception {
+		AssignmentMarker.marks.put("GraphFile:gridRoundTrip", 2.0f);
+		double[] elevations = new double[300 * 200];
+		Random random = new Random(6);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextDouble();
+		}
+		GridGraph grid = new GridGraph(300, 200, elevations, 5, 7, 3);
+		Path path = Files.createTempFile("grid", ".graph");
+		try {
+			GraphFile.write(path, grid);
+			GridGraph loaded = GraphFile.open(path).toGridGraph();
+			Assert.assertEquals("1. Rows", 300, loaded.getRows());
+			Assert.assertEquals("2. Cols", 200, loaded.getCols());
+			Assert.assertEquals("3. Spacing", 3.0, loaded.getSpacing(), 0.0);
+			Assert.assertArrayEquals("4. Elevations", elevations, loaded.getElevations(), 0.0);
+			Assert.assertEquals("5. Last position", grid.getY(elevations.length - 1), loaded.getY(elevations.length - 1), 0.0);
+			
+			//a truncated file is refused
+			byte[] bytes = Files.readAllBytes(path);
+			Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 8));
+			try {
+				GraphFile.open(path);
+				Assert.fail("6. Truncated file");
+			}
+			catch (IOException e) {
+				//expected
+			}
+			Files.write(path, new byte[64]);
+			try {
+				GraphFile.open(path);
+				Assert.fail("7. Not a graph file");
+			}
+			catch (IOException e) {
+				//expected
+			}
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+}
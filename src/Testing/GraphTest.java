@@ -3,6 +3,7 @@ package Testing;
 import Graph.Graph;
 import Graph.Node;
 import Graph.Edge;
+import Graph.QueueType;
 import GUI.GraphLoader;
 import org.junit.Assert;
 import org.junit.Before;
@@ -190,15 +191,115 @@ public class GraphTest extends DSUnitTesting {
 		paths_equal(2, exp_path, actual_path);
 	}
 	
-//	@Test
-//	public void aStarSearch() {
-//		AssignmentMarker.marks.put("Graph:aStarSearch", 10.0f);
-//		g.connectNodes(nodes);
-//		
-//		Node[] exp_path = {nodes[9], nodes[8], nodes[17], nodes[27], nodes[37], nodes[47], nodes[57],
-//				nodes[67], nodes[78], nodes[88], nodes[99]};
-//		Node[] actual_path = g.aStarSearch(nodes[9], nodes[99]);
-//		
-//		paths_equal(1, exp_path, actual_path);
-//	}
+	@Test
+	public void dijkstrasSearchQueueTypes() {
+		AssignmentMarker.marks.put("Graph:dijkstrasSearchQueueTypes", 5.0f);
+		g.connectNodes(nodes);
+		
+		Node[] exp_path1 = {nodes[40], nodes[50], nodes[60], nodes[71], nodes[72], nodes[73], nodes[74],
+				nodes[75], nodes[65], nodes[55], nodes[46], nodes[47], nodes[58]};
+		Node[] exp_path2 = {nodes[8], nodes[7], nodes[6], nodes[16], nodes[15], nodes[14], nodes[4],
+				nodes[3], nodes[2], nodes[1], nodes[0]};
+		
+		// Every queue must settle nodes in the same order and so build the same paths
+		for (QueueType type : QueueType.values()) {
+			g.setQueueType(type);
+			paths_equal(1, exp_path1, g.dijkstrasSearch(nodes[40], nodes[58]));
+			paths_equal(2, exp_path2, g.dijkstrasSearch(nodes[8], nodes[0]));
+			paths_equal(3, new Node[]{nodes[33]}, g.dijkstrasSearch(nodes[33], nodes[33]));
+		}
+	}
+	
+	@Test
+	public void aStarSearch() {
+		AssignmentMarker.marks.put("Graph:aStarSearch", 10.0f);
+		g.connectNodes(nodes);
+		
+		// The least-costly path, the same one dijkstrasSearch finds
+		Node[] exp_path = {nodes[9], nodes[8], nodes[18], nodes[28], nodes[38], nodes[47], nodes[58],
+				nodes[68], nodes[78], nodes[88], nodes[99]};
+		Node[] actual_path = g.aStarSearch(nodes[9], nodes[99]);
+		
+		paths_equal(1, exp_path, actual_path);
+		
+		// A* must find paths as cheap as Dijkstra's, between every pair of nodes
+		for (int s = 0; s < nodes.length; s++) {
+			for (int t = 0; t < nodes.length; t += 7) {
+				Assert.assertEquals("2. Cost of " + s + " -> " + t,
+						g.calculateTotalWeight(g.dijkstrasSearch(nodes[s], nodes[t])),
+						g.calculateTotalWeight(g.aStarSearch(nodes[s], nodes[t])), 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void bidirectionalSearch() {
+		AssignmentMarker.marks.put("Graph:bidirectionalSearch", 10.0f);
+		g.connectNodes(nodes);
+		
+		for (int s = 0; s < nodes.length; s += 3) {
+			for (int t = 0; t < nodes.length; t++) {
+				double expected = g.calculateTotalWeight(g.dijkstrasSearch(nodes[s], nodes[t]));
+				Assert.assertEquals("1. Cost of " + s + " -> " + t, expected,
+						g.calculateTotalWeight(g.bidirectionalSearch(nodes[s], nodes[t])), 1e-9);
+				Assert.assertEquals("2. A* cost of " + s + " -> " + t, expected,
+						g.calculateTotalWeight(g.bidirectionalAStarSearch(nodes[s], nodes[t])), 1e-9);
+			}
+		}
+		
+		// Remove the edges leading into node 11, so only its outgoing edges remain
+		for (Node n : nodes) {
+			n.getEdges().removeIf(e -> e.getToNode() == nodes[11]);
+		}
+		g.invalidateCaches(); //edits through getEdges are not reported
+		Node[] path = g.bidirectionalSearch(nodes[11], nodes[0]);
+		Assert.assertEquals("3. One-way edges can be left", 2, path.length);
+		Assert.assertNull("4. Node 11 cannot be entered", g.bidirectionalSearch(nodes[0], nodes[11]));
+		Assert.assertNull("5. Node 11 cannot be entered", g.bidirectionalAStarSearch(nodes[99], nodes[11]));
+		
+		// A cheap one-way shortcut must be followed forwards but never backwards
+		nodes[0].getEdges().add(new Edge(nodes[0], nodes[99]));
+		g.invalidateCaches();
+		Assert.assertArrayEquals("6. Path takes the shortcut", new Node[]{nodes[0], nodes[99]},
+				g.bidirectionalSearch(nodes[0], nodes[99]));
+		Assert.assertEquals("7. Reverse path avoids the shortcut",
+				g.calculateTotalWeight(g.dijkstrasSearch(nodes[99], nodes[0])),
+				g.calculateTotalWeight(g.bidirectionalSearch(nodes[99], nodes[0])), 1e-9);
+	}
+	
+	@Test
+	public void nodeIds() {
+		AssignmentMarker.marks.put("Graph:nodeIds", 5.0f);
+		for (int i = 0; i < nodes.length; i++) {
+			Assert.assertEquals("1. Id assigned at load", i, nodes[i].getId());
+		}
+		g.connectNodes(nodes);
+		Node[] bfs = g.breadthFirstSearch(nodes[71], nodes[15]);
+		Node[] dfs = g.depthFirstSearch(nodes[63], nodes[52]);
+		Node[] dijkstra = g.dijkstrasSearch(nodes[8], nodes[0]);
+		
+		// Searching a second graph whose ids no longer match the first graph's array
+		Node[] copy = new GraphLoader().getNodes();
+		Graph other = new Graph();
+		other.connectNodes(copy);
+		for (Node n : copy) {
+			n.setId(copy.length - 1 - n.getId());
+		}
+		Assert.assertArrayEquals("2. Breadth-first search", ids(bfs), ids(other.breadthFirstSearch(copy[71], copy[15]), copy));
+		Assert.assertArrayEquals("3. Depth-first search", ids(dfs), ids(other.depthFirstSearch(copy[63], copy[52]), copy));
+		Assert.assertArrayEquals("4. Dijkstra's search", ids(dijkstra), ids(other.dijkstrasSearch(copy[8], copy[0]), copy));
+		Assert.assertNull("5. Target outside the graph", other.breadthFirstSearch(copy[0], nodes[1]));
+	}
+	
+	private int[] ids(Node[] path) {
+		return ids(path, nodes);
+	}
+	
+	private int[] ids(Node[] path, Node[] graphNodes) {
+		int[] result = new int[path.length];
+		for (int i = 0; i < path.length; i++) {
+			result[i] = java.util.Arrays.asList(graphNodes).indexOf(path[i]);
+		}
+		return result;
+	}
 }
@@ -0,0 +1,148 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.Position;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the implicit grid produces the same edges, weights and
+ * paths as connected nodes, and that it scales past the 10x10 map.
+ */
+public class GridGraphTest extends DSUnitTesting {
+	
+	Graph g;
+	Node[] nodes;
+	GridGraph grid;
+	
+	@Before
+	public void initialise() {
+		GraphLoader gl = new GraphLoader();
+		nodes = gl.getNodes();
+		g = new Graph();
+		grid = GridGraph.fromNodes(nodes, 10, 10);
+	}
+	
+	@Test
+	public void neighbours() {
+		AssignmentMarker.marks.put("GridGraph:neighbours", 5.0f);
+		g.connectNodes(nodes);
+		
+		int[] targets = new int[GridGraph.DIRECTIONS];
+		double[] weights = new double[GridGraph.DIRECTIONS];
+		for (int i = 0; i < nodes.length; i++) {
+			int count = grid.neighbours(i, targets, weights);
+			Assert.assertEquals("1. Node " + i + "'s degree", nodes[i].getEdges().size(), count);
+			for (int e = 0; e < count; e++) {
+				Assert.assertSame("2. Node " + i + "'s edge " + e, nodes[i].getEdges().get(e).getToNode(),
+						nodes[targets[e]]);
+				Assert.assertEquals("3. Node " + i + "'s weight " + e, nodes[i].getEdges().get(e).getWeight(),
+						weights[e], 0.0);
+			}
+		}
+	}
+	
+	@Test
+	public void searchesMatchGraph() {
+		AssignmentMarker.marks.put("GridGraph:searchesMatchGraph", 5.0f);
+		g.connectNodes(nodes);
+		CsrGraph csr = new CsrGraph(nodes);
+		
+		int[] starts = {0, 40, 71, 99};
+		for (int s : starts) {
+			for (int t = 0; t < nodes.length; t++) {
+				Assert.assertArrayEquals("BFS " + s + " -> " + t, IndexedSearch.breadthFirstSearch(csr, s, t),
+						IndexedSearch.breadthFirstSearch(grid, s, t));
+				Assert.assertArrayEquals("DFS " + s + " -> " + t, IndexedSearch.depthFirstSearch(csr, s, t),
+						IndexedSearch.depthFirstSearch(grid, s, t));
+				Assert.assertArrayEquals("Dijkstra " + s + " -> " + t, IndexedSearch.dijkstrasSearch(csr, s, t),
+						IndexedSearch.dijkstrasSearch(grid, s, t));
+			}
+		}
+	}
+	
+	@Test
+	public void largeGrid() {
+		AssignmentMarker.marks.put("GridGraph:largeGrid", 5.0f);
+		
+		int rows = 400;
+		int cols = 300;
+		double[] elevations = new double[rows * cols];
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = ((i * 31) % 17) / 10.0;
+		}
+		GridGraph large = new GridGraph(rows, cols, elevations, 0, 0, 1);
+		
+		Assert.assertEquals("1. Bottom-right cell id", rows * cols - 1, large.getId(rows - 1, cols - 1));
+		Assert.assertEquals("2. No east neighbour on the right edge", -1, large.neighbour(cols - 1, 0));
+		
+		// Hop count along the diagonal is the larger side
+		int[] path = IndexedSearch.breadthFirstSearch(large, 0, large.getId(rows - 1, cols - 1));
+		Assert.assertEquals("3. BFS path length", rows, path.length);
+		
+		// Elevation changes are seen by the next search without rebuilding anything
+		double flatMax = large.maxEdgeWeight();
+		large.setElevation(1, 5.0);
+		Assert.assertEquals("4. Weight follows elevation", 1 * (0.01 + Math.abs(5.0 - elevations[0])),
+				large.weight(0, 1), 1e-9);
+		Assert.assertTrue("5. Cached largest weight follows elevation", large.maxEdgeWeight() > flatMax);
+		Assert.assertEquals("6. Largest weight matches a fresh grid",
+				new GridGraph(rows, cols, elevations.clone(), 0, 0, 1).maxEdgeWeight(), large.maxEdgeWeight(), 0.0);
+	}
+	
+	@Test
+	public void connectRectangle() {
+		AssignmentMarker.marks.put("GridGraph:connectRectangle", 5.0f);
+		
+		Node[] rect = new Node[12];
+		for (int i = 0; i < rect.length; i++) {
+			rect[i] = new Node(i % 5, new Position(i % 4, i / 4));
+		}
+		g.connectNodes(rect, 3, 4);
+		Assert.assertEquals("1. Corner node has three edges", 3, rect[3].getEdges().size());
+		Assert.assertEquals("2. Inner node has eight edges", 8, rect[5].getEdges().size());
+		Assert.assertSame("3. East edge wraps to the right node", rect[6], rect[5].getEdges().get(0).getToNode());
+		Assert.assertSame("4. South edge", rect[9], rect[5].getEdges().get(2).getToNode());
+	}
+	
+	@Test
+	public void aStarSearch() {
+		AssignmentMarker.marks.put("GridGraph:aStarSearch", 5.0f);
+		
+		int rows = 120;
+		int cols = 90;
+		double[] elevations = new double[rows * cols];
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = ((i * 37) % 23) / 10.0;
+		}
+		GridGraph large = new GridGraph(rows, cols, elevations, 5, 5, 2);
+		
+		int[][] queries = {{0, rows * cols - 1}, {large.getId(60, 3), large.getId(7, 88)}, {45, 45}};
+		for (int[] q : queries) {
+			double expected = cost(large, IndexedSearch.dijkstrasSearch(large, q[0], q[1]));
+			Assert.assertEquals("1. Octile A* cost", expected,
+					cost(large, IndexedSearch.aStarSearch(large, q[0], q[1], large.octileHeuristic())), 1e-9);
+			Assert.assertEquals("2. Euclidean A* cost", expected,
+					cost(large, IndexedSearch.aStarSearch(large, q[0], q[1], large.euclideanHeuristic())), 1e-9);
+			Assert.assertEquals("3. Bidirectional cost", expected,
+					cost(large, IndexedSearch.bidirectionalSearch(large, q[0], q[1])), 1e-9);
+			Assert.assertEquals("4. Bidirectional octile A* cost", expected,
+					cost(large, IndexedSearch.bidirectionalAStarSearch(large, q[0], q[1], large.octileHeuristic())),
+					1e-9);
+		}
+	}
+	
+	private double cost(GridGraph grid, int[] path) {
+		double total = 0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,141 @@
+package Testing;
+
+import Graph.GridGraph;
+import Graph.HeightmapImporter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Checks that each heightmap format imports to the same grid, band by band.
+ */
+public class HeightmapImporterTest extends DSUnitTesting {
+	
+	private static final int ROWS = 37;
+	private static final int COLS = 23;
+	
+	private int[] samples(int max) {
+		int[] samples = new int[ROWS * COLS];
+		Random random = new Random(max);
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = random.nextInt(max + 1);
+		}
+		return samples;
+	}
+	
+	private void assertGrid(String message, int[] samples, int max, GridGraph grid) {
+		Assert.assertEquals(message + " rows", ROWS, grid.getRows());
+		Assert.assertEquals(message + " cols", COLS, grid.getCols());
+		for (int i = 0; i < samples.length; i++) {
+			Assert.assertEquals(message + " elevation " + i, 2.0 * samples[i] / max, grid.getElevation(i), 1e-12);
+		}
+	}
+	
+	@Test
+	public void rawAndPgm() throws Exception {
+		AssignmentMarker.marks.put("HeightmapImporter:rawAndPgm", 4.0f);
+		//small bands on a small pool, so several bands decode at once
+		ForkJoinPool pool = new ForkJoinPool(3);
+		HeightmapImporter importer = new HeightmapImporter(2.0, 10, 0, 0, 4, pool);
+		Path file = Files.createTempFile("heightmap", ".bin");
+		try {
+			int[] wide = samples(65535);
+			for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+				ByteBuffer raw = ByteBuffer.allocate(wide.length * 2).order(order);
+				for (int sample : wide) {
+					raw.putShort((short) sample);
+				}
+				Files.write(file, raw.array());
+				assertGrid("1. Raw " + order, wide, 65535,
+						importer.importGrid(HeightmapImporter.raw16(file, COLS, ROWS, order)));
+			}
+			
+			int[] narrow = samples(200);
+			ByteArrayOutputStream pgm = new ByteArrayOutputStream();
+			pgm.write(("P5\n# a comment\n" + COLS + " " + ROWS + "\n200\n").getBytes(StandardCharsets.US_ASCII));
+			for (int sample : narrow) {
+				pgm.write(sample);
+			}
+			Files.write(file, pgm.toByteArray());
+			assertGrid("2. 8-bit PGM", narrow, 200, importer.importGrid(HeightmapImporter.pgm(file)));
+			
+			pgm.reset();
+			pgm.write(("P5 " + COLS + " " + ROWS + " 65535\n").getBytes(StandardCharsets.US_ASCII));
+			for (int sample : wide) {
+				pgm.write(sample >> 8);
+				pgm.write(sample & 0xFF);
+			}
+			Files.write(file, pgm.toByteArray());
+			assertGrid("3. 16-bit PGM", wide, 65535, importer.importGrid(HeightmapImporter.pgm(file)));
+			
+			Files.write(file, "P2 2 2 255\n1 2 3 4".getBytes(StandardCharsets.US_ASCII));
+			try {
+				HeightmapImporter.pgm(file);
+				Assert.fail("4. ASCII PGM");
+			}
+			catch (IOException e) {
+				//expected
+			}
+		}
+		finally {
+			Files.delete(file);
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void imageBands() throws Exception {
+		AssignmentMarker.marks.put("HeightmapImporter:imageBands", 3.0f);
+		int[] grey = samples(255);
+		BufferedImage image = new BufferedImage(COLS, ROWS, BufferedImage.TYPE_BYTE_GRAY);
+		image.getRaster().setSamples(0, 0, COLS, ROWS, 0, grey);
+		Path file = Files.createTempFile("heightmap", ".png");
+		try {
+			ImageIO.write(image, "png", file.toFile());
+			HeightmapImporter importer = new HeightmapImporter(2.0, 10, 0, 0, 5, ForkJoinPool.commonPool());
+			HeightmapImporter.Source source = HeightmapImporter.image(file);
+			assertGrid("1. Grey PNG", grey, 255, importer.importGrid(source));
+			
+			//every row arrives in exactly one band
+			BitSet rows = new BitSet();
+			double[] streamed = new double[ROWS * COLS];
+			importer.stream(source, (firstRow, rowCount, elevations) -> {
+				synchronized (rows) {
+					Assert.assertFalse("2. Row streamed twice", rows.intersects(rows.get(firstRow, firstRow + rowCount)));
+					rows.set(firstRow, firstRow + rowCount);
+				}
+				System.arraycopy(elevations, 0, streamed, firstRow * COLS, elevations.length);
+			});
+			Assert.assertEquals("3. Rows streamed", ROWS, rows.cardinality());
+			Assert.assertArrayEquals("4. Streamed elevations", importer.importGrid(source).getElevations(), streamed, 0.0);
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void bundledMap() throws Exception {
+		AssignmentMarker.marks.put("HeightmapImporter:bundledMap", 1.0f);
+		HeightmapImporter.Source source = HeightmapImporter.image(Paths.get("src/Resources/simple_map_elevations.png"));
+		GridGraph grid = new HeightmapImporter(1.0, 1.0).importGrid(source);
+		Assert.assertEquals("1. Rows", source.getRows(), grid.getRows());
+		for (double elevation : grid.getElevations()) {
+			Assert.assertTrue("2. Elevation in range", elevation >= 0.0 && elevation <= 1.0 + 1e-9);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package Testing;
+
+import Graph.GridGraph;
+import Graph.HierarchicalGrid;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import Graph.SearchStats;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks that hierarchical paths are valid and close to the shortest, touch
+ * fewer cells than A* over the whole grid, and follow elevation changes.
+ */
+public class HierarchicalGridTest extends DSUnitTesting {
+
+	private GridGraph hillyGrid(int side, long seed) {
+		double[] elevations = new double[side * side];
+		Random random = new Random(seed);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextInt(10) / 10.0;
+		}
+		return new GridGraph(side, side, elevations, 0, 0, 10);
+	}
+
+	private double cost(GridGraph grid, int[] path) {
+		double total = 0.0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			boolean adjacent = false;
+			for (int d = 0; d < GridGraph.DIRECTIONS; d++) {
+				adjacent |= grid.neighbour(path[i], d) == path[i + 1];
+			}
+			Assert.assertTrue(adjacent);
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+
+	@Test
+	public void nearOptimalPaths() {
+		AssignmentMarker.marks.put("HierarchicalGrid:nearOptimalPaths", 3.0f);
+		GridGraph grid = hillyGrid(96, 5);
+		HierarchicalGrid hierarchy = new HierarchicalGrid(grid, 16);
+		Assert.assertEquals(36, hierarchy.getClusterCount());
+		Random random = new Random(9);
+		for (int i = 0; i < 20; i++) {
+			int start = random.nextInt(grid.nodeCount());
+			int target = random.nextInt(grid.nodeCount());
+			int[] path = hierarchy.findPath(start, target);
+			double optimal = cost(grid, IndexedSearch.dijkstrasSearch(grid, start, target));
+			Assert.assertEquals(start, path[0]);
+			Assert.assertEquals(target, path[path.length - 1]);
+			double found = cost(grid, path);
+			Assert.assertTrue(found >= optimal - 1e-9);
+			//noisy terrain is the worst case for a fixed corridor
+			Assert.assertTrue(found <= optimal * 1.15 + 1e-9);
+		}
+		Assert.assertArrayEquals(new int[] {7}, hierarchy.findPath(7, 7));
+	}
+
+	@Test
+	public void touchesFewerCells() {
+		AssignmentMarker.marks.put("HierarchicalGrid:touchesFewerCells", 2.0f);
+		GridGraph grid = hillyGrid(256, 6);
+		HierarchicalGrid hierarchy = new HierarchicalGrid(grid, 32);
+		int start = grid.getId(5, 5);
+		int target = grid.getId(250, 240);
+		hierarchy.findPath(start, target);
+		SearchStats stats = new SearchStats();
+		IndexedSearch.aStarSearch(grid, start, target, grid.octileHeuristic(), QueueType.BINARY_HEAP, stats);
+		Assert.assertTrue(hierarchy.getExpandedCount() < stats.getNodesSettled() / 2);
+		Assert.assertTrue(hierarchy.getAbstractExpandedCount() <= hierarchy.getEntranceCount() + 2);
+	}
+
+	@Test
+	public void rebuildsChangedCluster() {
+		AssignmentMarker.marks.put("HierarchicalGrid:rebuildsChangedCluster", 2.0f);
+		GridGraph grid = hillyGrid(64, 7);
+		HierarchicalGrid hierarchy = new HierarchicalGrid(grid, 16);
+		int start = grid.getId(2, 2);
+		int target = grid.getId(60, 60);
+		int[] before = hierarchy.findPath(start, target);
+
+		//raise a wall across the middle of the path
+		int middle = before[before.length / 2];
+		hierarchy.setElevation(middle, 50.0);
+		int[] after = hierarchy.findPath(start, target);
+		Assert.assertEquals(1, hierarchy.getRebuiltCount());
+		for (int cell : after) {
+			Assert.assertNotEquals(middle, cell);
+		}
+		double optimal = cost(grid, IndexedSearch.dijkstrasSearch(grid, start, target));
+		Assert.assertTrue(cost(grid, after) <= optimal * 1.15 + 1e-9);
+	}
+
+	@Test
+	public void listensToNodes() throws Exception {
+		AssignmentMarker.marks.put("HierarchicalGrid:listensToNodes", 1.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		HierarchicalGrid hierarchy = new HierarchicalGrid(nodes, 10, 10, 4);
+		Node[] path = hierarchy.findPath(nodes[0], nodes[99]);
+		Assert.assertSame(nodes[0], path[0]);
+		Assert.assertSame(nodes[99], path[path.length - 1]);
+
+		nodes[0].setElevation(nodes[0].getElevation() + 1.0);
+		Assert.assertEquals(nodes[0].getElevation(), hierarchy.getGrid().getElevation(0), 0.0);
+		hierarchy.findPath(nodes[0], nodes[99]);
+		Assert.assertEquals(1, hierarchy.getRebuiltCount());
+		hierarchy.close();
+		nodes[0].setElevation(0.0);
+		Assert.assertNotEquals(0.0, hierarchy.getGrid().getElevation(0), 0.0);
+	}
+}
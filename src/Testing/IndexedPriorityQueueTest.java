@@ -0,0 +1,105 @@
+package Testing;
+
+import Graph.BucketQueue;
+import Graph.DaryHeap;
+import Graph.IndexedPriorityQueue;
+import Graph.PairingHeap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks every IndexedPriorityQueue implementation against the same
+ * sequence of operations.
+ */
+public class IndexedPriorityQueueTest extends DSUnitTesting {
+	
+	private static final int CAPACITY = 500;
+	
+	private IndexedPriorityQueue[] queues() {
+		return new IndexedPriorityQueue[]{
+				new DaryHeap(CAPACITY),
+				new DaryHeap(CAPACITY, 4),
+				new PairingHeap(CAPACITY),
+				new BucketQueue(CAPACITY, 0.5, 64)};
+	}
+	
+	@Test
+	public void extractMin() {
+		AssignmentMarker.marks.put("IndexedPriorityQueue:extractMin", 5.0f);
+		
+		for (IndexedPriorityQueue q : queues()) {
+			q.insert(3, 2.0);
+			q.insert(1, 1.0);
+			q.insert(7, 2.0);
+			q.insert(2, 5.0);
+			q.decreaseKey(2, 1.0);
+			
+			Assert.assertEquals("1. Size after inserts", 4, q.size());
+			// Equal priorities come out smallest id first
+			Assert.assertEquals("2. Tie broken by id", 1, q.extractMin());
+			Assert.assertEquals("3. Decreased key", 2, q.extractMin());
+			Assert.assertEquals("4. Tie broken by id", 3, q.extractMin());
+			Assert.assertFalse("5. Extracted id is no longer queued", q.contains(3));
+			Assert.assertEquals("6. Last id", 7, q.extractMin());
+			Assert.assertTrue("7. Queue is empty", q.isEmpty());
+		}
+	}
+	
+	@Test
+	public void dijkstraSequence() {
+		AssignmentMarker.marks.put("IndexedPriorityQueue:dijkstraSequence", 5.0f);
+		
+		/*
+		 * Drive each queue with the monotone pattern of a Dijkstra search: after
+		 * each extraction, offer some ids at the extracted priority plus a bounded weight.
+		 */
+		IndexedPriorityQueue[] qs = queues();
+		int[][] orders = new int[qs.length][CAPACITY];
+		for (int k = 0; k < qs.length; k++) {
+			Random random = new Random(42);
+			IndexedPriorityQueue q = qs[k];
+			boolean[] done = new boolean[CAPACITY];
+			double[] priorities = new double[CAPACITY];
+			q.insert(0, 0.0);
+			int count = 0;
+			while (!q.isEmpty()) {
+				int id = q.extractMin();
+				done[id] = true;
+				orders[k][count++] = id;
+				for (int i = 0; i < 4; i++) {
+					int next = random.nextInt(CAPACITY);
+					double priority = priorities[id] + Math.floor(random.nextDouble() * 20) / 2;
+					if (!done[next] && (!q.contains(next) || priority < priorities[next])) {
+						priorities[next] = priority;
+						q.insertOrDecrease(next, priority);
+					}
+				}
+			}
+			Assert.assertTrue("Queue should have settled several ids", count > 10);
+		}
+		for (int k = 1; k < qs.length; k++) {
+			Assert.assertArrayEquals("Extraction orders should match", orders[0], orders[k]);
+		}
+	}
+	
+	@Test
+	public void clear() {
+		AssignmentMarker.marks.put("IndexedPriorityQueue:clear", 5.0f);
+		
+		for (IndexedPriorityQueue q : queues()) {
+			for (int i = 0; i < 50; i++) {
+				q.insert(i, i % 7);
+			}
+			q.extractMin();
+			q.clear();
+			Assert.assertTrue("1. Queue is empty after clear", q.isEmpty());
+			for (int i = 0; i < 50; i++) {
+				Assert.assertFalse("2. No id is queued after clear", q.contains(i));
+			}
+			q.insert(10, 3.0);
+			Assert.assertEquals("3. Queue is reusable after clear", 10, q.extractMin());
+		}
+	}
+}
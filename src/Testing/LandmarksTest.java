@@ -0,0 +1,97 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Landmarks;
+import Graph.Node;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks that the landmark heuristic is admissible and settles fewer nodes
+ * than searching without it.
+ */
+public class LandmarksTest extends DSUnitTesting {
+	
+	private GridGraph hillyGrid(int side, long seed) {
+		double[] elevations = new double[side * side];
+		Random random = new Random(seed);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextInt(10) / 10.0;
+		}
+		return new GridGraph(side, side, elevations, 0, 0, 10);
+	}
+	
+	@Test
+	public void admissible() {
+		AssignmentMarker.marks.put("Landmarks:admissible", 5.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		new Graph().connectNodes(nodes);
+		CsrGraph csr = new CsrGraph(nodes);
+		
+		for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+			Landmarks alt = new Landmarks(csr, 4, selection, 1);
+			for (int s = 0; s < nodes.length; s += 3) {
+				for (int t = 0; t < nodes.length; t++) {
+					double exact = cost(csr, IndexedSearch.dijkstrasSearch(csr, s, t));
+					Assert.assertTrue("1. Estimate of " + s + " -> " + t, alt.estimate(s, t) <= exact + 1e-9);
+					Assert.assertEquals("2. ALT cost of " + s + " -> " + t, exact,
+							cost(csr, IndexedSearch.aStarSearch(csr, s, t, alt)), 1e-9);
+					Assert.assertEquals("3. Bidirectional ALT cost of " + s + " -> " + t, exact,
+							cost(csr, IndexedSearch.bidirectionalAStarSearch(csr, s, t, alt)), 1e-9);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void fewerSettled() {
+		AssignmentMarker.marks.put("Landmarks:fewerSettled", 5.0f);
+		GridGraph grid = hillyGrid(120, 3);
+		Landmarks alt = new Landmarks(grid, 8);
+		Assert.assertEquals("1. Number of landmarks", 8, alt.getLandmarks().length);
+		
+		Random random = new Random(5);
+		long withAlt = 0;
+		long withOctile = 0;
+		long withDijkstra = 0;
+		for (int i = 0; i < 20; i++) {
+			int s = random.nextInt(grid.nodeCount());
+			int t = random.nextInt(grid.nodeCount());
+			Landmarks.Comparison vsDijkstra = alt.compare(s, t, null);
+			Landmarks.Comparison vsOctile = alt.compare(s, t, grid.octileHeuristic());
+			withAlt += vsDijkstra.getSettledWithLandmarks();
+			withDijkstra += vsDijkstra.getSettledWithout();
+			withOctile += vsOctile.getSettledWithout();
+			Assert.assertEquals("2. ALT path is optimal", gridCost(grid, IndexedSearch.dijkstrasSearch(grid, s, t)),
+					gridCost(grid, vsDijkstra.getPath()), 1e-9);
+		}
+		Assert.assertTrue("3. ALT settles fewer nodes than Dijkstra", withAlt < withDijkstra);
+		Assert.assertTrue("4. ALT settles fewer nodes than octile A*", withAlt < withOctile);
+	}
+	
+	private double cost(CsrGraph csr, int[] path) {
+		double total = 0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			int e = csr.getOffsets()[path[i]];
+			while (csr.getTargets()[e] != path[i + 1]) {
+				e++;
+			}
+			total += csr.getWeights()[e];
+		}
+		return total;
+	}
+	
+	private double gridCost(GridGraph grid, int[] path) {
+		double total = 0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			total += grid.weight(path[i], path[i + 1]);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,145 @@
+package Testing;
+
+import Graph.CostModel;
+import Graph.CsrGraph;
+import Graph.DeltaStepping;
+import Graph.Graph;
+import Graph.GraphFile;
+import Graph.GridGraph;
+import Graph.IndexedGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.OffHeapGraph;
+import Graph.ShortestPathTree;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks that graphs stored off the heap, copied or mapped from a file,
+ * have the same edges and give the same paths as their on-heap forms.
+ */
+public class OffHeapGraphTest extends DSUnitTesting {
+
+	@Test
+	public void matchesCsr() throws Exception {
+		AssignmentMarker.marks.put("OffHeapGraph:matchesCsr", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		nodes[12].getEdges().remove(3); //one-way edges are kept as they are
+		graph.applyCostModel(nodes, CostModel.uphillOnly());
+		CsrGraph csr = new CsrGraph(nodes);
+		OffHeapGraph offHeap = OffHeapGraph.copyOf(nodes);
+		Assert.assertFalse(offHeap.isGrid());
+		Assert.assertEquals(csr.edgeCount(), offHeap.edgeCount());
+		Assert.assertEquals(nodes[37].getElevation(), offHeap.getElevation(37), 0.0);
+		Assert.assertEquals(nodes[37].getPosition().x, offHeap.getPosition(37).x, 0.0);
+		Assert.assertEquals(nodes[37].getPosition().y, offHeap.getPosition(37).y, 0.0);
+		assertSameEdges(csr, offHeap, 0.0);
+		assertSameEdges(csr.reverse(), offHeap.reverse(), 0.0);
+		Assert.assertSame(offHeap, offHeap.reverse().reverse());
+
+		for (int target : new int[] {0, 45, 99}) {
+			Assert.assertArrayEquals(IndexedSearch.breadthFirstSearch(csr, 7, target),
+					IndexedSearch.breadthFirstSearch(offHeap, 7, target));
+			Assert.assertArrayEquals(IndexedSearch.dijkstrasSearch(csr, 7, target),
+					IndexedSearch.dijkstrasSearch(offHeap, 7, target));
+			Assert.assertArrayEquals(IndexedSearch.aStarSearch(csr, 7, target, csr.euclideanHeuristic()),
+					IndexedSearch.aStarSearch(offHeap, 7, target, offHeap.euclideanHeuristic()));
+			Assert.assertArrayEquals(IndexedSearch.bidirectionalSearch(csr, 7, target),
+					IndexedSearch.bidirectionalSearch(offHeap, 7, target));
+		}
+	}
+
+	@Test
+	public void mappedFile() throws Exception {
+		AssignmentMarker.marks.put("OffHeapGraph:mappedFile", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		new Graph().connectNodes(nodes);
+		Path path = Files.createTempFile("graph", ".graph");
+		try {
+			GraphFile.write(path, nodes, 10, 10, true);
+			OffHeapGraph mapped = OffHeapGraph.map(path);
+			CsrGraph csr = new CsrGraph(nodes);
+			//weights are computed from the file rather than stored
+			assertSameEdges(csr, mapped, 1e-12);
+			assertSameEdges(csr.reverse(), mapped.reverse(), 1e-12);
+			Assert.assertArrayEquals(IndexedSearch.dijkstrasSearch(csr, 0, 99),
+					IndexedSearch.dijkstrasSearch(mapped, 0, 99));
+
+			//without adjacency or a grid there are no edges to search
+			GraphFile.write(path, nodes, 0, 0, false);
+			try {
+				OffHeapGraph.map(path);
+				Assert.fail("Nodes without edges");
+			}
+			catch (IllegalStateException expected) {
+				//the file says nothing about how the nodes connect
+			}
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void gridWithoutAdjacency() throws Exception {
+		AssignmentMarker.marks.put("OffHeapGraph:gridWithoutAdjacency", 2.0f);
+		double[] elevations = new double[120 * 90];
+		Random random = new Random(25);
+		for (int i = 0; i < elevations.length; i++) {
+			elevations[i] = random.nextDouble();
+		}
+		GridGraph grid = new GridGraph(120, 90, elevations, 4, 2, 5);
+		OffHeapGraph copy = OffHeapGraph.copyOf(grid);
+		Assert.assertTrue(copy.isGrid());
+		Assert.assertSame(copy, copy.reverse());
+		assertSameEdges(grid, copy, 0.0);
+		long edges = 0;
+		int[] targets = new int[copy.maxDegree()];
+		double[] weights = new double[copy.maxDegree()];
+		for (int node = 0; node < copy.nodeCount(); node++) {
+			edges += copy.neighbours(node, targets, weights);
+		}
+		Assert.assertEquals(edges, copy.edgeCount());
+
+		Path path = Files.createTempFile("grid", ".graph");
+		try {
+			GraphFile.write(path, grid);
+			OffHeapGraph mapped = OffHeapGraph.map(path);
+			assertSameEdges(grid, mapped, 0.0);
+			Assert.assertArrayEquals(IndexedSearch.aStarSearch(grid, 5, 10000, grid.euclideanHeuristic()),
+					IndexedSearch.aStarSearch(mapped, 5, 10000, mapped.euclideanHeuristic()));
+			ShortestPathTree expected = IndexedSearch.shortestPathTree(grid, 4321);
+			ShortestPathTree actual = DeltaStepping.compute(mapped, 4321);
+			for (int node = 0; node < grid.nodeCount(); node++) {
+				Assert.assertEquals(expected.getDistance(node), actual.getDistance(node), 0.0);
+			}
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	private static void assertSameEdges(IndexedGraph expected, IndexedGraph actual, double delta) {
+		Assert.assertEquals(expected.nodeCount(), actual.nodeCount());
+		Assert.assertEquals(expected.maxDegree(), actual.maxDegree());
+		int[] expectedTargets = new int[expected.maxDegree()];
+		double[] expectedWeights = new double[expected.maxDegree()];
+		int[] actualTargets = new int[actual.maxDegree()];
+		double[] actualWeights = new double[actual.maxDegree()];
+		for (int node = 0; node < expected.nodeCount(); node++) {
+			int count = expected.neighbours(node, expectedTargets, expectedWeights);
+			Assert.assertEquals("Degree of " + node, count, actual.neighbours(node, actualTargets, actualWeights));
+			for (int e = 0; e < count; e++) {
+				Assert.assertEquals("Target of " + node, expectedTargets[e], actualTargets[e]);
+				Assert.assertEquals("Weight of " + node, expectedWeights[e], actualWeights[e], delta);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package Testing;
+
+import Graph.Graph;
+import Graph.Node;
+import Graph.PathCache;
+import Graph.SearchAlgorithm;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the path cache's counters, eviction and invalidation.
+ */
+public class PathCacheTest extends DSUnitTesting {
+	
+	private Node[] nodes;
+	private Graph graph;
+	
+	private PathCache newCache(int maxEntries, long maxNodes) {
+		nodes = new GraphLoader().getNodes();
+		graph = new Graph();
+		graph.connectNodes(nodes);
+		return new PathCache(graph, nodes, maxEntries, maxNodes);
+	}
+	
+	@Test
+	public void hitsAndMisses() {
+		AssignmentMarker.marks.put("PathCache:hitsAndMisses", 3.0f);
+		PathCache cache = newCache(16, Long.MAX_VALUE);
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			Node[] expected = algorithm.search(graph, nodes[9], nodes[99]);
+			Node[] first = cache.findPath(nodes[9], nodes[99], algorithm);
+			Assert.assertArrayEquals("1. Cached " + algorithm + " path", expected, first);
+			Assert.assertSame("2. Repeated " + algorithm + " lookup", first,
+					cache.findPath(nodes[9], nodes[99], algorithm));
+		}
+		int count = SearchAlgorithm.values().length;
+		Assert.assertEquals("3. Hits", count, cache.getHits());
+		Assert.assertEquals("4. Misses", count, cache.getMisses());
+		Assert.assertEquals("5. Size", count, cache.size());
+		Assert.assertEquals("6. Hit rate", 0.5, cache.getHitRate(), 1e-9);
+		cache.close();
+	}
+	
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		AssignmentMarker.marks.put("PathCache:evictsLeastRecentlyUsed", 3.0f);
+		PathCache cache = newCache(2, Long.MAX_VALUE);
+		cache.dijkstrasSearch(nodes[0], nodes[11]);
+		cache.dijkstrasSearch(nodes[0], nodes[22]);
+		cache.dijkstrasSearch(nodes[0], nodes[11]); //now the most recently used
+		cache.dijkstrasSearch(nodes[0], nodes[33]);
+		Assert.assertEquals("1. Evictions", 1, cache.getEvictions());
+		long misses = cache.getMisses();
+		cache.dijkstrasSearch(nodes[0], nodes[11]);
+		Assert.assertEquals("2. Recently used path kept", misses, cache.getMisses());
+		cache.dijkstrasSearch(nodes[0], nodes[22]);
+		Assert.assertEquals("3. Least recently used path evicted", misses + 1, cache.getMisses());
+		cache.close();
+		
+		//the node limit evicts long paths too
+		cache = newCache(100, 5);
+		cache.breadthFirstSearch(nodes[0], nodes[1]);
+		cache.breadthFirstSearch(nodes[0], nodes[99]);
+		Assert.assertEquals("4. Size under node limit", 0, cache.size());
+		cache.close();
+	}
+	
+	@Test
+	public void invalidatesOnChange() {
+		AssignmentMarker.marks.put("PathCache:invalidatesOnChange", 4.0f);
+		PathCache cache = newCache(16, Long.MAX_VALUE);
+		Node[] path = cache.dijkstrasSearch(nodes[0], nodes[1]);
+		cache.breadthFirstSearch(nodes[0], nodes[99]);
+		
+		//far from a short path, so no detour through it could be cheaper
+		nodes[99].setElevation(nodes[99].getElevation() + 1);
+		Assert.assertEquals("1. Unaffected entries kept", 2, cache.size());
+		
+		path[path.length - 1].setElevation(path[path.length - 1].getElevation() + 1);
+		Assert.assertEquals("2. Weighted path through the node dropped", 1, cache.size());
+		Assert.assertNotNull("3. Breadth-first path kept", cache.breadthFirstSearch(nodes[0], nodes[99]));
+		Assert.assertEquals("4. Hits", 1, cache.getHits());
+		
+		nodes[50].setEdges(nodes[50].getEdges());
+		Assert.assertEquals("5. Breadth-first path dropped on new edges", 0, cache.size());
+		Assert.assertEquals("6. Invalidations", 2, cache.getInvalidations());
+		
+		cache.close();
+		cache.dijkstrasSearch(nodes[0], nodes[1]);
+		nodes[1].setElevation(0);
+		Assert.assertEquals("7. Closed cache stops listening", 1, cache.size());
+	}
+	
+	@Test
+	public void concurrentLookups() throws Exception {
+		AssignmentMarker.marks.put("PathCache:concurrentLookups", 2.0f);
+		PathCache cache = newCache(64, Long.MAX_VALUE);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Node[]>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				int target = 90 + i % 10;
+				results.add(executor.submit(() -> cache.dijkstrasSearch(nodes[9], nodes[target])));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				Assert.assertArrayEquals("1. Path to " + (90 + i % 10),
+						graph.dijkstrasSearch(nodes[9], nodes[90 + i % 10]), results.get(i).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals("2. Lookups", 200, cache.getHits() + cache.getMisses());
+		Assert.assertEquals("3. Size", 10, cache.size());
+		cache.close();
+	}
+}
@@ -0,0 +1,119 @@
+package Testing;
+
+import Graph.Edge;
+import Graph.Graph;
+import Graph.Node;
+import Graph.PathResult;
+import Graph.SearchAlgorithm;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the paths searches return carry the edges they took and the
+ * cost calculateTotalWeight gives them, and that getEdge finds grid edges
+ * by direction.
+ */
+public class PathResultTest extends DSUnitTesting {
+
+	@Test
+	public void matchesNodePaths() throws Exception {
+		AssignmentMarker.marks.put("PathResult:matchesNodePaths", 3.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			PathResult path = graph.findPath(nodes[7], nodes[92], algorithm);
+			Node[] expected = search(graph, algorithm, nodes[7], nodes[92]);
+			Assert.assertArrayEquals(algorithm.name(), expected, path.getNodes());
+			Assert.assertEquals(algorithm.name(), graph.calculateTotalWeight(expected), path.getCost(), 1e-9);
+			Assert.assertEquals(expected.length, path.getLength());
+			Assert.assertSame(nodes[7], path.getStart());
+			Assert.assertSame(nodes[92], path.getTarget());
+			Assert.assertEquals(path.getLength() - 1, path.getEdges().length);
+			for (int i = 0; i < path.getLength(); i++) {
+				Assert.assertEquals(expected[i].getId(), path.getId(i));
+				if (i > 0) {
+					Edge edge = path.getEdge(i - 1);
+					Assert.assertSame(expected[i - 1], edge.getFromNode());
+					Assert.assertSame(expected[i], edge.getToNode());
+				}
+			}
+		}
+
+		PathResult single = graph.findPath(nodes[40], nodes[40], SearchAlgorithm.DIJKSTRA);
+		Assert.assertEquals(1, single.getLength());
+		Assert.assertEquals(0.0, single.getCost(), 0.0);
+		Assert.assertEquals(0, single.getEdges().length);
+	}
+
+	@Test
+	public void unreachableTarget() throws Exception {
+		AssignmentMarker.marks.put("PathResult:unreachableTarget", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		for (Node node : nodes) {
+			node.getEdges().removeIf(edge -> edge.getToNode() == nodes[55]);
+		}
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			Assert.assertNull(algorithm.name(), graph.findPath(nodes[0], nodes[55], algorithm));
+		}
+		//the Node[] searches keep their own conventions
+		Assert.assertNull(graph.breadthFirstSearch(nodes[0], nodes[55]));
+		Assert.assertArrayEquals(new Node[] {nodes[55]}, graph.dijkstrasSearch(nodes[0], nodes[55]));
+	}
+
+	@Test
+	public void directEdgeLookup() throws Exception {
+		AssignmentMarker.marks.put("PathResult:directEdgeLookup", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		assertMatchesScan(graph, nodes);
+
+		//edges removed or reordered after connecting fall back to a scan
+		nodes[44].getEdges().remove(0);
+		nodes[0].getEdges().add(0, nodes[0].getEdges().remove(2));
+		nodes[99].getEdges().clear();
+		assertMatchesScan(graph, nodes);
+		Assert.assertNull(graph.getEdge(nodes[0], nodes[22]));
+
+		//nodes the graph was not connected with are scanned
+		Node[] others = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		new Graph().connectNodes(others);
+		Assert.assertSame(others[1].getEdges().get(0), graph.getEdge(others[1], others[2]));
+	}
+
+	private static void assertMatchesScan(Graph graph, Node[] nodes) {
+		for (Node source : nodes) {
+			for (Node destination : nodes) {
+				Edge expected = null;
+				for (Edge edge : source.getEdges()) {
+					if (edge.getToNode().equals(destination)) {
+						expected = edge;
+						break;
+					}
+				}
+				Assert.assertSame(expected, graph.getEdge(source, destination));
+			}
+		}
+	}
+
+	private static Node[] search(Graph graph, SearchAlgorithm algorithm, Node start, Node target) {
+		switch (algorithm) {
+			case BREADTH_FIRST:
+				return graph.breadthFirstSearch(start, target);
+			case DEPTH_FIRST:
+				return graph.depthFirstSearch(start, target);
+			case DIJKSTRA:
+				return graph.dijkstrasSearch(start, target);
+			case A_STAR:
+				return graph.aStarSearch(start, target);
+			case BIDIRECTIONAL:
+				return graph.bidirectionalSearch(start, target);
+			default:
+				return graph.bidirectionalAStarSearch(start, target);
+		}
+	}
+}
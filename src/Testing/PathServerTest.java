@@ -0,0 +1,144 @@
+package Testing;
+
+import Graph.Graph;
+import Graph.Node;
+import Graph.PathfindingService;
+import GUI.GraphLoader;
+import Server.PathServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends batches to a server on a loopback port and checks the replies
+ * against the searches in Graph.
+ */
+public class PathServerTest extends DSUnitTesting {
+
+	private Node[] connectedNodes(Graph graph) throws Exception {
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		graph.connectNodes(nodes);
+		return nodes;
+	}
+
+	/**
+	 * @return The status code followed by the body of the reply
+	 */
+	private String[] request(int port, String method, String path, String body) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream reply = new ByteArrayOutputStream();
+		in.transferTo(reply);
+		in.close();
+		return new String[] {String.valueOf(status), reply.toString(StandardCharsets.UTF_8)};
+	}
+
+	@Test
+	public void answersBatches() throws Exception {
+		AssignmentMarker.marks.put("PathServer:answersBatches", 3.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		try (PathServer server = new PathServer(new PathfindingService(nodes), 0, 2)) {
+			String[] reply = request(server.getPort(), "POST", "/paths", "0 99\n5 5 BREADTH_FIRST\n\n90 9 A_STAR\n");
+			Assert.assertEquals("200", reply[0]);
+			String[] lines = reply[1].split("\n");
+			Assert.assertEquals(3, lines.length);
+
+			Node[] expected = graph.dijkstrasSearch(nodes[0], nodes[99]);
+			String[] parts = lines[0].split(" ");
+			Assert.assertEquals(graph.calculateTotalWeight(expected), Double.parseDouble(parts[0]), 1e-9);
+			Assert.assertEquals(expected.length, parts.length - 1);
+			for (int i = 0; i < expected.length; i++) {
+				Assert.assertSame(expected[i], nodes[Integer.parseInt(parts[i + 1])]);
+			}
+			Assert.assertEquals("0.0 5", lines[1]);
+			Assert.assertEquals(graph.calculateTotalWeight(graph.dijkstrasSearch(nodes[90], nodes[9])),
+					Double.parseDouble(lines[2].split(" ")[0]), 1e-9);
+		}
+	}
+
+	@Test
+	public void mergesQueriesPerTick() throws Exception {
+		AssignmentMarker.marks.put("PathServer:mergesQueriesPerTick", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		//a long tick, so the concurrent batches arrive within the same one
+		try (PathServer server = new PathServer(new PathfindingService(nodes), 0, 200)) {
+			List<Future<String[]>> replies = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				replies.add(clients.submit(() -> request(server.getPort(), "POST", "/paths", "0 99\n10 89\n")));
+			}
+			String first = replies.get(0).get()[1];
+			for (Future<String[]> reply : replies) {
+				Assert.assertEquals("200", reply.get()[0]);
+				Assert.assertEquals(first, reply.get()[1]);
+			}
+			Assert.assertEquals(8, server.getBatchCount());
+			Assert.assertEquals(16, server.getQueryCount());
+			Assert.assertTrue(server.getSearchCount() < server.getQueryCount());
+			Assert.assertEquals(8, server.getLatency().getCount());
+			Assert.assertTrue(server.getLatency().getPercentile(99, TimeUnit.NANOSECONDS)
+					<= server.getLatency().getMax(TimeUnit.NANOSECONDS));
+
+			String[] stats = request(server.getPort(), "GET", "/stats", null);
+			Assert.assertEquals("200", stats[0]);
+			Assert.assertTrue(stats[1].contains("queries 16\n"));
+		}
+		finally {
+			clients.shutdown();
+		}
+	}
+
+	@Test
+	public void rejectsInvalidQueries() throws Exception {
+		AssignmentMarker.marks.put("PathServer:rejectsInvalidQueries", 1.0f);
+		Node[] nodes = connectedNodes(new Graph());
+		try (PathServer server = new PathServer(new PathfindingService(nodes), 0, 2)) {
+			Assert.assertEquals("400", request(server.getPort(), "POST", "/paths", "0 100\n")[0]);
+			Assert.assertEquals("400", request(server.getPort(), "POST", "/paths", "0 x\n")[0]);
+			Assert.assertEquals("400", request(server.getPort(), "POST", "/paths", "0 1 FASTEST\n")[0]);
+			Assert.assertEquals("405", request(server.getPort(), "GET", "/paths", null)[0]);
+			Assert.assertEquals(0, server.getQueryCount());
+		}
+	}
+
+	@Test
+	public void closeFailsWaitingBatches() throws Exception {
+		AssignmentMarker.marks.put("PathServer:closeFailsWaitingBatches", 1.0f);
+		Node[] nodes = connectedNodes(new Graph());
+		ExecutorService clients = Executors.newSingleThreadExecutor();
+		try {
+			//a tick that never comes, so the batch is still waiting when the server closes
+			PathServer server = new PathServer(new PathfindingService(nodes), 0, TimeUnit.HOURS.toMillis(1));
+			Future<String[]> reply = clients.submit(() -> request(server.getPort(), "POST", "/paths", "0 99\n"));
+			Thread.sleep(500);
+			server.close();
+			Assert.assertEquals("503", reply.get(5, TimeUnit.SECONDS)[0]);
+			Assert.assertEquals(0, server.getBatchCount());
+		}
+		finally {
+			clients.shutdown();
+		}
+	}
+}
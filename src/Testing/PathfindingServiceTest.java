@@ -0,0 +1,116 @@
+package Testing;
+
+import Graph.CostModel;
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.Node;
+import Graph.PathfindingService;
+import Graph.Position;
+import Graph.QueueType;
+import Graph.SearchAlgorithm;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks that concurrent queries through the service match the searches in Graph.
+ */
+public class PathfindingServiceTest extends DSUnitTesting {
+	
+	private Node[] connectedNodes(Graph graph) throws Exception {
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		graph.connectNodes(nodes);
+		return nodes;
+	}
+	
+	@Test
+	public void concurrentQueries() throws Exception {
+		AssignmentMarker.marks.put("PathfindingService:concurrentQueries", 4.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			PathfindingService service = new PathfindingService(nodes, executor, QueueType.QUATERNARY_HEAP);
+			Random random = new Random(2);
+			List<CompletableFuture<Node[]>> results = new ArrayList<>();
+			List<Node[]> expected = new ArrayList<>();
+			for (int i = 0; i < 300; i++) {
+				Node start = nodes[random.nextInt(nodes.length)];
+				Node target = nodes[random.nextInt(nodes.length)];
+				SearchAlgorithm algorithm = SearchAlgorithm.values()[i % SearchAlgorithm.values().length];
+				results.add(service.findPath(start, target, algorithm));
+				expected.add(algorithm.search(graph, start, target));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				Assert.assertArrayEquals("1. Query " + i, expected.get(i), results.get(i).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void snapshotIsolation() throws Exception {
+		AssignmentMarker.marks.put("PathfindingService:snapshotIsolation", 3.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		PathfindingService service = new PathfindingService(nodes);
+		Node[] before = service.findPath(nodes[0], nodes[99], SearchAlgorithm.DIJKSTRA).get();
+		
+		//loading another copy of the graph must not affect the service
+		new GraphLoader();
+		nodes[0].getEdges().clear();
+		Assert.assertArrayEquals("1. Snapshot unchanged", before,
+				service.findPath(nodes[0], nodes[99], SearchAlgorithm.DIJKSTRA).get());
+		
+		service.reload(nodes);
+		Assert.assertNull("2. Reloaded snapshot", service.findPath(nodes[0], nodes[99], SearchAlgorithm.DIJKSTRA).get());
+		Assert.assertEquals("3. Tree from the reloaded snapshot", 1,
+				service.shortestPathTree(nodes[0]).get().getSettledCount());
+		
+		//reweighing publishes a new snapshot rather than changing the one in use
+		CsrGraph plain = service.getGraph();
+		double[] weights = plain.getWeights().clone();
+		service.reload(nodes, CostModel.uphillOnly());
+		Assert.assertNotSame("4. Reweighed snapshot", plain, service.getGraph());
+		Assert.assertArrayEquals("5. Old snapshot unchanged", weights, plain.getWeights(), 0.0);
+		Assert.assertArrayEquals("6. New weights", plain.withCostModel(CostModel.uphillOnly()).getWeights(),
+				service.getGraph().getWeights(), 0.0);
+		
+		try {
+			service.findPath(new Node(0, new Position(0, 0)), nodes[0], SearchAlgorithm.DIJKSTRA).get();
+			Assert.fail("7. Unknown node");
+		}
+		catch (ExecutionException e) {
+			Assert.assertTrue("8. Cause", e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+	
+	@Test
+	public void virtualThreads() throws Exception {
+		AssignmentMarker.marks.put("PathfindingService:virtualThreads", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		ExecutorService executor = PathfindingService.newVirtualThreadExecutor();
+		try {
+			PathfindingService service = new PathfindingService(nodes, executor, QueueType.BINARY_HEAP);
+			Node[] targets = {nodes[99], nodes[90], nodes[9]};
+			Assert.assertEquals("1. Matrix cost", graph.calculateTotalWeight(graph.dijkstrasSearch(nodes[0], nodes[99])),
+					service.distanceMatrix(new Node[] {nodes[0]}, targets, false).get().getCost(0, 0), 1e-9);
+			Assert.assertArrayEquals("2. Ids", service.getGraph().toIds(graph.bidirectionalSearch(nodes[0], nodes[90])),
+					service.findPath(0, 90, SearchAlgorithm.BIDIRECTIONAL).get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
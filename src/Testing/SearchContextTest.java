@@ -0,0 +1,109 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.GridGraph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that searches reusing their thread's scratch state give the same
+ * answers as fresh ones, and allocate little more than their result.
+ */
+public class SearchContextTest extends DSUnitTesting {
+
+	@Test
+	public void reuseAcrossGraphs() throws Exception {
+		AssignmentMarker.marks.put("SearchContext:reuseAcrossGraphs", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		CsrGraph csr = new CsrGraph(nodes);
+		GridGraph grid = new GridGraph(30, 30, new double[900], 0, 0, 1);
+		int[] expected = IndexedSearch.dijkstrasSearch(csr, 3, 96);
+		Node[] expectedNodes = graph.aStarSearch(nodes[3], nodes[96]);
+		//alternate between graphs of different sizes and every queue type
+		for (int round = 0; round < 3; round++) {
+			for (QueueType queueType : QueueType.values()) {
+				Assert.assertArrayEquals(expected, IndexedSearch.dijkstrasSearch(csr, 3, 96, queueType));
+				Assert.assertEquals(30, IndexedSearch.dijkstrasSearch(grid, 0, 899, queueType).length);
+				graph.setQueueType(queueType);
+				Assert.assertArrayEquals(expectedNodes, graph.aStarSearch(nodes[3], nodes[96]));
+			}
+			Assert.assertEquals(30, IndexedSearch.breadthFirstSearch(grid, 29, 870).length);
+			Assert.assertArrayEquals(csr.toIds(graph.breadthFirstSearch(nodes[0], nodes[99])),
+					IndexedSearch.breadthFirstSearch(csr, 0, 99));
+			Assert.assertArrayEquals(csr.toIds(graph.depthFirstSearch(nodes[0], nodes[99])),
+					IndexedSearch.depthFirstSearch(csr, 0, 99));
+		}
+
+		//unreachable targets leave nothing behind for the next search
+		nodes[99].getEdges().clear();
+		CsrGraph cut = new CsrGraph(nodes);
+		Assert.assertNull(IndexedSearch.dijkstrasSearch(cut, 99, 0));
+		Assert.assertArrayEquals(expected, IndexedSearch.dijkstrasSearch(csr, 3, 96));
+	}
+
+	@Test
+	public void searchesFromListener() throws Exception {
+		AssignmentMarker.marks.put("SearchContext:searchesFromListener", 2.0f);
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		Node[] expected = graph.breadthFirstSearch(nodes[0], nodes[99]);
+		Node[] inner = graph.dijkstrasSearch(nodes[90], nodes[9]);
+		List<Node[]> found = new ArrayList<>();
+		//the listener searches while the outer search still holds its state
+		graph.setSearchListener((algorithm, start, target, stats) -> {
+			if (start == nodes[0]) {
+				found.add(graph.dijkstrasSearch(nodes[90], nodes[9]));
+			}
+		});
+		Assert.assertArrayEquals(expected, graph.breadthFirstSearch(nodes[0], nodes[99]));
+		Assert.assertArrayEquals(inner, found.get(0));
+	}
+
+	@Test
+	public void steadyStateAllocation() throws Exception {
+		AssignmentMarker.marks.put("SearchContext:steadyStateAllocation", 2.0f);
+		//the JDK's extension of the bean is looked up reflectively, so the module need not require jdk.management
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		Class<?> extension;
+		try {
+			extension = Class.forName("com.sun.management.ThreadMXBean");
+		}
+		catch (ClassNotFoundException e) {
+			extension = null;
+		}
+		Assume.assumeTrue(extension != null && extension.isInstance(threads));
+		Assume.assumeTrue((Boolean) extension.getMethod("isThreadAllocatedMemorySupported").invoke(threads)
+				&& (Boolean) extension.getMethod("isThreadAllocatedMemoryEnabled").invoke(threads));
+		Method allocatedBytes = extension.getMethod("getThreadAllocatedBytes", long.class);
+
+		int side = 100;
+		GridGraph grid = new GridGraph(side, side, new double[side * side], 0, 0, 1);
+		for (int i = 0; i < 200; i++) {
+			IndexedSearch.dijkstrasSearch(grid, 0, side * side - 1);
+		}
+		long thread = Thread.currentThread().getId();
+		int searches = 100;
+		long before = (Long) allocatedBytes.invoke(threads, thread);
+		for (int i = 0; i < searches; i++) {
+			IndexedSearch.dijkstrasSearch(grid, 0, side * side - 1);
+		}
+		long perSearch = ((Long) allocatedBytes.invoke(threads, thread) - before) / searches;
+		//fresh arrays would take over 100 KB; the path of 100 ids is about 400 bytes
+		Assert.assertTrue("Allocated " + perSearch + " bytes per search", perSearch < 4096);
+	}
+}
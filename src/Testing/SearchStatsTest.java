@@ -0,0 +1,133 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import Graph.SearchAlgorithm;
+import Graph.SearchStats;
+import GUI.GraphLoader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the counters searches report to a listener and to their callers,
+ * and the Flight Recorder events they commit.
+ */
+public class SearchStatsTest extends DSUnitTesting {
+
+	private Node[] connectedNodes(Graph graph) throws Exception {
+		Node[] nodes = GraphLoader.load(GraphLoader.DEFAULT_PATH);
+		graph.connectNodes(nodes);
+		return nodes;
+	}
+
+	@Test
+	public void listenerCounters() throws Exception {
+		AssignmentMarker.marks.put("SearchStats:listenerCounters", 3.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		List<SearchAlgorithm> algorithms = new ArrayList<>();
+		List<SearchStats> reported = new ArrayList<>();
+		List<Node> ends = new ArrayList<>();
+		graph.setSearchListener((algorithm, start, target, stats) -> {
+			ends.add(start);
+			ends.add(target);
+			algorithms.add(algorithm);
+			reported.add(stats);
+		});
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			Node[] path = algorithm.search(graph, nodes[3], nodes[96]);
+			SearchStats stats = reported.get(reported.size() - 1);
+			Assert.assertEquals(algorithm, algorithms.get(algorithms.size() - 1));
+			Assert.assertSame(nodes[3], ends.get(ends.size() - 2));
+			Assert.assertSame(nodes[96], ends.get(ends.size() - 1));
+			Assert.assertEquals(1, stats.getSearches());
+			Assert.assertTrue(stats.getNodesSettled() > 0);
+			Assert.assertTrue(stats.getEdgesRelaxed() >= stats.getNodesSettled());
+			Assert.assertTrue(stats.getPushes() >= stats.getPeakFrontier());
+			Assert.assertTrue(stats.getPeakFrontier() > 0);
+			Assert.assertTrue(stats.getElapsedNanos() > 0);
+			Assert.assertEquals(graph.calculateTotalWeight(path), stats.getPathCost(), 1e-9);
+		}
+		Assert.assertEquals(SearchAlgorithm.values().length, reported.size());
+
+		//BFS pushes every node it reaches exactly once
+		graph.breadthFirstSearch(nodes[0], nodes[99]);
+		Assert.assertEquals(100, reported.get(reported.size() - 1).getPushes());
+
+		graph.setSearchListener(null);
+		graph.dijkstrasSearch(nodes[0], nodes[99]);
+		Assert.assertEquals(SearchAlgorithm.values().length + 1, reported.size());
+	}
+
+	@Test
+	public void indexedCountersMatch() throws Exception {
+		AssignmentMarker.marks.put("SearchStats:indexedCountersMatch", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		List<SearchStats> reported = new ArrayList<>();
+		graph.setSearchListener((algorithm, start, target, stats) -> reported.add(stats));
+		graph.dijkstrasSearch(nodes[5], nodes[94]);
+		SearchStats fromGraph = reported.get(0);
+
+		CsrGraph csr = new CsrGraph(nodes);
+		SearchStats indexed = new SearchStats();
+		IndexedSearch.dijkstrasSearch(csr, 5, 94, QueueType.BINARY_HEAP, indexed);
+		Assert.assertEquals(fromGraph.getNodesSettled(), indexed.getNodesSettled());
+		Assert.assertEquals(fromGraph.getEdgesRelaxed(), indexed.getEdgesRelaxed());
+		Assert.assertEquals(fromGraph.getPushes(), indexed.getPushes());
+		Assert.assertEquals(fromGraph.getDecreaseKeys(), indexed.getDecreaseKeys());
+		Assert.assertEquals(fromGraph.getPeakFrontier(), indexed.getPeakFrontier());
+		Assert.assertEquals(fromGraph.getPathCost(), indexed.getPathCost(), 1e-9);
+
+		//counters given to several searches add up
+		IndexedSearch.dijkstrasSearch(csr, 5, 94, QueueType.BINARY_HEAP, indexed);
+		Assert.assertEquals(2, indexed.getSearches());
+		Assert.assertEquals(2 * fromGraph.getNodesSettled(), indexed.getNodesSettled());
+		indexed.reset();
+		Assert.assertEquals(0, indexed.getPushes());
+		Assert.assertEquals(Double.MAX_VALUE, indexed.getPathCost(), 0.0);
+	}
+
+	@Test
+	public void flightRecorderEvents() throws Exception {
+		AssignmentMarker.marks.put("SearchStats:flightRecorderEvents", 2.0f);
+		Graph graph = new Graph();
+		Node[] nodes = connectedNodes(graph);
+		Path file = Files.createTempFile("searches", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("Graph.Search");
+			recording.start();
+			Node[] path = graph.aStarSearch(nodes[0], nodes[99]);
+			graph.bidirectionalSearch(nodes[0], nodes[99]);
+			IndexedSearch.breadthFirstSearch(new CsrGraph(nodes), 0, 99);
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			Assert.assertEquals(3, events.size());
+			RecordedEvent aStar = events.get(0);
+			Assert.assertEquals("A_STAR", aStar.getString("algorithm"));
+			Assert.assertEquals(0, aStar.getInt("start"));
+			Assert.assertEquals(99, aStar.getInt("target"));
+			Assert.assertEquals(path.length, aStar.getInt("pathLength"));
+			Assert.assertEquals(graph.calculateTotalWeight(path), aStar.getDouble("pathCost"), 1e-9);
+			Assert.assertTrue(aStar.getLong("nodesSettled") > 0);
+			Assert.assertEquals("BIDIRECTIONAL", events.get(1).getString("algorithm"));
+			Assert.assertEquals("BREADTH_FIRST", events.get(2).getString("algorithm"));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
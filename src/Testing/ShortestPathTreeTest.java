@@ -0,0 +1,75 @@
+package Testing;
+
+import Graph.CsrGraph;
+import Graph.Graph;
+import Graph.IndexedSearch;
+import Graph.Node;
+import Graph.QueueType;
+import Graph.ShortestPathTree;
+import GUI.GraphLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that one shortest path tree answers the same queries as repeated searches.
+ */
+public class ShortestPathTreeTest extends DSUnitTesting {
+	
+	@Test
+	public void matchesDijkstra() {
+		AssignmentMarker.marks.put("ShortestPathTree:matchesDijkstra", 4.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		Graph graph = new Graph();
+		graph.connectNodes(nodes);
+		
+		for (QueueType queueType : QueueType.values()) {
+			graph.setQueueType(queueType);
+			ShortestPathTree tree = graph.shortestPathTree(nodes[9]);
+			Assert.assertEquals("1. " + queueType + " settled", nodes.length, tree.getSettledCount());
+			for (Node node : nodes) {
+				Node[] path = graph.dijkstrasSearch(nodes[9], node);
+				Assert.assertArrayEquals("2. " + queueType + " path", path, tree.pathTo(node));
+				double cost = node == nodes[9] ? 0.0 : graph.calculateTotalWeight(path);
+				Assert.assertEquals("3. " + queueType + " distance", cost, tree.distanceTo(node), 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void settledOrder() {
+		AssignmentMarker.marks.put("ShortestPathTree:settledOrder", 2.0f);
+		Node[] nodes = new GraphLoader().getNodes();
+		new Graph().connectNodes(nodes);
+		nodes[0].getEdges().clear();
+		CsrGraph csr = new CsrGraph(nodes);
+		
+		ShortestPathTree tree = IndexedSearch.shortestPathTree(csr, 45);
+		Assert.assertEquals("1. Source", 45, tree.getSettled(0));
+		Assert.assertEquals("2. Source parent", -1, tree.getParent(45));
+		double last = 0.0;
+		for (int i = 1; i < tree.getSettledCount(); i++) {
+			int v = tree.getSettled(i);
+			Assert.assertTrue("3. Non-decreasing distance", tree.getDistance(v) >= last);
+			Assert.assertEquals("4. Parent distance", tree.getDistance(v),
+					tree.getDistance(tree.getParent(v)) + edgeWeight(csr, tree.getParent(v), v), 1e-9);
+			last = tree.getDistance(v);
+		}
+		
+		//node 0 has no outgoing edges but can still be reached
+		Assert.assertTrue("5. Reachable dead end", tree.isReachable(0));
+		ShortestPathTree fromDeadEnd = IndexedSearch.shortestPathTree(csr, 0);
+		Assert.assertEquals("6. Only the source settled", 1, fromDeadEnd.getSettledCount());
+		Assert.assertFalse("7. Unreachable", fromDeadEnd.isReachable(45));
+		Assert.assertNull("8. No path", fromDeadEnd.getPath(45));
+		Assert.assertEquals("9. Unreachable distance", Double.MAX_VALUE, fromDeadEnd.getDistance(45), 0.0);
+	}
+	
+	private double edgeWeight(CsrGraph csr, int from, int to) {
+		for (int e = csr.getOffsets()[from]; e < csr.getOffsets()[from + 1]; e++) {
+			if (csr.getTargets()[e] == to) {
+				return csr.getWeights()[e];
+			}
+		}
+		return Double.NaN;
+	}
+}
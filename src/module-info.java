@@ -1,8 +1,13 @@
 module dsaAssign1 {
-	requires javafx.graphics;
-	requires javafx.fxml;
-	requires javafx.controls;
-	requires junit;
+	requires static javafx.graphics;
+	requires static javafx.fxml;
+	requires static javafx.controls;
+	requires java.desktop;
+	requires jdk.httpserver;
+	requires jdk.jfr;
+	requires static junit;
+	exports Graph;
+	exports Server;
 	opens GUI to javafx.graphics, javafx.fxml;
 	opens Testing to junit, hamcrest;
 }
\ No newline at end of file